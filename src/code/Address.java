@@ -11,6 +11,7 @@ public class Address
     private final String streetName;
     private final String postalCode;
     private final String city;
+    private String fullAddress;
 
     public static final int MAX_CITY_LENGTH = 30;
     public static final int MAX_STREET_NAME_LENGTH = 20;
@@ -44,7 +45,57 @@ public class Address
                    final String postalCode,
                    final String city)
     {
+        this(unitNumber, streetNumber, streetName, postalCode, city, true);
+    }
+
+
+    /**
+     * Constructs a new Address object, optionally skipping validation.
+     * Only data that was validated before, such as an Agency snapshot, may be restored without validation.
+     *
+     * @param unitNumber   The unit number of the address (nullable).
+     * @param streetNumber The street number of the address.
+     * @param streetName   The street name of the address.
+     * @param postalCode   The postal code of the address.
+     * @param city         The city of the address.
+     * @param validate     true to validate the details as the public constructor does, false to trust them.
+     */
+    Address(final String unitNumber,
+            final int streetNumber,
+            final String streetName,
+            final String postalCode,
+            final String city,
+            final boolean validate)
+    {
+        if(validate)
+        {
+            validateAddress(unitNumber, streetNumber, streetName, postalCode, city);
+        }
+
+        this.unitNumber = unitNumber;
+        this.streetNumber = streetNumber;
+        this.streetName = streetName;
+        this.postalCode = postalCode;
+        this.city = city;
+    }
 
+    /**
+     * Validates the details of an address, throwing for the first invalid one.
+     *
+     * @param unitNumber   The unit number of the address (nullable).
+     * @param streetNumber The street number of the address.
+     * @param streetName   The street name of the address.
+     * @param postalCode   The postal code of the address.
+     * @param city         The city of the address.
+     * @throws NullPointerException     if the streetName, postalCode or city is null.
+     * @throws IllegalArgumentException if any of the details is invalid.
+     */
+    private void validateAddress(final String unitNumber,
+                                 final int streetNumber,
+                                 final String streetName,
+                                 final String postalCode,
+                                 final String city)
+    {
         if(!isValidUnitNumber(unitNumber))
         {
             throw new IllegalArgumentException("Invalid unit number: " + unitNumber);
@@ -81,14 +132,9 @@ public class Address
         {
             throw new IllegalArgumentException("Invalid city: " + city);
         }
-
-        this.unitNumber = unitNumber;
-        this.streetNumber = streetNumber;
-        this.streetName = streetName;
-        this.postalCode = postalCode;
-        this.city = city;
     }
 
+
     /**
      * @return unit number
      */
@@ -134,6 +180,31 @@ public class Address
     }
 
 
+    /**
+     * Normalizes a postal code, or the beginning of one, so that postal codes can be compared and searched
+     * by prefix: whitespace is removed and letters are upper-cased, so "v7n 2m8" becomes "V7N2M8".
+     *
+     * @param postalCode The postal code or postal code prefix to normalize.
+     * @return The normalized postal code.
+     */
+    public static String normalizePostalCode(final String postalCode)
+    {
+        final StringBuilder normalizedPostalCode;
+
+        normalizedPostalCode = new StringBuilder(postalCode.length());
+
+        for(int i = 0; i < postalCode.length(); i++)
+        {
+            if(!Character.isWhitespace(postalCode.charAt(i)))
+            {
+                normalizedPostalCode.append(Character.toUpperCase(postalCode.charAt(i)));
+            }
+        }
+
+        return normalizedPostalCode.toString();
+    }
+
+
     /**
      * Validates if the provided city is not null, not empty, and has a length between 1 and 30 characters.
      *
@@ -197,24 +268,41 @@ public class Address
 
     /**
      * Format the address to be printed as a string including all the details.
+     * The address is immutable, so the string is built on the first call and the same string is returned after.
      * @return string address for print details.
      */
     public String getFullAddress()
     {
-        final String fullAddress;
+        if(fullAddress == null)
+        {
+            fullAddress = formatFullAddress();
+        }
+
+        return fullAddress;
+    }
+
+
+    /**
+     * Builds the full address string, title-casing the street name and city and upper-casing the postal code.
+     *
+     * @return string address for print details.
+     */
+    private String formatFullAddress()
+    {
+        final String formattedAddress;
 
         if(unitNumber != null)
         {
-            fullAddress = "unit #" + unitNumber + " at " + streetNumber + " " + getStringTitleCase(streetName) + " " +
-                    postalCode.toUpperCase() + " in " + getStringTitleCase(city);
+            formattedAddress = "unit #" + unitNumber + " at " + streetNumber + " " + getStringTitleCase(streetName) +
+                    " " + postalCode.toUpperCase() + " in " + getStringTitleCase(city);
         }
         else
         {
-            fullAddress = streetNumber + " " + getStringTitleCase(streetName) + " " +
+            formattedAddress = streetNumber + " " + getStringTitleCase(streetName) + " " +
                     postalCode.toUpperCase() + " in " + getStringTitleCase(city);
         }
 
-        return fullAddress;
+        return formattedAddress;
     }
 
 
@@ -236,7 +324,7 @@ public class Address
         StringBuilder titleCase;
 
         capitalizeNext = true;
-        titleCase = new StringBuilder();
+        titleCase = new StringBuilder(string.length());
 
         for(final char c : string.toCharArray())
         {
@@ -1,7 +1,8 @@
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * AddressReader of BCIT
@@ -11,12 +12,7 @@ import java.util.Scanner;
  */
 public class AddressReader
 {
-    private static final String SPLIT_CHARACTER = "\\|";
-    private static final int UNIT_NUMBER = 0;
-    private static final int STREET_NUMBER = 1;
-    private static final int STREET_NAME = 2;
-    private static final int POSTAL_CODE = 3;
-    private static final int CITY = 4;
+    private static final ThreadLocal<RecordTokenizer> TOKENIZER = ThreadLocal.withInitial(RecordTokenizer::new);
 
     /**
      * Reads address data from the given file and returns an ArrayList of Address objects.
@@ -24,49 +20,86 @@ public class AddressReader
      * @param file the File object representing the file to read
      * @return an ArrayList of Address objects read from the file
      * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be read
      */
-    public static ArrayList<Address> readAddressData(final File file) throws FileNotFoundException
+    public static ArrayList<Address> readAddressData(final File file) throws IOException
     {
         final ArrayList<Address> addresses;
-        final Scanner scanner;
-        String addressString;
-        Address address;
 
-        if(!file.isFile())
-        {
-            throw new FileNotFoundException("File Not Found");
-        }
-
-        scanner = new Scanner(file);
         addresses = new ArrayList<>();
+        readAddressData(file, addresses::add);
 
-        while(scanner.hasNext())
-        {
-            addressString = scanner.nextLine();
-            address = getAddressFromString(addressString);
+        return addresses;
+    }
 
-            addresses.add(address);
-        }
 
-        return addresses;
+    /**
+     * Reads address data from the given file and passes each Address to the consumer as soon as it is parsed,
+     * so the addresses never have to be held in memory all at once. The addresses of one call share their
+     * street name, postal code and city strings through a StringPool that is dropped when the call returns.
+     *
+     * @param file     the File object representing the file to read
+     * @param consumer receives each Address in file order
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be read
+     */
+    public static void readAddressData(final File file,
+                                       final Consumer<Address> consumer) throws IOException
+    {
+        final StringPool addressStrings;
+
+        addressStrings = new StringPool();
+        LineReader.forEachLine(file, addressString -> consumer.accept(getAddressFromString(addressString,
+                                                                                            addressStrings)));
     }
 
 
     /**
      * Parses a string representing an address in the format "unitNumber|streetNumber|streetName|postalCode|city"
-     * and returns an Address object.
+     * and returns an Address object. The fields are read in a single pass without splitting the string.
      *
      * @param addressString the string representing the address in the format "unitNumber|streetNumber|streetName|postalCode|city"
      * @return an Address object parsed from the input string
      */
-    private static Address getAddressFromString(final String addressString)
+    public static Address getAddressFromString(final String addressString)
+    {
+        return getAddressFromString(addressString, null);
+    }
+
+
+    /**
+     * Parses an address like getAddressFromString, taking the street name, postal code and city from a pool.
+     *
+     * @param addressString  the string representing the address in the format "unitNumber|streetNumber|streetName|postalCode|city"
+     * @param addressStrings the pool shared by the addresses of one load (nullable, in which case nothing is pooled)
+     * @return an Address object parsed from the input string
+     */
+    public static Address getAddressFromString(final String addressString,
+                                               final StringPool addressStrings)
+    {
+        return getAddressFromFields(TOKENIZER.get().reset(addressString), addressStrings);
+    }
+
+
+    /**
+     * Parses an address from the next five fields of a record, in the same layout getAddressFromString accepts.
+     * This lets records that carry other fields after the address, such as joined listings, be parsed in one pass.
+     * The street name, postal code and city are canonicalized through the given pool, so every address of a load
+     * on the same street or in the same city refers to the same String instances.
+     *
+     * @param tokenizer      the tokenizer positioned just before the unit number field
+     * @param addressStrings the pool shared by the addresses of one load (nullable, in which case nothing is pooled)
+     * @return an Address object parsed from the fields
+     */
+    public static Address getAddressFromFields(final RecordTokenizer tokenizer,
+                                               final StringPool addressStrings)
     {
-        String[] addressArray;
-        Address address;
+        final Address address;
 
-        addressArray = addressString.split(SPLIT_CHARACTER);
-        address = new Address(addressArray[UNIT_NUMBER], Integer.parseInt(addressArray[STREET_NUMBER]),
-                              addressArray[STREET_NAME], addressArray[POSTAL_CODE], addressArray[CITY]);
+        address = new Address(tokenizer.nextString(), tokenizer.nextInt(),
+                              tokenizer.nextPooledString(addressStrings),
+                              tokenizer.nextPooledString(addressStrings),
+                              tokenizer.nextPooledString(addressStrings));
 
         return address;
     }
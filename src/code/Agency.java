@@ -1,4 +1,9 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.function.Consumer;
 
 /**
  * Agency of BCIT
@@ -6,13 +11,29 @@ import java.util.*;
  * @author Andres Arevalo
  * @version 1.0
  */
-public class Agency
+public class Agency implements PropertyStore, Closeable
 {
     private final String name;
-    private final Map<String, Property> properties;
+    private final PackedIdMap<Property> properties;
+    private final PriceIndex propertiesByPrice;
+    private final Map<String, Map<String, Property>> propertiesByStreet;
+    private final NavigableMap<String, Property> propertiesByPostalCode;
+    private final Map<String, Map<String, Property>> propertiesByCity;
+    private final Map<String, PriceIndex> propertiesByType;
+    private final List<Map<String, Residence>> residencesByBedrooms;
+    private final NavigableMap<RangeKey, Retail> retailsBySquareFootage;
+    private final FeatureIndex featureIndex;
+    private final PriceChangeListener priceIndexUpdater;
+    private LazyPropertyIndex lazyProperties;
 
     public static final int MAX_NAME_LENGTH = 30;
 
+    private static final char POSTAL_CODE_KEY_SEPARATOR = '\0';
+
+    private static final Comparator<Property> PRICE_ORDER =
+            Comparator.comparingDouble((Property property) -> property.getPriceUsd() + 0.0)
+                      .thenComparing(Property::getPropertyId);
+
     /**
      * Represents a real estate agency with a specified name and a collection of properties.
      * <p>
@@ -35,7 +56,21 @@ public class Agency
         }
 
         this.name = name;
-        this.properties = new HashMap<>();
+        this.properties = new PackedIdMap<>();
+        this.propertiesByPrice = new PriceIndex();
+        this.propertiesByStreet = new HashMap<>();
+        this.propertiesByPostalCode = new TreeMap<>();
+        this.propertiesByCity = new HashMap<>();
+        this.propertiesByType = new HashMap<>();
+        this.residencesByBedrooms = new ArrayList<>(Residence.MAX_NUMBER_OF_BEDROOMS + 1);
+        this.retailsBySquareFootage = new TreeMap<>();
+        this.featureIndex = new FeatureIndex();
+        this.priceIndexUpdater = this::updatePriceIndex;
+
+        for(int bedrooms = 0; bedrooms <= Residence.MAX_NUMBER_OF_BEDROOMS; bedrooms++)
+        {
+            residencesByBedrooms.add(new HashMap<>());
+        }
     }
 
     /**
@@ -54,11 +89,17 @@ public class Agency
      *
      * @param property The property to be added.
      */
+    @Override
     public void addProperty(final Property property)
     {
         if(property != null)
         {
-            properties.put(property.getPropertyId(), property);
+            if(lazyProperties != null)
+            {
+                lazyProperties.forget(property.getPropertyId());
+            }
+
+            putProperty(property);
         }
     }
 
@@ -67,369 +108,1605 @@ public class Agency
      *
      * @param propertyId The property ID of the property to be removed.
      */
+    @Override
     public void removeProperty(final String propertyId)
     {
+        final Property removedProperty;
+
         if(propertyId != null)
         {
-            properties.remove(propertyId);
+            if(lazyProperties != null)
+            {
+                lazyProperties.forget(propertyId);
+            }
+
+            removedProperty = properties.remove(propertyId);
+
+            if(removedProperty != null)
+            {
+                unindexProperty(removedProperty);
+            }
         }
     }
 
     /**
      * Retrieves a property from the agency's collection based on its property ID.
+     * A property that is still only indexed lazily is materialized and kept by the agency.
      *
      * @param propertyId The property ID of the desired property.
      * @return The property with the specified property ID, or null if not found.
      */
+    @Override
     public Property getProperty(final String propertyId)
     {
-        return properties.getOrDefault(propertyId, null);
-    }
+        final Property property;
+
+        property = properties.get(propertyId);
 
+        if(property != null || lazyProperties == null || !lazyProperties.contains(propertyId))
+        {
+            return property;
+        }
+
+        try
+        {
+            return putProperty(lazyProperties.materialize(propertyId));
+        }
+        catch(IOException ioException)
+        {
+            throw new UncheckedIOException(ioException);
+        }
+    }
 
     /**
-     * Calculates and returns the total value of all properties in the agency in USD.
+     * Adds the properties of a lazy index to the agency without building them. Each property is built from
+     * its files the first time getProperty asks for it; any other query builds all the remaining ones first.
+     * Properties added or removed later with the same property ID replace the indexed ones.
+     * If another lazy index was added before, its remaining properties are built first.
+     * The agency takes over the index: its files are closed once every property is built, or by close().
      *
-     * @return The total value of all properties in the agency.
+     * @param index The lazy index over the address and property files.
      */
-    public double getTotalPropertyValues()
+    public void addLazyProperties(final LazyPropertyIndex index)
     {
-        double totalAmountUsd;
-        totalAmountUsd = 0;
+        materializeLazyProperties();
+        lazyProperties = index;
+    }
 
-        for(Property property : properties.values())
+    /**
+     * Builds every property that is still only indexed lazily and adds it to the agency's collection.
+     */
+    private void materializeLazyProperties()
+    {
+        if(lazyProperties == null)
         {
-            totalAmountUsd += property.getPriceUsd();
+            return;
         }
 
-        return totalAmountUsd;
+        try
+        {
+            lazyProperties.materializeAll(this::putProperty);
+            lazyProperties = null;
+        }
+        catch(IOException ioException)
+        {
+            throw new UncheckedIOException(ioException);
+        }
     }
 
     /**
-     * Retrieves a list of properties in the agency that have swimming pools.
+     * Closes the files of the lazy index added with addLazyProperties, if it is still open.
+     * Properties that were only indexed and not built yet are dropped from the agency.
      *
-     * @return A list of properties with swimming pools, or null if none found.
+     * @throws IOException if a file cannot be closed
      */
-    public ArrayList<Residence> getPropertiesWithPools()
+    @Override
+    public void close() throws IOException
     {
-        final ArrayList<Residence> propertiesWithPools;
-        final Set<String> keys;
-        Residence residenceProperty;
+        final LazyPropertyIndex index;
 
-        propertiesWithPools = new ArrayList<>();
-        keys = properties.keySet();
+        index = lazyProperties;
+        lazyProperties = null;
 
-        for(final String key : keys)
+        if(index != null)
         {
-            if(properties.get(key) instanceof Residence)
-            {
-                residenceProperty = (Residence) properties.get(key);
+            index.close();
+        }
+    }
+
+    /**
+     * Stores a materialized property in the agency's collection and its indexes,
+     * replacing a property with the same property ID.
+     *
+     * @param property The property to store.
+     * @return The stored property.
+     */
+    private Property putProperty(final Property property)
+    {
+        final Property replacedProperty;
+
+        if(property != null)
+        {
+            replacedProperty = properties.put(property.getPropertyId(), property);
 
-                if(residenceProperty.hasSwimmingPool())
+            if(replacedProperty != property)
+            {
+                if(replacedProperty != null)
                 {
-                    propertiesWithPools.add(residenceProperty);
+                    unindexProperty(replacedProperty);
                 }
+
+                indexProperty(property);
             }
         }
 
-        if(!propertiesWithPools.isEmpty())
+        return property;
+    }
+
+    /**
+     * Adds a property to the indexes and starts following its price changes.
+     *
+     * @param property The property to index.
+     */
+    private void indexProperty(final Property property)
+    {
+        propertiesByPrice.add(property);
+        propertiesByType.computeIfAbsent(foldCase(property.getType()), type -> new PriceIndex()).add(property);
+        addToGroup(propertiesByStreet, foldCase(property.getAddress().getStreetName()), property);
+        addToGroup(propertiesByCity, foldCase(property.getAddress().getCity()), property);
+        propertiesByPostalCode.put(postalCodeKey(property), property);
+
+        if(property instanceof Residence)
+        {
+            residencesByBedrooms.get(((Residence) property).getNumberOfBedrooms())
+                                .put(property.getPropertyId(), (Residence) property);
+        }
+        else if(property instanceof Retail)
         {
-            return propertiesWithPools;
+            retailsBySquareFootage.put(new RangeKey(((Retail) property).getSquareFootage(), property.getPropertyId()),
+                                       (Retail) property);
         }
 
-        return null;
+        featureIndex.add(property);
+        property.addPriceChangeListener(priceIndexUpdater);
     }
 
     /**
-     * Retrieves an array of properties within a specified price range (inclusive).
+     * Removes a property from the indexes and stops following its price changes.
      *
-     * @param minUsd The minimum price in USD.
-     * @param maxUsd The maximum price in USD.
-     * @return An array of properties within the specified price range, or null if none found.
+     * @param property The property to remove from the indexes.
      */
-    public Property[] getPropertiesBetween(final double minUsd,
-                                           final double maxUsd)
+    private void unindexProperty(final Property property)
     {
-        final List<Property> propertiesBetween;
-        double propertyPriceUsd;
+        final String type;
+        final PriceIndex propertiesOfType;
 
-        propertiesBetween = new ArrayList<>();
+        propertiesByPrice.remove(property);
 
-        for(Property property : properties.values())
-        {
-            propertyPriceUsd = property.getPriceUsd();
+        type = foldCase(property.getType());
+        propertiesOfType = propertiesByType.get(type);
+        propertiesOfType.remove(property);
 
-            if(propertyPriceUsd >= minUsd && propertyPriceUsd <= maxUsd)
-            {
-                propertiesBetween.add(property);
-            }
+        if(propertiesOfType.size() == 0)
+        {
+            propertiesByType.remove(type);
         }
 
-        if(propertiesBetween.isEmpty())
+        removeFromGroup(propertiesByStreet, foldCase(property.getAddress().getStreetName()), property);
+        removeFromGroup(propertiesByCity, foldCase(property.getAddress().getCity()), property);
+        propertiesByPostalCode.remove(postalCodeKey(property));
+
+        if(property instanceof Residence)
         {
-            return null;
+            residencesByBedrooms.get(((Residence) property).getNumberOfBedrooms()).remove(property.getPropertyId());
+        }
+        else if(property instanceof Retail)
+        {
+            retailsBySquareFootage.remove(new RangeKey(((Retail) property).getSquareFootage(),
+                                                       property.getPropertyId()));
         }
 
-        return propertiesBetween.toArray(new Property[0]);
+        featureIndex.remove(property);
+        property.removePriceChangeListener(priceIndexUpdater);
     }
 
     /**
-     * Retrieves a list of addresses for properties on a specific street.
+     * Adds a property to its group in an index that groups properties by a key.
      *
-     * @param streetName The name of the street.
-     * @return A list of addresses for properties on the specified street, or null if none found.
+     * @param groups   The index.
+     * @param key      The key of the group.
+     * @param property The property to add.
      */
-    public ArrayList<Address> getPropertiesOn(final String streetName)
+    private static void addToGroup(final Map<String, Map<String, Property>> groups,
+                                   final String key,
+                                   final Property property)
     {
-        final ArrayList<Address> addressesOn;
-        Address propertyAddress;
-
-        addressesOn = new ArrayList<>();
+        groups.computeIfAbsent(key, groupKey -> new HashMap<>()).put(property.getPropertyId(), property);
+    }
 
-        for(Property property : properties.values())
-        {
-            propertyAddress = property.getAddress();
+    /**
+     * Removes a property from its group in an index that groups properties by a key,
+     * dropping the group once it is empty.
+     *
+     * @param groups   The index.
+     * @param key      The key of the group.
+     * @param property The property to remove.
+     */
+    private static void removeFromGroup(final Map<String, Map<String, Property>> groups,
+                                        final String key,
+                                        final Property property)
+    {
+        final Map<String, Property> group;
 
-            if(propertyAddress.getStreetName().equalsIgnoreCase(streetName))
-            {
-                addressesOn.add(propertyAddress);
-            }
-        }
+        group = groups.get(key);
+        group.remove(property.getPropertyId());
 
-        if(addressesOn.isEmpty())
+        if(group.isEmpty())
         {
-            return null;
+            groups.remove(key);
         }
+    }
 
-        return addressesOn;
+    /**
+     * Builds the key of a property in the postal code index: its normalized postal code, a separator that sorts
+     * before any character of a postal code, and its property ID. Every property in a postal area is then in
+     * one contiguous range of the index.
+     *
+     * @param property The property.
+     * @return The key of the property in the postal code index.
+     */
+    private static String postalCodeKey(final Property property)
+    {
+        return Address.normalizePostalCode(property.getAddress().getPostalCode()) + POSTAL_CODE_KEY_SEPARATOR +
+                property.getPropertyId();
     }
 
     /**
-     * Retrieves a map of properties with a number of bedrooms within a specified range.
-     * The key is the propertyId and the value is the property.
+     * Reads the range of the postal code index whose keys start with a normalized postal code prefix.
      *
-     * @param minBedrooms The minimum number of bedrooms.
-     * @param maxBedrooms The maximum number of bedrooms.
-     * @return A map of properties with the specified number of bedrooms, or null if none found.
+     * @param postalCodePrefix The normalized postal code prefix.
+     * @return A view of the properties in the postal area, ordered by postal code.
      */
-    public HashMap<String, Residence> getPropertiesWithBedrooms(final int minBedrooms,
-                                                               final int maxBedrooms)
+    private Collection<Property> propertiesInPostalArea(final String postalCodePrefix)
     {
-        final HashMap<String, Residence> propertiesWithBedrooms;
-        propertiesWithBedrooms = new HashMap<>();
-        Residence residenceProperty;
+        final StringBuilder endOfRange;
 
-        for(Property property : properties.values())
-        {
-            if(property instanceof Residence)
-            {
-                residenceProperty = (Residence) property;
+        endOfRange = new StringBuilder(postalCodePrefix);
 
-                if(residenceProperty.getNumberOfBedrooms() >= minBedrooms &&
-                        residenceProperty.getNumberOfBedrooms() <= maxBedrooms)
-                {
-                    propertiesWithBedrooms.put(property.getPropertyId(), residenceProperty);
-                }
-            }
+        while(endOfRange.length() > 0 && endOfRange.charAt(endOfRange.length() - 1) == Character.MAX_VALUE)
+        {
+            endOfRange.setLength(endOfRange.length() - 1);
         }
 
-        if(propertiesWithBedrooms.isEmpty())
+        if(endOfRange.length() == 0)
         {
-            return null;
+            return propertiesByPostalCode.tailMap(postalCodePrefix, true).values();
         }
 
-        return propertiesWithBedrooms;
+        endOfRange.setCharAt(endOfRange.length() - 1, (char) (endOfRange.charAt(endOfRange.length() - 1) + 1));
+
+        return propertiesByPostalCode.subMap(postalCodePrefix, true, endOfRange.toString(), false).values();
     }
 
     /**
-     * Retrieves a list of property details of a specific type.
+     * Normalizes a street name or property type for the case-insensitive indexes so that two strings
+     * map to the same key exactly when String.equalsIgnoreCase considers them equal.
      *
-     * @param propertyType The type of property.
-     * @return A list of property details for properties of the specified type, or null if none found.
+     * @param text The string to normalize.
+     * @return The key of the string in a case-insensitive index.
      */
-    public ArrayList<Property> getPropertiesOfType(final String propertyType)
+    private static String foldCase(final String text)
     {
-        final ArrayList<Property> propertiesOfType;
+        final StringBuilder foldedText;
 
-        propertiesOfType = new ArrayList<>();
+        foldedText = new StringBuilder(text.length());
 
-        for(Property property : properties.values())
+        for(int i = 0; i < text.length(); i++)
         {
-            if(property.getType().equalsIgnoreCase(propertyType))
-            {
-                propertiesOfType.add(property);
-            }
+            foldedText.append(Character.toLowerCase(Character.toUpperCase(text.charAt(i))));
         }
 
-        return propertiesOfType;
+        return foldedText.toString();
     }
 
     /**
-     * Returns an ArrayList of Commercial properties that have a loading dock available.
+     * Moves a property whose price was changed with setPriceUsd to its new place in the price indexes,
+     * which also updates the price totals.
      *
-     * @return an ArrayList of Commercial properties with loading docks, or null if none are found
+     * @param property    The property whose price changed.
+     * @param oldPriceUsd The price the property was indexed under.
      */
-    public ArrayList<Commercial> getPropertiesWithLoadingDocks()
+    private void updatePriceIndex(final Property property,
+                                  final double oldPriceUsd)
     {
-        final ArrayList<Commercial> propertiesWithLoadingDock;
-        Commercial commercialProperty;
+        propertiesByPrice.move(property, oldPriceUsd);
+        propertiesByType.get(foldCase(property.getType())).move(property, oldPriceUsd);
+    }
 
-        propertiesWithLoadingDock = new ArrayList<>();
 
-        for(Property property : properties.values())
-        {
-            if(property instanceof  Commercial)
-            {
-                commercialProperty = (Commercial) property;
+    /**
+     * Writes every property of the agency to a binary snapshot file, see AgencySnapshot.
+     *
+     * @param file The file to write the snapshot to.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void saveSnapshot(final File file) throws IOException
+    {
+        saveSnapshot(file, Collections.emptyList());
+    }
 
-                if(commercialProperty.hasLoadingDock())
-                {
-                    propertiesWithLoadingDock.add(commercialProperty);
-                }
-            }
-        }
+    /**
+     * Writes every property of the agency to a binary snapshot file that records the data files
+     * the properties were loaded from, see AgencySnapshot.isCurrent.
+     *
+     * @param file    The file to write the snapshot to.
+     * @param sources The stamps of the data files, taken before they were loaded.
+     * @throws IOException if the snapshot cannot be written.
+     */
+    public void saveSnapshot(final File file,
+                             final List<AgencySnapshot.SourceStamp> sources) throws IOException
+    {
+        materializeLazyProperties();
+        AgencySnapshot.write(file, propertiesByPrice.values(), sources);
+    }
 
-        if(propertiesWithLoadingDock.isEmpty())
-        {
-            return null;
-        }
+    /**
+     * Adds every property stored in a binary snapshot file to the agency's collection, see AgencySnapshot.
+     * The properties are restored without parsing or validating them again.
+     *
+     * @param file The snapshot file to read.
+     * @throws IOException if the snapshot cannot be read or has an unsupported version.
+     */
+    public void loadSnapshot(final File file) throws IOException
+    {
+        AgencySnapshot.read(file, this::addProperty);
+    }
+
+    /**
+     * Returns the total value of all properties in the agency in USD.
+     * The total is kept up to date as properties are added, removed and repriced, so it is not summed again.
+     *
+     * @return The total value of all properties in the agency.
+     */
+    @Override
+    public double getTotalPropertyValues()
+    {
+        materializeLazyProperties();
 
-        return propertiesWithLoadingDock;
+        return propertiesByPrice.getTotalUsd();
     }
 
+    /**
+     * Returns the count, total, mean, min and max price of all properties in the agency.
+     *
+     * @return The price statistics of the agency, or null if it has no properties.
+     */
+    @Override
+    public PriceStatistics getPriceStatistics()
+    {
+        materializeLazyProperties();
+
+        return propertiesByPrice.getStatistics();
+    }
 
     /**
-     * Returns an ArrayList of Commercial properties that have highway access.
+     * Returns the count, total, mean, min and max price of the properties of a specific type.
+     * The type is matched ignoring case.
      *
-     * @return an ArrayList of Commercial properties with highway access, or null if none are found
+     * @param propertyType The type of property.
+     * @return The price statistics of the properties of the specified type, or null if none found.
      */
-    public ArrayList<Commercial> getPropertiesWithHighwayAccess()
+    @Override
+    public PriceStatistics getPriceStatistics(final String propertyType)
     {
-        final ArrayList<Commercial> propertiesWithHighwayAccess;
-        Commercial commercialProperty;
+        final PriceIndex propertiesOfType;
 
-        propertiesWithHighwayAccess = new ArrayList<>();
+        materializeLazyProperties();
 
-        for(Property property : properties.values())
+        if(propertyType == null)
         {
-            if(property instanceof  Commercial)
-            {
-                commercialProperty = (Commercial) property;
-
-                if(commercialProperty.hasHighwayAccess())
-                {
-                    propertiesWithHighwayAccess.add(commercialProperty);
-                }
-            }
+            return null;
         }
 
-        if(propertiesWithHighwayAccess.isEmpty())
+        propertiesOfType = propertiesByType.get(foldCase(propertyType));
+
+        if(propertiesOfType == null)
         {
             return null;
         }
 
-        return propertiesWithHighwayAccess;
+        return propertiesOfType.getStatistics();
     }
 
+    /**
+     * Retrieves a list of properties in the agency that have swimming pools.
+     *
+     * @return A list of properties with swimming pools, or null if none found.
+     */
+    @Override
+    public ArrayList<Residence> getPropertiesWithPools()
+    {
+        return getPropertiesWith(PropertyFeature.SWIMMING_POOL, Residence.class);
+    }
 
     /**
-     * Returns an ArrayList of Retail properties where the square footage is at least the specified value.
+     * Retrieves an array of properties within a specified price range (inclusive), ordered by price.
+     * The range is read from the price index, so only the matching properties are visited.
      *
-     * @param squareFootage the minimum square footage required
-     * @return an ArrayList of Retail properties meeting the square footage criteria, or null if none are found
+     * @param minUsd The minimum price in USD.
+     * @param maxUsd The maximum price in USD.
+     * @return An array of properties within the specified price range, or null if none found.
      */
-    public ArrayList<Retail> getPropertiesSquareFootage(int squareFootage)
+    @Override
+    public Property[] getPropertiesBetween(final double minUsd,
+                                           final double maxUsd)
     {
-        final ArrayList<Retail> propertiesWithSquareFootage;
-        Retail retailProperty;
+        final Collection<Property> propertiesBetween;
 
-        propertiesWithSquareFootage = new ArrayList<>();
+        materializeLazyProperties();
 
-        for(Property property : properties.values())
+        propertiesBetween = propertiesByPrice.between(minUsd, maxUsd);
+
+        if(propertiesBetween.isEmpty())
         {
-            if(property instanceof  Retail)
-            {
-                retailProperty = (Retail) property;
+            return null;
+        }
 
-                if(retailProperty.getSquareFootage() >= squareFootage)
-                {
-                    propertiesWithSquareFootage.add(retailProperty);
-                }
-            }
+        return propertiesBetween.toArray(new Property[0]);
+    }
+
+    /**
+     * Retrieves a list of addresses for properties on a specific street.
+     * The street name is matched ignoring case, through the street index.
+     *
+     * @param streetName The name of the street.
+     * @return A list of addresses for properties on the specified street, or null if none found.
+     */
+    @Override
+    public ArrayList<Address> getPropertiesOn(final String streetName)
+    {
+        final ArrayList<Address> addressesOn;
+        final Map<String, Property> propertiesOnStreet;
+
+        materializeLazyProperties();
+
+        if(streetName == null)
+        {
+            return null;
         }
 
-        if(propertiesWithSquareFootage.isEmpty())
+        propertiesOnStreet = propertiesByStreet.get(foldCase(streetName));
+
+        if(propertiesOnStreet == null)
         {
             return null;
         }
 
-        return propertiesWithSquareFootage;
+        addressesOn = new ArrayList<>(propertiesOnStreet.size());
+
+        for(final Property property : propertiesOnStreet.values())
+        {
+            addressesOn.add(property.getAddress());
+        }
+
+        return addressesOn;
     }
 
     /**
-     * Returns an ArrayList of Retail properties where customer parking is available.
+     * Retrieves the properties whose postal code starts with a prefix, such as "V7N" for one area.
+     * Whitespace and case are ignored. The area is read from the postal code index.
      *
-     * @return an ArrayList of Retail properties with customer parking, or null if none are found
+     * @param postalCodePrefix The beginning of the postal code.
+     * @return A list of the properties in the postal area, ordered by postal code, or null if none found.
      */
-    public ArrayList<Retail> getPropertiesWithCustomerParking()
+    @Override
+    public ArrayList<Property> getPropertiesInPostalArea(final String postalCodePrefix)
     {
-        final ArrayList<Retail> propertiesWithCustomerParking;
-        Retail retailProperty;
+        final Collection<Property> propertiesInArea;
 
-        propertiesWithCustomerParking = new ArrayList<>();
+        materializeLazyProperties();
 
-        for(Property property : properties.values())
+        if(postalCodePrefix == null)
         {
-            if(property instanceof  Retail)
-            {
-                retailProperty = (Retail) property;
-
-                if(retailProperty.hasCustomerParking())
-                {
-                    propertiesWithCustomerParking.add(retailProperty);
-                }
-            }
+            return null;
         }
 
-        if(propertiesWithCustomerParking.isEmpty())
+        propertiesInArea = propertiesInPostalArea(Address.normalizePostalCode(postalCodePrefix));
+
+        if(propertiesInArea.isEmpty())
         {
             return null;
         }
 
-        return propertiesWithCustomerParking;
+        return new ArrayList<>(propertiesInArea);
     }
 
-
     /**
-     * Returns an ArrayList of Residence properties that are in a strata.
+     * Retrieves the properties in a city, matched ignoring case through the city index.
      *
-     * @return an ArrayList of Residence properties in a strata, or null if none are found
+     * @param city The name of the city.
+     * @return A list of the properties in the city, or null if none found.
      */
-    public ArrayList<Residence> getPropertiesWithStrata()
+    @Override
+    public ArrayList<Property> getPropertiesInCity(final String city)
     {
-        final ArrayList<Residence> propertiesWithStrata;
-        Residence residenceProperty;
+        final Map<String, Property> propertiesInCity;
 
-        propertiesWithStrata = new ArrayList<>();
+        materializeLazyProperties();
 
-        for(Property property : properties.values())
+        if(city == null)
         {
-            if(property instanceof  Residence)
-            {
-                residenceProperty = (Residence) property;
+            return null;
+        }
 
-                if(residenceProperty.hasStrata())
-                {
-                    propertiesWithStrata.add(residenceProperty);
-                }
-            }
+        propertiesInCity = propertiesByCity.get(foldCase(city));
+
+        if(propertiesInCity == null)
+        {
+            return null;
         }
 
-        if(propertiesWithStrata.isEmpty())
+        return new ArrayList<>(propertiesInCity.values());
+    }
+
+    /**
+     * Retrieves a map of properties with a number of bedrooms within a specified range.
+     * The key is the propertyId and the value is the property.
+     *
+     * @param minBedrooms The minimum number of bedrooms.
+     * @param maxBedrooms The maximum number of bedrooms.
+     * @return A map of properties with the specified number of bedrooms, or null if none found.
+     */
+    @Override
+    public HashMap<String, Residence> getPropertiesWithBedrooms(final int minBedrooms,
+                                                               final int maxBedrooms)
+    {
+        final Collection<Residence> residencesWithBedrooms;
+        final HashMap<String, Residence> propertiesWithBedrooms;
+
+        residencesWithBedrooms = getResidencesWithBedrooms(minBedrooms, maxBedrooms);
+
+        if(residencesWithBedrooms == null)
         {
             return null;
         }
 
-        return propertiesWithStrata;
+        propertiesWithBedrooms = new HashMap<>();
+
+        for(final Residence residenceProperty : residencesWithBedrooms)
+        {
+            propertiesWithBedrooms.put(residenceProperty.getPropertyId(), residenceProperty);
+        }
+
+        return propertiesWithBedrooms;
+    }
+
+    /**
+     * Retrieves the residences with a number of bedrooms within a specified range (inclusive).
+     * The result is a view over the bedroom buckets of the agency rather than a copy, so it costs nothing to build;
+     * it reflects later changes to the agency and must not be iterated while the agency is being changed.
+     *
+     * @param minBedrooms The minimum number of bedrooms.
+     * @param maxBedrooms The maximum number of bedrooms.
+     * @return A read-only view of the residences with the specified number of bedrooms, or null if none found.
+     */
+    public Collection<Residence> getResidencesWithBedrooms(final int minBedrooms,
+                                                           final int maxBedrooms)
+    {
+        final List<Collection<Residence>> buckets;
+
+        materializeLazyProperties();
+
+        buckets = new ArrayList<>();
+
+        for(int bedrooms = Math.max(minBedrooms, 0);
+            bedrooms <= Math.min(maxBedrooms, Residence.MAX_NUMBER_OF_BEDROOMS); bedrooms++)
+        {
+            if(!residencesByBedrooms.get(bedrooms).isEmpty())
+            {
+                buckets.add(residencesByBedrooms.get(bedrooms).values());
+            }
+        }
+
+        if(buckets.isEmpty())
+        {
+            return null;
+        }
+
+        return new ConcatenatedView<>(buckets);
+    }
+
+    /**
+     * Retrieves a list of property details of a specific type, ordered by price.
+     * The type is matched ignoring case, through the type index.
+     *
+     * @param propertyType The type of property.
+     * @return A list of property details for properties of the specified type, which is empty if none found.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesOfType(final String propertyType)
+    {
+        final PriceIndex propertiesOfType;
+
+        materializeLazyProperties();
+
+        if(propertyType == null)
+        {
+            return new ArrayList<>();
+        }
+
+        propertiesOfType = propertiesByType.get(foldCase(propertyType));
+
+        if(propertiesOfType == null)
+        {
+            return new ArrayList<>();
+        }
+
+        return new ArrayList<>(propertiesOfType.values());
+    }
+
+    /**
+     * Returns an ArrayList of Commercial properties that have a loading dock available.
+     *
+     * @return an ArrayList of Commercial properties with loading docks, or null if none are found
+     */
+    @Override
+    public ArrayList<Commercial> getPropertiesWithLoadingDocks()
+    {
+        return getPropertiesWith(PropertyFeature.LOADING_DOCK, Commercial.class);
+    }
+
+
+    /**
+     * Returns an ArrayList of Commercial properties that have highway access.
+     *
+     * @return an ArrayList of Commercial properties with highway access, or null if none are found
+     */
+    @Override
+    public ArrayList<Commercial> getPropertiesWithHighwayAccess()
+    {
+        return getPropertiesWith(PropertyFeature.HIGHWAY_ACCESS, Commercial.class);
+    }
+
+
+    /**
+     * Returns an ArrayList of Retail properties where the square footage is at least the specified value,
+     * ordered by square footage.
+     *
+     * @param squareFootage the minimum square footage required
+     * @return an ArrayList of Retail properties meeting the square footage criteria, or null if none are found
+     */
+    @Override
+    public ArrayList<Retail> getPropertiesSquareFootage(int squareFootage)
+    {
+        return getPropertiesSquareFootage(squareFootage, Integer.MAX_VALUE);
+    }
+
+    /**
+     * Returns an ArrayList of Retail properties where the square footage is within the specified range (inclusive),
+     * ordered by square footage. The range is read from the square footage index.
+     *
+     * @param minSquareFootage the minimum square footage required
+     * @param maxSquareFootage the maximum square footage allowed
+     * @return an ArrayList of Retail properties meeting the square footage criteria, or null if none are found
+     */
+    @Override
+    public ArrayList<Retail> getPropertiesSquareFootage(final int minSquareFootage,
+                                                       final int maxSquareFootage)
+    {
+        final Collection<Retail> propertiesWithSquareFootage;
+
+        materializeLazyProperties();
+
+        propertiesWithSquareFootage = retailsWithSquareFootage(minSquareFootage, maxSquareFootage);
+
+        if(propertiesWithSquareFootage.isEmpty())
+        {
+            return null;
+        }
+
+        return new ArrayList<>(propertiesWithSquareFootage);
+    }
+
+    /**
+     * Reads a square footage range from the square footage index.
+     *
+     * @param minSquareFootage the minimum square footage required
+     * @param maxSquareFootage the maximum square footage allowed
+     * @return a view of the Retail properties in the range, ordered by square footage; empty if the range is empty
+     */
+    private Collection<Retail> retailsWithSquareFootage(final int minSquareFootage,
+                                                        final int maxSquareFootage)
+    {
+        if(minSquareFootage > maxSquareFootage)
+        {
+            return Collections.emptyList();
+        }
+
+        return retailsBySquareFootage.subMap(RangeKey.lowest(minSquareFootage), true,
+                                             RangeKey.highest(maxSquareFootage), true).values();
+    }
+
+    /**
+     * Returns the Retail properties with the largest square footage, largest first.
+     * Only the returned properties are visited.
+     *
+     * @param count the maximum number of properties to return
+     * @return an ArrayList of at most count Retail properties, or null if the agency has none
+     * @throws IllegalArgumentException if count is less than 1
+     */
+    public ArrayList<Retail> getLargestRetails(final int count)
+    {
+        final ArrayList<Retail> largestRetails;
+
+        if(count < 1)
+        {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        materializeLazyProperties();
+
+        largestRetails = new ArrayList<>(Math.min(count, retailsBySquareFootage.size()));
+
+        for(final Retail retailProperty : retailsBySquareFootage.descendingMap().values())
+        {
+            if(largestRetails.size() == count)
+            {
+                break;
+            }
+
+            largestRetails.add(retailProperty);
+        }
+
+        if(largestRetails.isEmpty())
+        {
+            return null;
+        }
+
+        return largestRetails;
+    }
+
+    /**
+     * Returns an ArrayList of Retail properties where customer parking is available.
+     *
+     * @return an ArrayList of Retail properties with customer parking, or null if none are found
+     */
+    @Override
+    public ArrayList<Retail> getPropertiesWithCustomerParking()
+    {
+        return getPropertiesWith(PropertyFeature.CUSTOMER_PARKING, Retail.class);
+    }
+
+
+    /**
+     * Returns an ArrayList of Residence properties that are in a strata.
+     *
+     * @return an ArrayList of Residence properties in a strata, or null if none are found
+     */
+    @Override
+    public ArrayList<Residence> getPropertiesWithStrata()
+    {
+        return getPropertiesWith(PropertyFeature.STRATA, Residence.class);
+    }
+
+    /**
+     * Counts the properties that match a combination of features, see FeatureFilter.
+     *
+     * @param filter The combination of features to match.
+     * @return The number of matching properties.
+     */
+    @Override
+    public int countProperties(final FeatureFilter filter)
+    {
+        materializeLazyProperties();
+
+        return featureIndex.count(filter);
+    }
+
+    /**
+     * Retrieves the properties that match a combination of features, see FeatureFilter.
+     *
+     * @param filter The combination of features to match.
+     * @return A list of the matching properties, or null if none found.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesMatching(final FeatureFilter filter)
+    {
+        final ArrayList<Property> propertiesMatching;
+
+        materializeLazyProperties();
+
+        propertiesMatching = new ArrayList<>();
+        featureIndex.forEach(filter, propertiesMatching::add);
+
+        if(propertiesMatching.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesMatching;
+    }
+
+    /**
+     * Retrieves the property IDs of the properties that match a combination of features, see FeatureFilter.
+     *
+     * @param filter The combination of features to match.
+     * @return A list of the matching property IDs, or null if none found.
+     */
+    @Override
+    public ArrayList<String> getPropertyIdsMatching(final FeatureFilter filter)
+    {
+        final ArrayList<String> propertyIdsMatching;
+
+        materializeLazyProperties();
+
+        propertyIdsMatching = new ArrayList<>();
+        featureIndex.forEach(filter, property -> propertyIdsMatching.add(property.getPropertyId()));
+
+        if(propertyIdsMatching.isEmpty())
+        {
+            return null;
+        }
+
+        return propertyIdsMatching;
+    }
+
+    /**
+     * Passes every property within a price range (inclusive) to the consumer, ordered by price.
+     * Unlike getPropertiesBetween, no result collection is built. The consumer must not change the agency.
+     *
+     * @param minUsd   The minimum price in USD.
+     * @param maxUsd   The maximum price in USD.
+     * @param consumer Receives each property within the price range.
+     * @return The number of properties passed to the consumer.
+     */
+    public int forEachPropertyBetween(final double minUsd,
+                                      final double maxUsd,
+                                      final Consumer<? super Property> consumer)
+    {
+        materializeLazyProperties();
+
+        return forEach(propertiesByPrice.between(minUsd, maxUsd), consumer);
+    }
+
+    /**
+     * Passes the address of every property on a street, matched ignoring case, to the consumer.
+     * Unlike getPropertiesOn, no result collection is built. The consumer must not change the agency.
+     *
+     * @param streetName The name of the street.
+     * @param consumer   Receives the address of each property on the street.
+     * @return The number of addresses passed to the consumer.
+     */
+    public int forEachPropertyOn(final String streetName,
+                                 final Consumer<? super Address> consumer)
+    {
+        final Map<String, Property> propertiesOnStreet;
+
+        materializeLazyProperties();
+
+        if(streetName == null)
+        {
+            return 0;
+        }
+
+        propertiesOnStreet = propertiesByStreet.get(foldCase(streetName));
+
+        if(propertiesOnStreet == null)
+        {
+            return 0;
+        }
+
+        for(final Property property : propertiesOnStreet.values())
+        {
+            consumer.accept(property.getAddress());
+        }
+
+        return propertiesOnStreet.size();
+    }
+
+    /**
+     * Passes every property whose postal code starts with a prefix to the consumer, ordered by postal code.
+     * Unlike getPropertiesInPostalArea, no result collection is built. The consumer must not change the agency.
+     *
+     * @param postalCodePrefix The beginning of the postal code; whitespace and case are ignored.
+     * @param consumer         Receives each property in the postal area.
+     * @return The number of properties passed to the consumer.
+     */
+    public int forEachPropertyInPostalArea(final String postalCodePrefix,
+                                           final Consumer<? super Property> consumer)
+    {
+        materializeLazyProperties();
+
+        if(postalCodePrefix == null)
+        {
+            return 0;
+        }
+
+        return forEach(propertiesInPostalArea(Address.normalizePostalCode(postalCodePrefix)), consumer);
+    }
+
+    /**
+     * Passes every property in a city, matched ignoring case, to the consumer.
+     * Unlike getPropertiesInCity, no result collection is built. The consumer must not change the agency.
+     *
+     * @param city     The name of the city.
+     * @param consumer Receives each property in the city.
+     * @return The number of properties passed to the consumer.
+     */
+    public int forEachPropertyInCity(final String city,
+                                     final Consumer<? super Property> consumer)
+    {
+        final Map<String, Property> propertiesInCity;
+
+        materializeLazyProperties();
+
+        if(city == null)
+        {
+            return 0;
+        }
+
+        propertiesInCity = propertiesByCity.get(foldCase(city));
+
+        if(propertiesInCity == null)
+        {
+            return 0;
+        }
+
+        return forEach(propertiesInCity.values(), consumer);
+    }
+
+    /**
+     * Passes every property of a type, matched ignoring case, to the consumer, ordered by price.
+     * Unlike getPropertiesOfType, no result collection is built. The consumer must not change the agency.
+     *
+     * @param propertyType The type of property.
+     * @param consumer     Receives each property of the type.
+     * @return The number of properties passed to the consumer.
+     */
+    public int forEachPropertyOfType(final String propertyType,
+                                     final Consumer<? super Property> consumer)
+    {
+        final PriceIndex propertiesOfType;
+
+        materializeLazyProperties();
+
+        if(propertyType == null)
+        {
+            return 0;
+        }
+
+        propertiesOfType = propertiesByType.get(foldCase(propertyType));
+
+        if(propertiesOfType == null)
+        {
+            return 0;
+        }
+
+        return forEach(propertiesOfType.values(), consumer);
+    }
+
+    /**
+     * Passes every residence with a number of bedrooms within a range (inclusive) to the consumer,
+     * bucket by bucket. Unlike getResidencesWithBedrooms, no view is built. The consumer must not change the agency.
+     *
+     * @param minBedrooms The minimum number of bedrooms.
+     * @param maxBedrooms The maximum number of bedrooms.
+     * @param consumer    Receives each residence with the number of bedrooms.
+     * @return The number of residences passed to the consumer.
+     */
+    public int forEachResidenceWithBedrooms(final int minBedrooms,
+                                            final int maxBedrooms,
+                                            final Consumer<? super Residence> consumer)
+    {
+        int count;
+
+        materializeLazyProperties();
+
+        count = 0;
+
+        for(int bedrooms = Math.max(minBedrooms, 0);
+            bedrooms <= Math.min(maxBedrooms, Residence.MAX_NUMBER_OF_BEDROOMS); bedrooms++)
+        {
+            count += forEach(residencesByBedrooms.get(bedrooms).values(), consumer);
+        }
+
+        return count;
+    }
+
+    /**
+     * Passes every Retail property with a square footage within a range (inclusive) to the consumer,
+     * ordered by square footage. Unlike getPropertiesSquareFootage, no result collection is built.
+     * The consumer must not change the agency.
+     *
+     * @param minSquareFootage The minimum square footage required.
+     * @param maxSquareFootage The maximum square footage allowed.
+     * @param consumer         Receives each Retail property in the range.
+     * @return The number of Retail properties passed to the consumer.
+     */
+    public int forEachRetailWithSquareFootage(final int minSquareFootage,
+                                              final int maxSquareFootage,
+                                              final Consumer<? super Retail> consumer)
+    {
+        materializeLazyProperties();
+
+        return forEach(retailsWithSquareFootage(minSquareFootage, maxSquareFootage), consumer);
+    }
+
+    /**
+     * Passes every property having a feature to the consumer, reading the bitmap of the feature in place.
+     * Unlike getPropertiesWithPools and the other feature queries, no result collection is built.
+     * The consumer must not change the agency.
+     *
+     * @param feature  The feature the properties must have.
+     * @param consumer Receives each property having the feature.
+     * @return The number of properties passed to the consumer.
+     */
+    public int forEachPropertyWith(final PropertyFeature feature,
+                                   final Consumer<? super Property> consumer)
+    {
+        materializeLazyProperties();
+
+        return featureIndex.forEachWith(feature, consumer);
+    }
+
+    /**
+     * Passes every property that meets every criterion of a query to the consumer.
+     * The candidates are chosen as findProperties chooses them, but no result collection is built.
+     * The consumer must not change the agency.
+     *
+     * @param query    The criteria the properties must meet.
+     * @param consumer Receives each property meeting the criteria.
+     * @return The number of properties passed to the consumer.
+     */
+    public int forEachPropertyMatching(final PropertyQuery query,
+                                       final Consumer<? super Property> consumer)
+    {
+        int count;
+
+        materializeLazyProperties();
+
+        count = 0;
+
+        for(final Property property : planQuery(query).getCandidates())
+        {
+            if(query.matches(property))
+            {
+                consumer.accept(property);
+                count++;
+            }
+        }
+
+        return count;
+    }
+
+    /**
+     * Retrieves the properties that meet every criterion of a query, in a single pass.
+     * The candidates are read from the most selective index the query can use, and only they are checked
+     * against the remaining criteria.
+     *
+     * @param query The criteria the properties must meet.
+     * @return A list of the properties meeting the criteria, or null if none found.
+     */
+    @Override
+    public ArrayList<Property> findProperties(final PropertyQuery query)
+    {
+        final ArrayList<Property> propertiesFound;
+
+        materializeLazyProperties();
+
+        propertiesFound = new ArrayList<>();
+
+        for(final Property property : planQuery(query).getCandidates())
+        {
+            if(query.matches(property))
+            {
+                propertiesFound.add(property);
+            }
+        }
+
+        if(propertiesFound.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesFound;
+    }
+
+    /**
+     * Retrieves one page of the properties that meet every criterion of a query, ordered by price.
+     * When the query is answered from a price-ordered index, the page is read from where the cursor points
+     * and the scan stops as soon as the page is full; otherwise the candidates are passed through a heap
+     * bounded by the page size, so no more than one page is ever held.
+     *
+     * @param query    The criteria the properties must meet.
+     * @param after    The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The maximum number of properties on the page.
+     * @return The page, which is empty if no properties are left.
+     * @throws IllegalArgumentException if the page size is less than 1.
+     */
+    @Override
+    public PropertyPage findProperties(final PropertyQuery query,
+                                       final PageCursor after,
+                                       final int pageSize)
+    {
+        final QueryPlan plan;
+        final List<Property> results;
+
+        if(pageSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        materializeLazyProperties();
+
+        plan = planQuery(query);
+
+        if(plan.getOrderedCandidates() != null)
+        {
+            results = takeMatching(after == null ? plan.getOrderedCandidates().values() :
+                                           plan.getOrderedCandidates().tailMap(after.getLastKey(), false).values(),
+                                   query, pageSize + 1);
+        }
+        else
+        {
+            results = selectFirst(plan.getCandidates(), query, after, PRICE_ORDER, pageSize + 1);
+        }
+
+        return new PropertyPage(results, pageSize);
+    }
+
+    /**
+     * Retrieves the most expensive properties that meet every criterion of a query, most expensive first.
+     *
+     * @param query The criteria the properties must meet.
+     * @param count The maximum number of properties to return.
+     * @return A list of at most count properties, or null if none found.
+     * @throws IllegalArgumentException if count is less than 1.
+     */
+    @Override
+    public ArrayList<Property> findMostExpensive(final PropertyQuery query,
+                                                 final int count)
+    {
+        final QueryPlan plan;
+        final ArrayList<Property> mostExpensive;
+
+        if(count < 1)
+        {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        materializeLazyProperties();
+
+        plan = planQuery(query);
+
+        if(plan.getOrderedCandidates() != null)
+        {
+            mostExpensive = takeMatching(plan.getOrderedCandidates().descendingMap().values(), query, count);
+        }
+        else
+        {
+            mostExpensive = selectFirst(plan.getCandidates(), query, null, PRICE_ORDER.reversed(), count);
+        }
+
+        if(mostExpensive.isEmpty())
+        {
+            return null;
+        }
+
+        return mostExpensive;
+    }
+
+    /**
+     * Takes the first properties of an ordered sequence that meet every criterion of a query.
+     *
+     * @param candidates The ordered candidates.
+     * @param query      The criteria the properties must meet.
+     * @param count      The maximum number of properties to take.
+     * @return A list of at most count properties, in the order of the candidates.
+     */
+    private static ArrayList<Property> takeMatching(final Iterable<Property> candidates,
+                                                    final PropertyQuery query,
+                                                    final int count)
+    {
+        final ArrayList<Property> matching;
+
+        matching = new ArrayList<>();
+
+        for(final Property property : candidates)
+        {
+            if(matching.size() == count)
+            {
+                break;
+            }
+
+            if(query.matches(property))
+            {
+                matching.add(property);
+            }
+        }
+
+        return matching;
+    }
+
+    /**
+     * Selects the first properties in an order among unordered candidates that meet every criterion of a query.
+     * A heap holds the best count properties seen so far, with the worst of them on top, so each candidate
+     * costs O(log count) and the memory used is bounded by count.
+     *
+     * @param candidates The unordered candidates.
+     * @param query      The criteria the properties must meet.
+     * @param after      Only properties after this cursor in price order are selected, unless it is null.
+     * @param order      The order to select in.
+     * @param count      The maximum number of properties to select.
+     * @return A list of at most count properties, sorted in the given order.
+     */
+    private static ArrayList<Property> selectFirst(final Iterable<? extends Property> candidates,
+                                                   final PropertyQuery query,
+                                                   final PageCursor after,
+                                                   final Comparator<Property> order,
+                                                   final int count)
+    {
+        final PriorityQueue<Property> best;
+        final ArrayList<Property> selected;
+
+        best = new PriorityQueue<>(order.reversed());
+
+        for(final Property property : candidates)
+        {
+            if(query.matches(property) && (after == null || after.precedes(property)))
+            {
+                if(best.size() < count)
+                {
+                    best.add(property);
+                }
+                else if(order.compare(property, best.peek()) < 0)
+                {
+                    best.poll();
+                    best.add(property);
+                }
+            }
+        }
+
+        selected = new ArrayList<>(best);
+        selected.sort(order);
+
+        return selected;
+    }
+
+    /**
+     * Picks the smallest set of candidates for a query among the indexes its criteria can use.
+     * The street, city, type, bedroom and feature indexes know their sizes; the sizes of the price, postal area and
+     * square footage ranges are counted only up to the size of the best candidates found so far, so planning never
+     * costs more than the scan it saves.
+     *
+     * @param query The criteria the properties must meet.
+     * @return The plan holding the candidates every matching property is among.
+     */
+    private QueryPlan planQuery(final PropertyQuery query)
+    {
+        final FeatureFilter featureFilter;
+        final PriceIndex propertiesOfType;
+        Iterable<? extends Property> candidates;
+        NavigableMap<RangeKey, Property> orderedCandidates;
+        int candidateCount;
+        Collection<? extends Property> indexCandidates;
+        NavigableMap<RangeKey, Property> priceRange;
+        BitSet selected;
+        int count;
+
+        featureFilter = query.getFeatureFilter();
+        propertiesOfType = query.getType() == null ? null : propertiesByType.get(foldCase(query.getType()));
+        orderedCandidates = pricesOf(propertiesByPrice, query);
+        candidates = orderedCandidates.values();
+        candidateCount = properties.size();
+
+        if(query.getStreetName() != null)
+        {
+            indexCandidates = propertiesByStreet.getOrDefault(foldCase(query.getStreetName()),
+                                                              Collections.emptyMap()).values();
+
+            if(indexCandidates.size() < candidateCount)
+            {
+                candidates = indexCandidates;
+                orderedCandidates = null;
+                candidateCount = indexCandidates.size();
+            }
+        }
+
+        if(query.getCity() != null && candidateCount > 0)
+        {
+            indexCandidates = propertiesByCity.getOrDefault(foldCase(query.getCity()),
+                                                            Collections.emptyMap()).values();
+
+            if(indexCandidates.size() < candidateCount)
+            {
+                candidates = indexCandidates;
+                orderedCandidates = null;
+                candidateCount = indexCandidates.size();
+            }
+        }
+
+        if(query.getType() != null && candidateCount > 0)
+        {
+            if(propertiesOfType == null)
+            {
+                return new QueryPlan(Collections.emptyList(), Collections.emptyNavigableMap());
+            }
+
+            if(propertiesOfType.size() < candidateCount)
+            {
+                orderedCandidates = pricesOf(propertiesOfType, query);
+                candidates = orderedCandidates.values();
+                candidateCount = propertiesOfType.size();
+            }
+        }
+
+        if(query.hasBedroomRange() && candidateCount > 0)
+        {
+            indexCandidates = getResidencesWithBedrooms(query.getMinBedrooms(), query.getMaxBedrooms());
+
+            if(indexCandidates == null)
+            {
+                indexCandidates = Collections.emptyList();
+            }
+
+            if(indexCandidates.size() < candidateCount)
+            {
+                candidates = indexCandidates;
+                orderedCandidates = null;
+                candidateCount = indexCandidates.size();
+            }
+        }
+
+        if(featureFilter != null && candidateCount > 0)
+        {
+            selected = featureFilter.select(featureIndex);
+
+            if(selected.cardinality() < candidateCount)
+            {
+                candidates = featureIndex.propertiesOf(selected);
+                orderedCandidates = null;
+                candidateCount = selected.cardinality();
+            }
+        }
+
+        if(query.hasPriceRange() && candidateCount > 0)
+        {
+            priceRange = propertiesByPrice.range(query.getMinPriceUsd(), query.getMaxPriceUsd());
+            count = countUpTo(priceRange.values(), candidateCount);
+
+            if(count < candidateCount)
+            {
+                candidates = priceRange.values();
+                orderedCandidates = priceRange;
+                candidateCount = count;
+            }
+        }
+
+        if(query.getPostalCodePrefix() != null && candidateCount > 0)
+        {
+            indexCandidates = propertiesInPostalArea(query.getPostalCodePrefix());
+            count = countUpTo(indexCandidates, candidateCount);
+
+            if(count < candidateCount)
+            {
+                candidates = indexCandidates;
+                orderedCandidates = null;
+                candidateCount = count;
+            }
+        }
+
+        if(query.hasSquareFootageRange() && candidateCount > 0)
+        {
+            indexCandidates = retailsWithSquareFootage(query.getMinSquareFootage(), query.getMaxSquareFootage());
+            count = countUpTo(indexCandidates, candidateCount);
+
+            if(count < candidateCount)
+            {
+                candidates = indexCandidates;
+                orderedCandidates = null;
+            }
+        }
+
+        return new QueryPlan(candidates, orderedCandidates);
+    }
+
+    /**
+     * Narrows a price index to the price range of a query, if it has one.
+     *
+     * @param index The price index.
+     * @param query The query.
+     * @return The entries of the index within the price range of the query, ordered by price.
+     */
+    private static NavigableMap<RangeKey, Property> pricesOf(final PriceIndex index,
+                                                             final PropertyQuery query)
+    {
+        if(query.hasPriceRange())
+        {
+            return index.range(query.getMinPriceUsd(), query.getMaxPriceUsd());
+        }
+
+        return index.entries();
+    }
+
+    /**
+     * Counts the elements of a range view, stopping once the count reaches a limit.
+     *
+     * @param elements The range view to count.
+     * @param limit    The count at which to stop.
+     * @return The number of elements, or limit if there are at least that many.
+     */
+    private static int countUpTo(final Iterable<?> elements,
+                                 final int limit)
+    {
+        final Iterator<?> iterator;
+        int count;
+
+        iterator = elements.iterator();
+        count = 0;
+
+        while(count < limit && iterator.hasNext())
+        {
+            iterator.next();
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Passes every element of an index view to the consumer, counting them on the way
+     * since the size of a sorted sub-view is not kept.
+     *
+     * @param elements The view to visit.
+     * @param consumer Receives each element.
+     * @param <T>      The type of the elements.
+     * @return The number of elements passed to the consumer.
+     */
+    private static <T> int forEach(final Collection<? extends T> elements,
+                                   final Consumer<? super T> consumer)
+    {
+        int count;
+
+        count = 0;
+
+        for(final T element : elements)
+        {
+            consumer.accept(element);
+            count++;
+        }
+
+        return count;
+    }
+
+    /**
+     * Retrieves the properties having a single feature from its bitmap.
+     *
+     * @param feature The feature the properties must have.
+     * @param type    The kind of property the feature belongs to.
+     * @param <T>     The kind of property the feature belongs to.
+     * @return A list of the properties having the feature, or null if none found.
+     */
+    private <T extends Property> ArrayList<T> getPropertiesWith(final PropertyFeature feature,
+                                                                final Class<T> type)
+    {
+        final ArrayList<T> propertiesWithFeature;
+
+        materializeLazyProperties();
+
+        propertiesWithFeature = new ArrayList<>();
+        featureIndex.forEachWith(feature, property -> propertiesWithFeature.add(type.cast(property)));
+
+        if(propertiesWithFeature.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesWithFeature;
+    }
+
+    /**
+     * A read-only collection that presents several collections one after another without copying them.
+     *
+     * @param <T> The type of the elements.
+     */
+    private static final class ConcatenatedView<T> extends AbstractCollection<T>
+    {
+        private final List<Collection<T>> parts;
+
+        /**
+         * @param parts The collections to present, in order.
+         */
+        private ConcatenatedView(final List<Collection<T>> parts)
+        {
+            this.parts = parts;
+        }
+
+        @Override
+        public Iterator<T> iterator()
+        {
+            final Iterator<Collection<T>> remainingParts;
+
+            remainingParts = parts.iterator();
+
+            return new Iterator<T>()
+            {
+                private Iterator<T> current = Collections.emptyIterator();
+
+                @Override
+                public boolean hasNext()
+                {
+                    while(!current.hasNext() && remainingParts.hasNext())
+                    {
+                        current = remainingParts.next().iterator();
+                    }
+
+                    return current.hasNext();
+                }
+
+                @Override
+                public T next()
+                {
+                    if(!hasNext())
+                    {
+                        throw new NoSuchElementException();
+                    }
+
+                    return current.next();
+                }
+            };
+        }
+
+        @Override
+        public int size()
+        {
+            int size;
+
+            size = 0;
+
+            for(final Collection<T> part : parts)
+            {
+                size += part.size();
+            }
+
+            return size;
+        }
+    }
+
+    /**
+     * The candidates chosen for a query. When they are a range of a price index, that range is kept as well,
+     * so that the candidates can be read in price order from any position.
+     */
+    private static final class QueryPlan
+    {
+        private final Iterable<? extends Property> candidates;
+        private final NavigableMap<RangeKey, Property> orderedCandidates;
+
+        /**
+         * @param candidates        The candidates every matching property is among.
+         * @param orderedCandidates The same candidates keyed by price, or null if they come from another index.
+         */
+        private QueryPlan(final Iterable<? extends Property> candidates,
+                          final NavigableMap<RangeKey, Property> orderedCandidates)
+        {
+            this.candidates = candidates;
+            this.orderedCandidates = orderedCandidates;
+        }
+
+        /**
+         * @return The candidates every matching property is among.
+         */
+        private Iterable<? extends Property> getCandidates()
+        {
+            return candidates;
+        }
+
+        /**
+         * @return The candidates keyed by price, or null if they are not read from a price index.
+         */
+        private NavigableMap<RangeKey, Property> getOrderedCandidates()
+        {
+            return orderedCandidates;
+        }
     }
 }
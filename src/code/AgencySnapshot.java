@@ -0,0 +1,521 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * AgencySnapshot of BCIT
+ * <p>
+ * Writes and reads a compact, versioned binary image of the properties of an Agency.
+ * Numbers and booleans are stored in binary, and every distinct string is stored once and
+ * referenced by index afterwards, so repeated street names and cities cost four bytes each.
+ * Restored objects skip constructor validation because they were validated before being saved.
+ * <p>
+ * The header records the length and last-modified time of each data file the properties were loaded from,
+ * so isCurrent() can tell whether a snapshot still matches its data files. Both must be equal, not just newer:
+ * a data file restored from a backup with an older time, or rewritten in place, makes the snapshot stale.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class AgencySnapshot
+{
+    public static final int SNAPSHOT_VERSION = 2;
+
+    private static final int MAGIC = 0x41474E43;
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    private static final byte PROPERTY_KIND = 0;
+    private static final byte RESIDENCE_KIND = 1;
+    private static final byte COMMERCIAL_KIND = 2;
+    private static final byte RETAIL_KIND = 3;
+
+    private static final int NULL_STRING = -1;
+    private static final int NEW_STRING = -2;
+
+    /**
+     * Writes the given properties to a snapshot file that is not tied to any data file.
+     *
+     * @param file       the File object representing the snapshot file
+     * @param properties the properties to write
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(final File file,
+                             final Collection<? extends Property> properties) throws IOException
+    {
+        write(file, properties, Collections.emptyList());
+    }
+
+
+    /**
+     * Writes the given properties to a snapshot file. The file is first written next to its final location
+     * and then moved into place, so a crash never leaves a half-written snapshot behind.
+     *
+     * @param file       the File object representing the snapshot file
+     * @param properties the properties to write
+     * @param sources    the stamps of the data files the properties were loaded from, taken before loading them
+     * @throws IOException if the snapshot cannot be written
+     */
+    public static void write(final File file,
+                             final Collection<? extends Property> properties,
+                             final List<SourceStamp> sources) throws IOException
+    {
+        final File temporaryFile;
+        final Map<String, Integer> stringIndexes;
+
+        temporaryFile = new File(file.getPath() + ".tmp");
+        stringIndexes = new HashMap<>();
+
+        try(DataOutputStream output = new DataOutputStream(
+                new BufferedOutputStream(new FileOutputStream(temporaryFile), BUFFER_SIZE)))
+        {
+            output.writeInt(MAGIC);
+            output.writeInt(SNAPSHOT_VERSION);
+            output.writeInt(sources.size());
+
+            for(final SourceStamp source : sources)
+            {
+                output.writeLong(source.getLength());
+                output.writeLong(source.getLastModified());
+            }
+
+            output.writeInt(properties.size());
+
+            for(final Property property : properties)
+            {
+                writeProperty(output, property, stringIndexes);
+            }
+        }
+
+        Files.move(temporaryFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Reads a snapshot file and passes each restored property to the consumer in the order it was written.
+     *
+     * @param file     the File object representing the snapshot file
+     * @param consumer receives each restored property
+     * @throws FileNotFoundException if the snapshot file is not found
+     * @throws IOException           if the snapshot cannot be read or has an unsupported format or version
+     */
+    public static void read(final File file,
+                            final Consumer<Property> consumer) throws IOException
+    {
+        final List<String> strings;
+        final int count;
+
+        if(!file.isFile())
+        {
+            throw new FileNotFoundException("File Not Found");
+        }
+
+        strings = new ArrayList<>();
+
+        try(DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)))
+        {
+            readSources(input, file);
+            count = input.readInt();
+
+            for(int i = 0; i < count; i++)
+            {
+                consumer.accept(readProperty(input, strings));
+            }
+        }
+    }
+
+
+    /**
+     * Appends a block of properties to a journal stream. A block is its property count followed by the
+     * properties, with its own string table, so a journal can be read back up to the end of any block.
+     *
+     * @param output     the journal stream, positioned at the end of the last block
+     * @param properties the properties to write
+     * @throws IOException if the block cannot be written
+     */
+    static void writeJournalBlock(final DataOutputStream output,
+                                  final Collection<? extends Property> properties) throws IOException
+    {
+        final Map<String, Integer> stringIndexes;
+
+        stringIndexes = new HashMap<>();
+        output.writeInt(properties.size());
+
+        for(final Property property : properties)
+        {
+            writeProperty(output, property, stringIndexes);
+        }
+    }
+
+
+    /**
+     * Reads the first blocks of a journal written by writeJournalBlock and passes each restored property
+     * to the consumer in the order it was written.
+     *
+     * @param file       the File object representing the journal file
+     * @param blockCount the number of blocks to read
+     * @param consumer   receives each restored property
+     * @throws IOException if the journal cannot be read or has fewer blocks than requested
+     */
+    static void readJournal(final File file,
+                            final long blockCount,
+                            final Consumer<Property> consumer) throws IOException
+    {
+        List<String> strings;
+        int count;
+
+        try(DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)))
+        {
+            for(long block = 0; block < blockCount; block++)
+            {
+                strings = new ArrayList<>();
+                count = input.readInt();
+
+                for(int i = 0; i < count; i++)
+                {
+                    consumer.accept(readProperty(input, strings));
+                }
+            }
+        }
+    }
+
+
+    /**
+     * Checks whether a snapshot was written from data files that have not changed since.
+     *
+     * @param file    the File object representing the snapshot file
+     * @param sources the current stamps of the data files, in the order they were given to write()
+     * @return true if the snapshot exists, can be read and records the same stamps, false otherwise
+     */
+    public static boolean isCurrent(final File file,
+                                    final List<SourceStamp> sources)
+    {
+        if(!file.isFile())
+        {
+            return false;
+        }
+
+        try(DataInputStream input = new DataInputStream(
+                new BufferedInputStream(new FileInputStream(file), BUFFER_SIZE)))
+        {
+            return readSources(input, file).equals(sources);
+        }
+        catch(IOException ioException)
+        {
+            return false;
+        }
+    }
+
+
+    /**
+     * Reads the header of a snapshot up to the property count.
+     *
+     * @param input the stream to read from, at the start of the snapshot
+     * @param file  the snapshot file, for the error message
+     * @return the stamps of the data files recorded in the snapshot
+     * @throws IOException if the header cannot be read or has an unsupported format or version
+     */
+    private static List<SourceStamp> readSources(final DataInputStream input,
+                                                 final File file) throws IOException
+    {
+        final int version;
+        final int sourceCount;
+        final List<SourceStamp> sources;
+
+        if(input.readInt() != MAGIC)
+        {
+            throw new IOException("Not an agency snapshot: " + file);
+        }
+
+        version = input.readInt();
+
+        if(version != SNAPSHOT_VERSION)
+        {
+            throw new IOException("Unsupported snapshot version: " + version);
+        }
+
+        sourceCount = input.readInt();
+
+        if(sourceCount < 0)
+        {
+            throw new IOException("Invalid source count in snapshot: " + sourceCount);
+        }
+
+        sources = new ArrayList<>(sourceCount);
+
+        for(int i = 0; i < sourceCount; i++)
+        {
+            sources.add(new SourceStamp(input.readLong(), input.readLong()));
+        }
+
+        return sources;
+    }
+
+
+    /**
+     * Writes one property with its address and subtype details.
+     *
+     * @param output        the stream to write to
+     * @param property      the property to write
+     * @param stringIndexes the indexes of the strings written so far
+     * @throws IOException if the property cannot be written
+     */
+    private static void writeProperty(final DataOutputStream output,
+                                      final Property property,
+                                      final Map<String, Integer> stringIndexes) throws IOException
+    {
+        final Address address;
+
+        if(property instanceof Residence)
+        {
+            output.writeByte(RESIDENCE_KIND);
+        }
+        else if(property instanceof Commercial)
+        {
+            output.writeByte(COMMERCIAL_KIND);
+        }
+        else if(property instanceof Retail)
+        {
+            output.writeByte(RETAIL_KIND);
+        }
+        else
+        {
+            output.writeByte(PROPERTY_KIND);
+        }
+
+        output.writeDouble(property.getPriceUsd());
+        writeString(output, property.getType(), stringIndexes);
+        writeString(output, property.getPropertyId(), stringIndexes);
+
+        address = property.getAddress();
+        writeString(output, address.getUnitNumber(), stringIndexes);
+        output.writeInt(address.getStreetNumber());
+        writeString(output, address.getStreetName(), stringIndexes);
+        writeString(output, address.getPostalCode(), stringIndexes);
+        writeString(output, address.getCity(), stringIndexes);
+
+        if(property instanceof Residence)
+        {
+            final Residence residence;
+
+            residence = (Residence) property;
+            output.writeByte(residence.getNumberOfBedrooms());
+            output.writeBoolean(residence.hasSwimmingPool());
+            output.writeBoolean(residence.hasStrata());
+        }
+        else if(property instanceof Commercial)
+        {
+            final Commercial commercial;
+
+            commercial = (Commercial) property;
+            output.writeBoolean(commercial.hasLoadingDock());
+            output.writeBoolean(commercial.hasHighwayAccess());
+        }
+        else if(property instanceof Retail)
+        {
+            final Retail retail;
+
+            retail = (Retail) property;
+            output.writeInt(retail.getSquareFootage());
+            output.writeBoolean(retail.hasCustomerParking());
+        }
+    }
+
+
+    /**
+     * Reads one property written by writeProperty, without validating it again.
+     *
+     * @param input   the stream to read from
+     * @param strings the strings read so far, by index
+     * @return the restored property
+     * @throws IOException if the property cannot be read
+     */
+    private static Property readProperty(final DataInputStream input,
+                                         final List<String> strings) throws IOException
+    {
+        final byte kind;
+        final double priceUsd;
+        final String type;
+        final String propertyId;
+        final Address address;
+
+        kind = input.readByte();
+        priceUsd = input.readDouble();
+        type = readString(input, strings);
+        propertyId = readString(input, strings);
+        address = new Address(readString(input, strings), input.readInt(), readString(input, strings),
+                              readString(input, strings), readString(input, strings), false);
+
+        switch(kind)
+        {
+            case RESIDENCE_KIND:
+                return new Residence(priceUsd, address, input.readByte(), input.readBoolean(), type, propertyId,
+                                     input.readBoolean(), false);
+            case COMMERCIAL_KIND:
+                return new Commercial(priceUsd, address, type, propertyId, input.readBoolean(),
+                                      input.readBoolean(), false);
+            case RETAIL_KIND:
+                return new Retail(priceUsd, address, type, propertyId, input.readInt(), input.readBoolean(), false);
+            case PROPERTY_KIND:
+                return new Property(priceUsd, address, type, propertyId, false);
+            default:
+                throw new IOException("Invalid property kind in snapshot: " + kind);
+        }
+    }
+
+
+    /**
+     * Writes a nullable string, or the index of an identical string written before.
+     *
+     * @param output        the stream to write to
+     * @param string        the string to write (nullable)
+     * @param stringIndexes the indexes of the strings written so far
+     * @throws IOException if the string cannot be written
+     */
+    private static void writeString(final DataOutputStream output,
+                                    final String string,
+                                    final Map<String, Integer> stringIndexes) throws IOException
+    {
+        final Integer index;
+
+        if(string == null)
+        {
+            output.writeInt(NULL_STRING);
+            return;
+        }
+
+        index = stringIndexes.get(string);
+
+        if(index != null)
+        {
+            output.writeInt(index);
+            return;
+        }
+
+        stringIndexes.put(string, stringIndexes.size());
+        output.writeInt(NEW_STRING);
+        output.writeUTF(string);
+    }
+
+
+    /**
+     * Reads a string written by writeString.
+     *
+     * @param input   the stream to read from
+     * @param strings the strings read so far, by index
+     * @return the string, or null if a null string was written
+     * @throws IOException if the string cannot be read or refers to an unknown index
+     */
+    private static String readString(final DataInputStream input,
+                                     final List<String> strings) throws IOException
+    {
+        final int index;
+        final String string;
+
+        index = input.readInt();
+
+        if(index == NULL_STRING)
+        {
+            return null;
+        }
+
+        if(index == NEW_STRING)
+        {
+            string = input.readUTF();
+            strings.add(string);
+
+            return string;
+        }
+
+        if(index < 0 || index >= strings.size())
+        {
+            throw new IOException("Invalid string index in snapshot: " + index);
+        }
+
+        return strings.get(index);
+    }
+
+
+    /**
+     * The length and last-modified time of a data file at the moment it was loaded.
+     */
+    public static final class SourceStamp
+    {
+        private final long length;
+        private final long lastModified;
+
+        /**
+         * @param length       the length of the file in bytes
+         * @param lastModified the last-modified time of the file in milliseconds
+         */
+        private SourceStamp(final long length,
+                            final long lastModified)
+        {
+            this.length = length;
+            this.lastModified = lastModified;
+        }
+
+
+        /**
+         * Takes the stamp of a file. It should be taken before the file is loaded, so that lines appended
+         * while loading make the snapshot stale rather than silently missing.
+         *
+         * @param file the data file
+         * @return the current stamp of the file
+         */
+        public static SourceStamp of(final File file)
+        {
+            return new SourceStamp(file.length(), file.lastModified());
+        }
+
+
+        /**
+         * @return the length of the file in bytes
+         */
+        public long getLength()
+        {
+            return length;
+        }
+
+
+        /**
+         * @return the last-modified time of the file in milliseconds
+         */
+        public long getLastModified()
+        {
+            return lastModified;
+        }
+
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            return other instanceof SourceStamp && length == ((SourceStamp) other).length &&
+                    lastModified == ((SourceStamp) other).lastModified;
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return 31 * Long.hashCode(length) + Long.hashCode(lastModified);
+        }
+    }
+}
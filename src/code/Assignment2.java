@@ -1,7 +1,7 @@
+import java.io.Closeable;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.util.ArrayList;
-import java.util.HashMap;
+import java.io.IOException;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Scanner;
 
@@ -11,31 +11,12 @@ import java.util.Scanner;
  * @author Andres Arevalo
  * @version 1.0
  */
-public class Assignment2
+public class Assignment2 implements Closeable
 {
     private final Scanner scanner;
     private static final String ADDRESSES_FILE_NAME = "address_data.txt";
     private static final String PROPERTIES_FILE_NAME = "property_data.txt";
-    private static final String SPLIT_CHARACTER = "\\|";
-
-    private static final int RESIDENCE_PRICE_USD = 0;
-    private static final int NUMBER_OF_BEDROOMS = 1;
-    private static final int SWIMMING_POOL = 2;
-    private static final int RESIDENCE_TYPE = 3;
-    private static final int RESIDENCE_PROPERTY_ID = 4;
-    private static final int STRATA = 5;
-
-    private static final int RETAIL_PRICE_USD = 0;
-    private static final int RETAIL_TYPE = 1;
-    private static final int RETAIL_PROPERTY_ID = 2;
-    private static final int SQUARE_FOOTAGE = 3;
-    private static final int CUSTOMER_PARKING = 4;
-
-    private static final int COMMERCIAL_PRICE_USD = 0;
-    private static final int COMMERCIAL_TYPE = 1;
-    private static final int COMMERCIAL_PROPERTY_ID = 2;
-    private static final int LOADING_DOCK = 3;
-    private static final int HIGHWAY_ACCESS = 4;
+    private static final String SNAPSHOT_FILE_NAME = "agency_snapshot.bin";
 
     private static final int OPTION_GENERAL_QUERIES = 1;
     private static final int OPTION_RESIDENCE_QUERIES = 2;
@@ -63,6 +44,7 @@ public class Assignment2
     private static final int OPTION_EXIT_RETAIL_MENU = 3;
 
     private final Agency agency;
+    private ListingFollower follower;
 
     public Assignment2()
     {
@@ -71,53 +53,78 @@ public class Assignment2
     }
 
 
-    public static void main(final String[] args) throws FileNotFoundException
+    public static void main(final String[] args)
     {
-        try
+        try(Assignment2 assignment2 = new Assignment2())
         {
-            Assignment2 assignment2;
-
-            assignment2 = new Assignment2();
             assignment2.init();
             assignment2.doSearch();
         }
-        catch(FileNotFoundException fileNotFoundException)
+        catch(IOException ioException)
         {
-            System.out.println(fileNotFoundException.toString());
+            System.out.println(ioException.toString());
         }
     }
 
 
     /**
-     * This method gets the ArrayList,<Address> and ArrayList<String> form AddressReader and PropertyReader,
-     * and uses them to create subtype Objects and adds them to the Agency.HashMap<String, Property> properties.
-     * @throws FileNotFoundException If addressFile or property file is not found throws and exception.
+     * This method loads the Agency.HashMap<String, Property> properties.
+     * If a snapshot written from the current versions of both data files exists, the properties are restored
+     * from it directly; otherwise the address and property files are loaded with ParallelPropertyLoader,
+     * which pairs their lines and creates subtype Objects on every available core, and a fresh snapshot
+     * is written for the next start.
+     * Afterwards a ListingFollower picks up the lines appended to the data files while the program runs.
+     * @throws IOException If addressFile or property file is not found or cannot be read throws and exception.
      */
-    public void init() throws FileNotFoundException
+    public void init() throws IOException
     {
-        final ArrayList<Address> addresses;
-        final ArrayList<String> stringProperties;
         final File addressesFile;
         final File propertiesFile;
-        Address address;
-        String propertyString;
-        Property property;
+        final File snapshotFile;
+        final List<AgencySnapshot.SourceStamp> sources;
 
         addressesFile = new File(ADDRESSES_FILE_NAME);
         propertiesFile = new File(PROPERTIES_FILE_NAME);
+        snapshotFile = new File(SNAPSHOT_FILE_NAME);
+        sources = Arrays.asList(AgencySnapshot.SourceStamp.of(addressesFile),
+                                AgencySnapshot.SourceStamp.of(propertiesFile));
+        follower = ListingFollower.fromEndOf(addressesFile, propertiesFile, agency);
 
-        addresses = AddressReader.readAddressData(addressesFile);
-        stringProperties = PropertyReader.readPropertyData(propertiesFile);
-
-        for(int i = 0; i < stringProperties.size(); i++)
+        if(AgencySnapshot.isCurrent(snapshotFile, sources))
         {
-            propertyString = stringProperties.get(i);
-            address = addresses.get(i);
+            try
+            {
+                agency.loadSnapshot(snapshotFile);
+                return;
+            }
+            catch(IOException ioException)
+            {
+                System.out.println("Could not read snapshot, reloading data files: " + ioException);
+            }
+        }
 
-            property = getPropertyFromString(propertyString, address);
+        ParallelPropertyLoader.load(addressesFile, propertiesFile, agency);
 
-            agency.addProperty(property);
+        try
+        {
+            agency.saveSnapshot(snapshotFile, sources);
         }
+        catch(IOException ioException)
+        {
+            System.out.println("Could not write snapshot: " + ioException);
+        }
+    }
+
+
+    /**
+     * Closes the files the agency still holds open. System.in is left open.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        agency.close();
     }
 
 
@@ -137,6 +144,8 @@ public class Assignment2
 
         while(true)
         {
+            pollNewListings();
+
             System.out.println("Welcome to our Property search. ");
             System.out.println("Choose one of the following options: ");
             System.out.println("\t1. General Queries\n" +
@@ -233,6 +242,41 @@ public class Assignment2
     }
 
 
+    /**
+     * Adds the properties appended to the data files since the last poll, if the follower was started by init().
+     */
+    private void pollNewListings()
+    {
+        final long rejectedBefore;
+        final int addedProperties;
+
+        if(follower == null)
+        {
+            return;
+        }
+
+        try
+        {
+            rejectedBefore = follower.getRejectedCount();
+            addedProperties = follower.poll();
+
+            if(addedProperties > 0)
+            {
+                System.out.println("Loaded " + addedProperties + " new properties");
+            }
+
+            if(follower.getRejectedCount() > rejectedBefore)
+            {
+                System.out.println("Skipped " + (follower.getRejectedCount() - rejectedBefore) + " invalid listings");
+            }
+        }
+        catch(IOException ioException)
+        {
+            System.out.println(ioException.toString());
+        }
+    }
+
+
     /**
      * Processes retail queries based on the selected option.
      *
@@ -240,40 +284,36 @@ public class Assignment2
      */
     private void processRetailQueries(final int retailQueriesOption)
     {
-        final ArrayList<Retail> propertiesWithSquareFootage;
-        final ArrayList<Retail> propertiesWithCustomerParking;
         final int minSquareFootage;
+        final int propertiesWithSquareFootage;
+        final int propertiesWithCustomerParking;
 
         if(retailQueriesOption == OPTION_BY_SQUARE_FOOTAGE)
         {
             System.out.println("Enter min square footage: ");
             minSquareFootage = scanner.nextInt();
 
-            propertiesWithSquareFootage = agency.getPropertiesSquareFootage(minSquareFootage);
-
             System.out.println("Retail properties with minimum square footage of: " + minSquareFootage);
 
-            for(Property propertyWithSquareFootage : propertiesWithSquareFootage)
+            propertiesWithSquareFootage = agency.forEachRetailWithSquareFootage(minSquareFootage, Integer.MAX_VALUE,
+                                                                               System.out::println);
+
+            if(propertiesWithSquareFootage == 0)
             {
-                System.out.println(propertyWithSquareFootage);
+                System.out.println("There are not properties with minimum square footage of " + minSquareFootage);
             }
         }
         else if(retailQueriesOption == OPTION_BY_CUSTOMER_PARKING)
         {
-            propertiesWithCustomerParking = agency.getPropertiesWithCustomerParking();
             System.out.println("Retail Properties with Customer Parking");
 
-            if(propertiesWithCustomerParking == null)
+            propertiesWithCustomerParking = agency.forEachPropertyWith(PropertyFeature.CUSTOMER_PARKING,
+                                                                       System.out::println);
+
+            if(propertiesWithCustomerParking == 0)
             {
                 System.out.println("There are not properties with customer parking");
             }
-            else
-            {
-                for(Property propertyWithCustomerParking : propertiesWithCustomerParking)
-                {
-                    System.out.println(propertyWithCustomerParking);
-                }
-            }
         }
         else
         {
@@ -289,27 +329,30 @@ public class Assignment2
      */
     private void processCommercialQueries(final int commercialQueriesOption)
     {
-        final ArrayList<Commercial> propertiesWithLoadingDock;
-        final ArrayList<Commercial> propertiesWithHighwayAccess;
+        final int propertiesWithLoadingDock;
+        final int propertiesWithHighwayAccess;
 
         if(commercialQueriesOption == OPTION_BY_LOADING_DOCK)
         {
-            propertiesWithLoadingDock = agency.getPropertiesWithLoadingDocks();
             System.out.println("Commercial Properties with Loading Dock");
 
-            for(Property propertyWithLoadingDock : propertiesWithLoadingDock)
+            propertiesWithLoadingDock = agency.forEachPropertyWith(PropertyFeature.LOADING_DOCK, System.out::println);
+
+            if(propertiesWithLoadingDock == 0)
             {
-                System.out.println(propertyWithLoadingDock);
+                System.out.println("There are not properties with loading dock");
             }
         }
         else if(commercialQueriesOption == OPTION_BY_HIGHWAY_ACCESS)
         {
-            propertiesWithHighwayAccess = agency.getPropertiesWithHighwayAccess();
             System.out.println("Commercial Properties with Highway Access");
 
-            for(Property propertyWithHighwayAccess : propertiesWithHighwayAccess)
+            propertiesWithHighwayAccess = agency.forEachPropertyWith(PropertyFeature.HIGHWAY_ACCESS,
+                                                                     System.out::println);
+
+            if(propertiesWithHighwayAccess == 0)
             {
-                System.out.println(propertyWithHighwayAccess);
+                System.out.println("There are not properties with highway access");
             }
         }
         else
@@ -328,9 +371,9 @@ public class Assignment2
     {
         final int minNumberBedrooms;
         final int maxNumberBedrooms;
-        final HashMap<String, Residence> propertiesWithBedrooms;
-        final List<Residence> propertiesWithPool;
-        final ArrayList<Residence> propertiesWithStata;
+        final int propertiesWithBedrooms;
+        final int propertiesWithPool;
+        final int propertiesWithStrata;
 
         if(residenceQueriesOption == OPTION_BY_BEDROOM)
         {
@@ -340,31 +383,35 @@ public class Assignment2
             System.out.print("Enter max number of bedrooms: ");
             maxNumberBedrooms = scanner.nextInt();
 
-            propertiesWithBedrooms = agency.getPropertiesWithBedrooms(minNumberBedrooms, maxNumberBedrooms);
+            propertiesWithBedrooms = agency.forEachResidenceWithBedrooms(minNumberBedrooms, maxNumberBedrooms,
+                                                                         System.out::println);
 
-            for(Property propertyWithBedrooms : propertiesWithBedrooms.values())
+            if(propertiesWithBedrooms == 0)
             {
-                System.out.println(propertyWithBedrooms);
+                System.out.println("There are not properties with " + minNumberBedrooms + " to " + maxNumberBedrooms +
+                                   " bedrooms");
             }
         }
         else if(residenceQueriesOption == OPTION_BY_POOL)
         {
-            propertiesWithPool = agency.getPropertiesWithPools();
             System.out.println("Residences with swimming pool: ");
 
-            for(Property propertyWithPool : propertiesWithPool)
+            propertiesWithPool = agency.forEachPropertyWith(PropertyFeature.SWIMMING_POOL, System.out::println);
+
+            if(propertiesWithPool == 0)
             {
-                System.out.println(propertyWithPool);
+                System.out.println("There are not properties with swimming pool");
             }
         }
         else if(residenceQueriesOption == OPTION_BY_STRATA)
         {
-            propertiesWithStata = agency.getPropertiesWithStrata();
             System.out.println("Residences with strata: ");
 
-            for(Property propertyWithStrata : propertiesWithStata)
+            propertiesWithStrata = agency.forEachPropertyWith(PropertyFeature.STRATA, System.out::println);
+
+            if(propertiesWithStrata == 0)
             {
-                System.out.println(propertyWithStrata);
+                System.out.println("There are not properties with strata");
             }
         }
         else
@@ -387,10 +434,9 @@ public class Assignment2
         final double maxPrice;
         final String streetName;
         final String propertyType;
-
-        final Property[] propertiesBetween;
-        final List<Address> propertiesAddressOn;
-        final ArrayList<Property> propertiesOfType;
+        final int propertiesBetween;
+        final int propertiesOn;
+        final int propertiesOfType;
 
         if(generalQueriesOption == OPTION_BY_PROPERTY_ID)
         {
@@ -408,24 +454,24 @@ public class Assignment2
             System.out.print("Enter Max property price: $");
             maxPrice = Double.parseDouble(scanner.next());
 
-            propertiesBetween = agency.getPropertiesBetween(minPrice, maxPrice);
+            System.out.format("Find next the properties between %.2f and %.2f%n", minPrice, maxPrice);
+            propertiesBetween = agency.forEachPropertyBetween(minPrice, maxPrice, System.out::println);
 
-            System.out.format("Find next the properties between %.2f and %.2f", minPrice, maxPrice);
-            for(Property propertyBetween : propertiesBetween)
+            if(propertiesBetween == 0)
             {
-                System.out.println(propertyBetween);
+                System.out.format("There are not properties with prices between %.2f and %.2f%n", minPrice, maxPrice);
             }
         }
         else if(generalQueriesOption == OPTION_BY_STREET)
         {
             System.out.print("Enter the Street name: ");
             streetName = scanner.next();
-            propertiesAddressOn = agency.getPropertiesOn(streetName);
-
             System.out.println("Property addresses on " + streetName);
-            for(Address addressOn : propertiesAddressOn)
+            propertiesOn = agency.forEachPropertyOn(streetName, System.out::println);
+
+            if(propertiesOn == 0)
             {
-                System.out.println(addressOn);
+                System.out.println("There are not properties with an address on " + streetName);
             }
         }
         else if(generalQueriesOption == OPTION_BY_TYPE)
@@ -433,10 +479,11 @@ public class Assignment2
             System.out.print("Please enter the property type: ");
             propertyType = scanner.next();
 
-            propertiesOfType = agency.getPropertiesOfType(propertyType);
-            for(Property propertyOfType : propertiesOfType)
+            propertiesOfType = agency.forEachPropertyOfType(propertyType, System.out::println);
+
+            if(propertiesOfType == 0)
             {
-                System.out.println(propertyOfType);
+                System.out.println("There are not properties with type " + propertyType);
             }
         }
         else
@@ -444,48 +491,4 @@ public class Assignment2
             System.out.println("Invalid Option. Try Again!");
         }
     }
-
-
-    /**
-     * Parses a string representing a property and creates a Property object from it.
-     *
-     * @param propertyString the string representing the property
-     * @param address the address associated with the property
-     * @return a Property object parsed from the input string
-     */
-    private static Property getPropertyFromString(final String propertyString, final Address address)
-    {
-        String[] propertyArray;
-        Property property;
-
-        propertyArray = propertyString.split(SPLIT_CHARACTER);
-
-        if(propertyString.contains("residence"))
-        {
-            property = new Residence(Double.parseDouble(propertyArray[RESIDENCE_PRICE_USD]), address,
-                                     Integer.parseInt(propertyArray[NUMBER_OF_BEDROOMS]),
-                                     Boolean.parseBoolean(propertyArray[SWIMMING_POOL]),
-                                     propertyArray[RESIDENCE_TYPE],
-                                     propertyArray[RESIDENCE_PROPERTY_ID],
-                                     Boolean.parseBoolean(propertyArray[STRATA]));
-        }
-        else if(propertyString.contains("retail"))
-        {
-            property = new Retail(Double.parseDouble(propertyArray[RETAIL_PRICE_USD]), address, propertyArray[RETAIL_TYPE],
-                                  propertyArray[RETAIL_PROPERTY_ID], Integer.parseInt(propertyArray[SQUARE_FOOTAGE]),
-                                  Boolean.parseBoolean(propertyArray[CUSTOMER_PARKING]));
-        }
-        else if(propertyString.contains("commercial"))
-        {
-            property = new Commercial(Double.parseDouble(propertyArray[COMMERCIAL_PRICE_USD]), address,
-                                      propertyArray[COMMERCIAL_TYPE], propertyArray[COMMERCIAL_PROPERTY_ID],
-                                      Boolean.parseBoolean(propertyArray[LOADING_DOCK]), Boolean.parseBoolean(propertyArray[HIGHWAY_ACCESS]));
-        }
-        else
-        {
-            return null;
-        }
-
-        return property;
-    }
 }
@@ -0,0 +1,403 @@
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * BulkLoader of BCIT
+ * <p>
+ * Loads the address and property files into an Agency without stopping at bad records.
+ * A pair of lines that cannot be turned into a property is written to a reject file with its
+ * line number and the reason, and the load goes on with the next pair.
+ * <p>
+ * Every checkpoint interval the loader commits its progress: it appends the properties loaded since the
+ * last commit to a journal, and then records the line number, file offsets and counts it reached in the
+ * checkpoint. Each commit writes only its own interval, so the cost of checkpointing grows with the
+ * number of records rather than with the square of it. If the load is interrupted, the next load replays
+ * the committed part of the journal and continues from the last committed offsets instead of starting over.
+ * The checkpoint also records the length and last-modified time of both data files, and a load refuses
+ * to resume if either file has changed since. The checkpoint and journal are deleted once the files are
+ * fully loaded.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class BulkLoader
+{
+    public static final int DEFAULT_CHECKPOINT_INTERVAL = 100000;
+
+    private static final int CHECKPOINT_VERSION = 2;
+    private static final String JOURNAL_SUFFIX = ".journal";
+    private static final String TEMPORARY_SUFFIX = ".tmp";
+    private static final char REJECT_SEPARATOR = '\t';
+
+    private final File addressFile;
+    private final File propertyFile;
+    private final File rejectFile;
+    private final File checkpointFile;
+    private final File journalFile;
+    private final int checkpointInterval;
+    private final List<Property> uncommittedProperties;
+
+    private long lineNumber;
+    private long addressOffset;
+    private long propertyOffset;
+    private long loadedCount;
+    private long rejectedCount;
+    private long journalBlocks;
+    private AgencySnapshot.SourceStamp addressStamp;
+    private AgencySnapshot.SourceStamp propertyStamp;
+
+    /**
+     * Creates a bulk loader that commits its progress every DEFAULT_CHECKPOINT_INTERVAL records.
+     *
+     * @param addressFile    the File object representing the address file
+     * @param propertyFile   the File object representing the property file
+     * @param rejectFile     the file rejected records are written to
+     * @param checkpointFile the file the committed progress is kept in
+     */
+    public BulkLoader(final File addressFile,
+                      final File propertyFile,
+                      final File rejectFile,
+                      final File checkpointFile)
+    {
+        this(addressFile, propertyFile, rejectFile, checkpointFile, DEFAULT_CHECKPOINT_INTERVAL);
+    }
+
+
+    /**
+     * Creates a bulk loader. The journal of committed properties is kept next to the checkpoint file.
+     *
+     * @param addressFile        the File object representing the address file
+     * @param propertyFile       the File object representing the property file
+     * @param rejectFile         the file rejected records are written to
+     * @param checkpointFile     the file the committed progress is kept in
+     * @param checkpointInterval the number of records between two commits
+     * @throws IllegalArgumentException if the checkpoint interval is less than 1
+     */
+    public BulkLoader(final File addressFile,
+                      final File propertyFile,
+                      final File rejectFile,
+                      final File checkpointFile,
+                      final int checkpointInterval)
+    {
+        if(checkpointInterval < 1)
+        {
+            throw new IllegalArgumentException("Invalid checkpoint interval: " + checkpointInterval);
+        }
+
+        this.addressFile = addressFile;
+        this.propertyFile = propertyFile;
+        this.rejectFile = rejectFile;
+        this.checkpointFile = checkpointFile;
+        this.journalFile = new File(checkpointFile.getPath() + JOURNAL_SUFFIX);
+        this.checkpointInterval = checkpointInterval;
+        this.uncommittedProperties = new ArrayList<>();
+    }
+
+
+    /**
+     * Loads every valid record into the agency and writes every invalid one to the reject file.
+     * If a checkpoint from an interrupted load exists, the agency is first restored from its journal,
+     * so it should be empty when this method is called.
+     *
+     * @param agency the agency the properties are added to
+     * @throws IOException if a file cannot be read or written, or if a checkpoint exists but has an unsupported
+     *                     version or was written while either data file had a different length or modification time
+     */
+    public void load(final Agency agency) throws IOException
+    {
+        final boolean resuming;
+        final StringPool addressStrings;
+        String addressString;
+        String propertyString;
+        long recordsSinceCommit;
+
+        resuming = checkpointFile.isFile();
+
+        uncommittedProperties.clear();
+        addressStrings = new StringPool();
+
+        if(resuming)
+        {
+            readCheckpoint();
+            AgencySnapshot.readJournal(journalFile, journalBlocks, agency::addProperty);
+        }
+        else
+        {
+            lineNumber = 0;
+            addressOffset = 0;
+            propertyOffset = 0;
+            loadedCount = 0;
+            rejectedCount = 0;
+            journalBlocks = 0;
+            addressStamp = AgencySnapshot.SourceStamp.of(addressFile);
+            propertyStamp = AgencySnapshot.SourceStamp.of(propertyFile);
+
+            truncate(rejectFile, 0);
+            truncate(journalFile, 0);
+        }
+
+        try(MappedLineReader addressReader = new MappedLineReader(addressFile, addressOffset);
+            MappedLineReader propertyReader = new MappedLineReader(propertyFile, propertyOffset);
+            Writer rejects = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(rejectFile, true), StandardCharsets.UTF_8));
+            DataOutputStream journal = new DataOutputStream(new BufferedOutputStream(
+                    new FileOutputStream(journalFile, true))))
+        {
+            recordsSinceCommit = 0;
+
+            while((propertyString = propertyReader.nextLine()) != null)
+            {
+                addressString = addressReader.nextLine();
+                lineNumber++;
+
+                loadRecord(agency, addressStrings, addressString, propertyString, rejects);
+
+                addressOffset = addressReader.getPosition();
+                propertyOffset = propertyReader.getPosition();
+                recordsSinceCommit++;
+
+                if(recordsSinceCommit == checkpointInterval)
+                {
+                    commit(rejects, journal);
+                    recordsSinceCommit = 0;
+                }
+            }
+        }
+
+        Files.deleteIfExists(checkpointFile.toPath());
+        Files.deleteIfExists(journalFile.toPath());
+    }
+
+
+    /**
+     * Adds one record to the agency, or writes it to the reject file if it is invalid.
+     *
+     * @param agency         the agency the property is added to
+     * @param addressStrings the pool shared by the addresses of the load
+     * @param addressString  the address line of the record (nullable if the address file ended early)
+     * @param propertyString the property line of the record
+     * @param rejects        the writer for the reject file
+     * @throws IOException if the reject file cannot be written
+     */
+    private void loadRecord(final Agency agency,
+                            final StringPool addressStrings,
+                            final String addressString,
+                            final String propertyString,
+                            final Writer rejects) throws IOException
+    {
+        final Address address;
+        final Property property;
+
+        if(addressString == null)
+        {
+            reject(rejects, "Missing address line", "", propertyString);
+            return;
+        }
+
+        try
+        {
+            address = AddressReader.getAddressFromString(addressString, addressStrings);
+            property = PropertyReader.getPropertyFromString(propertyString, address);
+        }
+        catch(RuntimeException exception)
+        {
+            reject(rejects, exception.toString(), addressString, propertyString);
+            return;
+        }
+
+        if(property == null)
+        {
+            reject(rejects, "Unknown property type", addressString, propertyString);
+            return;
+        }
+
+        agency.addProperty(property);
+        uncommittedProperties.add(property);
+        loadedCount++;
+    }
+
+
+    /**
+     * Writes one rejected record as "lineNumber, reason, address line, property line" separated by tabs.
+     *
+     * @param rejects        the writer for the reject file
+     * @param reason         why the record was rejected
+     * @param addressString  the address line of the record
+     * @param propertyString the property line of the record
+     * @throws IOException if the reject file cannot be written
+     */
+    private void reject(final Writer rejects,
+                        final String reason,
+                        final String addressString,
+                        final String propertyString) throws IOException
+    {
+        rejects.write(Long.toString(lineNumber));
+        rejects.write(REJECT_SEPARATOR);
+        rejects.write(reason.replace('\n', ' ').replace(REJECT_SEPARATOR, ' '));
+        rejects.write(REJECT_SEPARATOR);
+        rejects.write(addressString);
+        rejects.write(REJECT_SEPARATOR);
+        rejects.write(propertyString);
+        rejects.write('\n');
+
+        rejectedCount++;
+    }
+
+
+    /**
+     * Commits the progress made so far: the rejects are flushed, the properties loaded since the last commit
+     * are appended to the journal, and only then is the checkpoint replaced, so a checkpoint never points past
+     * its journal.
+     *
+     * @param rejects the writer for the reject file
+     * @param journal the stream for the journal file
+     * @throws IOException if a file cannot be written
+     */
+    private void commit(final Writer rejects,
+                        final DataOutputStream journal) throws IOException
+    {
+        final File temporaryFile;
+
+        rejects.flush();
+        AgencySnapshot.writeJournalBlock(journal, uncommittedProperties);
+        journal.flush();
+        uncommittedProperties.clear();
+        journalBlocks++;
+
+        temporaryFile = new File(checkpointFile.getPath() + TEMPORARY_SUFFIX);
+
+        try(DataOutputStream output = new DataOutputStream(new FileOutputStream(temporaryFile)))
+        {
+            output.writeInt(CHECKPOINT_VERSION);
+            output.writeLong(addressStamp.getLength());
+            output.writeLong(addressStamp.getLastModified());
+            output.writeLong(propertyStamp.getLength());
+            output.writeLong(propertyStamp.getLastModified());
+            output.writeLong(lineNumber);
+            output.writeLong(addressOffset);
+            output.writeLong(propertyOffset);
+            output.writeLong(rejectFile.length());
+            output.writeLong(journalFile.length());
+            output.writeLong(journalBlocks);
+            output.writeLong(loadedCount);
+            output.writeLong(rejectedCount);
+        }
+
+        Files.move(temporaryFile.toPath(), checkpointFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                   StandardCopyOption.ATOMIC_MOVE);
+    }
+
+
+    /**
+     * Restores the progress of the last commit, dropping the rejects and journal blocks written after it.
+     *
+     * @throws IOException if the checkpoint cannot be read, has an unsupported version
+     *                     or was written while either data file was different
+     */
+    private void readCheckpoint() throws IOException
+    {
+        final int version;
+        final long rejectLength;
+        final long journalLength;
+
+        addressStamp = AgencySnapshot.SourceStamp.of(addressFile);
+        propertyStamp = AgencySnapshot.SourceStamp.of(propertyFile);
+
+        try(DataInputStream input = new DataInputStream(new FileInputStream(checkpointFile)))
+        {
+            version = input.readInt();
+
+            if(version != CHECKPOINT_VERSION)
+            {
+                throw new IOException("Unsupported checkpoint version: " + version);
+            }
+
+            checkSource(addressFile, addressStamp, input.readLong(), input.readLong());
+            checkSource(propertyFile, propertyStamp, input.readLong(), input.readLong());
+
+            lineNumber = input.readLong();
+            addressOffset = input.readLong();
+            propertyOffset = input.readLong();
+            rejectLength = input.readLong();
+            journalLength = input.readLong();
+            journalBlocks = input.readLong();
+            loadedCount = input.readLong();
+            rejectedCount = input.readLong();
+        }
+
+        truncate(rejectFile, rejectLength);
+        truncate(journalFile, journalLength);
+    }
+
+
+    /**
+     * Checks that a data file is the one the checkpoint was written for.
+     *
+     * @param file         the data file
+     * @param stamp        the current stamp of the data file
+     * @param length       the length of the data file recorded in the checkpoint
+     * @param lastModified the last-modified time of the data file recorded in the checkpoint
+     * @throws IOException if the data file has changed since the checkpoint was written
+     */
+    private static void checkSource(final File file,
+                                    final AgencySnapshot.SourceStamp stamp,
+                                    final long length,
+                                    final long lastModified) throws IOException
+    {
+        if(stamp.getLength() != length || stamp.getLastModified() != lastModified)
+        {
+            throw new IOException("Data file changed since the checkpoint was written: " + file);
+        }
+    }
+
+
+    /**
+     * Cuts a file down to the given length, creating it if it does not exist.
+     *
+     * @param file   the file to truncate
+     * @param length the length to keep
+     * @throws IOException if the file cannot be truncated
+     */
+    private static void truncate(final File file,
+                                 final long length) throws IOException
+    {
+        try(FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE,
+                                                   StandardOpenOption.WRITE))
+        {
+            channel.truncate(length);
+        }
+    }
+
+
+    /**
+     * @return the number of records added to the agency, including those restored from a checkpoint
+     */
+    public long getLoadedCount()
+    {
+        return loadedCount;
+    }
+
+
+    /**
+     * @return the number of records written to the reject file, including those before a checkpoint
+     */
+    public long getRejectedCount()
+    {
+        return rejectedCount;
+    }
+}
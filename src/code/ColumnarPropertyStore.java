@@ -0,0 +1,685 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+
+/**
+ * ColumnarPropertyStore of BCIT
+ * <p>
+ * Stores properties column by column instead of as objects: each property is a slot, and each field is an array
+ * indexed by slot. Prices are a double[] column, bedrooms and square footage are int[] columns, the yes/no
+ * features are bit columns, and street, city and type names are int codes into a StringDictionary. A query is a
+ * sequential loop over the one or two columns it needs, without following a pointer per property, so scans over
+ * millions of properties run at the speed memory can be read.
+ * <p>
+ * Property and Address objects are only built for the results of a query, from the columns, so every call returns
+ * new objects: changing their price does not change the store. Replace the property with addProperty instead.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class ColumnarPropertyStore extends SlottedPropertyStore
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final PackedSlotMap slots;
+    private final BitSet liveSlots;
+    private final BitSet swimmingPools;
+    private final BitSet strata;
+    private final BitSet loadingDocks;
+    private final BitSet highwayAccess;
+    private final BitSet customerParking;
+    private int slotCount;
+
+    private String[] propertyIds;
+    private byte[] kinds;
+    private double[] pricesUsd;
+    private int[] typeCodes;
+    private int[] bedrooms;
+    private int[] squareFootages;
+    private String[] unitNumbers;
+    private int[] streetNumbers;
+    private int[] streetNameCodes;
+    private String[] postalCodes;
+    private int[] cityCodes;
+
+    /**
+     * Creates an empty columnar store.
+     */
+    public ColumnarPropertyStore()
+    {
+        this.slots = new PackedSlotMap();
+        this.liveSlots = new BitSet();
+        this.swimmingPools = new BitSet();
+        this.strata = new BitSet();
+        this.loadingDocks = new BitSet();
+        this.highwayAccess = new BitSet();
+        this.customerParking = new BitSet();
+
+        this.propertyIds = new String[INITIAL_CAPACITY];
+        this.kinds = new byte[INITIAL_CAPACITY];
+        this.pricesUsd = new double[INITIAL_CAPACITY];
+        this.typeCodes = new int[INITIAL_CAPACITY];
+        this.bedrooms = new int[INITIAL_CAPACITY];
+        this.squareFootages = new int[INITIAL_CAPACITY];
+        this.unitNumbers = new String[INITIAL_CAPACITY];
+        this.streetNumbers = new int[INITIAL_CAPACITY];
+        this.streetNameCodes = new int[INITIAL_CAPACITY];
+        this.postalCodes = new String[INITIAL_CAPACITY];
+        this.cityCodes = new int[INITIAL_CAPACITY];
+    }
+
+
+    /**
+     * Copies a property into the columns, replacing a property with the same property ID.
+     *
+     * @param property The property to be added; null is ignored.
+     */
+    @Override
+    public void addProperty(final Property property)
+    {
+        final Address address;
+        final int slot;
+
+        if(property == null)
+        {
+            return;
+        }
+
+        removeProperty(property.getPropertyId());
+
+        slot = allocateSlot();
+        address = property.getAddress();
+
+        slots.put(property.getPropertyId(), slot);
+        liveSlots.set(slot);
+
+        propertyIds[slot] = property.getPropertyId();
+        pricesUsd[slot] = property.getPriceUsd();
+        typeCodes[slot] = types.encode(property.getType());
+        unitNumbers[slot] = address.getUnitNumber();
+        streetNumbers[slot] = address.getStreetNumber();
+        streetNameCodes[slot] = streetNames.encode(address.getStreetName());
+        postalCodes[slot] = address.getPostalCode();
+        cityCodes[slot] = cities.encode(address.getCity());
+        bedrooms[slot] = 0;
+        squareFootages[slot] = 0;
+
+        if(property instanceof Residence)
+        {
+            kinds[slot] = RESIDENCE_KIND;
+            bedrooms[slot] = ((Residence) property).getNumberOfBedrooms();
+            swimmingPools.set(slot, ((Residence) property).hasSwimmingPool());
+            strata.set(slot, ((Residence) property).hasStrata());
+        }
+        else if(property instanceof Commercial)
+        {
+            kinds[slot] = COMMERCIAL_KIND;
+            loadingDocks.set(slot, ((Commercial) property).hasLoadingDock());
+            highwayAccess.set(slot, ((Commercial) property).hasHighwayAccess());
+        }
+        else if(property instanceof Retail)
+        {
+            kinds[slot] = RETAIL_KIND;
+            squareFootages[slot] = ((Retail) property).getSquareFootage();
+            customerParking.set(slot, ((Retail) property).hasCustomerParking());
+        }
+        else
+        {
+            kinds[slot] = PROPERTY_KIND;
+        }
+    }
+
+
+    /**
+     * Hands out a free slot, growing the columns when every slot is taken.
+     *
+     * @return the slot
+     */
+    private int allocateSlot()
+    {
+        final int freeSlot;
+        final int capacity;
+
+        freeSlot = takeFreeSlot();
+
+        if(freeSlot != PackedSlotMap.NO_SLOT)
+        {
+            return freeSlot;
+        }
+
+        if(slotCount == propertyIds.length)
+        {
+            capacity = slotCount * 2;
+            propertyIds = Arrays.copyOf(propertyIds, capacity);
+            kinds = Arrays.copyOf(kinds, capacity);
+            pricesUsd = Arrays.copyOf(pricesUsd, capacity);
+            typeCodes = Arrays.copyOf(typeCodes, capacity);
+            bedrooms = Arrays.copyOf(bedrooms, capacity);
+            squareFootages = Arrays.copyOf(squareFootages, capacity);
+            unitNumbers = Arrays.copyOf(unitNumbers, capacity);
+            streetNumbers = Arrays.copyOf(streetNumbers, capacity);
+            streetNameCodes = Arrays.copyOf(streetNameCodes, capacity);
+            postalCodes = Arrays.copyOf(postalCodes, capacity);
+            cityCodes = Arrays.copyOf(cityCodes, capacity);
+        }
+
+        return slotCount++;
+    }
+
+
+    /**
+     * Removes a property based on its property ID and frees its slot.
+     *
+     * @param propertyId The property ID of the property to be removed.
+     */
+    @Override
+    public void removeProperty(final String propertyId)
+    {
+        final int slot;
+
+        if(propertyId == null)
+        {
+            return;
+        }
+
+        slot = slots.remove(propertyId);
+
+        if(slot == PackedSlotMap.NO_SLOT)
+        {
+            return;
+        }
+
+        liveSlots.clear(slot);
+        swimmingPools.clear(slot);
+        strata.clear(slot);
+        loadingDocks.clear(slot);
+        highwayAccess.clear(slot);
+        customerParking.clear(slot);
+        propertyIds[slot] = null;
+        unitNumbers[slot] = null;
+        postalCodes[slot] = null;
+        freeSlot(slot);
+    }
+
+
+    /**
+     * Builds the property with a property ID from the columns.
+     *
+     * @param propertyId The property ID of the desired property.
+     * @return A new Property object with the stored details, or null if not found.
+     */
+    @Override
+    public Property getProperty(final String propertyId)
+    {
+        final int slot;
+
+        slot = slots.get(propertyId);
+
+        if(slot == PackedSlotMap.NO_SLOT)
+        {
+            return null;
+        }
+
+        return propertyAt(slot);
+    }
+
+
+    /**
+     * @return The number of properties in the store.
+     */
+    public int size()
+    {
+        return slots.size();
+    }
+
+
+    /**
+     * Sums the price column with compensated summation.
+     *
+     * @return The total value of all properties in USD.
+     */
+    @Override
+    public double getTotalPropertyValues()
+    {
+        double sumUsd;
+        double compensationUsd;
+        double newSumUsd;
+
+        sumUsd = 0;
+        compensationUsd = 0;
+
+        for(int slot = liveSlots.nextSetBit(0); slot >= 0; slot = liveSlots.nextSetBit(slot + 1))
+        {
+            newSumUsd = sumUsd + pricesUsd[slot];
+
+            if(Math.abs(sumUsd) >= Math.abs(pricesUsd[slot]))
+            {
+                compensationUsd += (sumUsd - newSumUsd) + pricesUsd[slot];
+            }
+            else
+            {
+                compensationUsd += (pricesUsd[slot] - newSumUsd) + sumUsd;
+            }
+
+            sumUsd = newSumUsd;
+        }
+
+        return sumUsd + compensationUsd;
+    }
+
+
+    /**
+     * @return A list of residences with swimming pools, or null if none found.
+     */
+    @Override
+    public ArrayList<Residence> getPropertiesWithPools()
+    {
+        return collect(swimmingPools, Residence.class);
+    }
+
+
+    /**
+     * Scans the price column.
+     *
+     * @param minUsd The minimum price in USD.
+     * @param maxUsd The maximum price in USD.
+     * @return An array of properties within the specified price range (inclusive), or null if none found.
+     */
+    @Override
+    public Property[] getPropertiesBetween(final double minUsd,
+                                           final double maxUsd)
+    {
+        final ArrayList<Property> propertiesBetween;
+
+        propertiesBetween = new ArrayList<>();
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            if(pricesUsd[slot] >= minUsd && pricesUsd[slot] <= maxUsd && liveSlots.get(slot))
+            {
+                propertiesBetween.add(propertyAt(slot));
+            }
+        }
+
+        if(propertiesBetween.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesBetween.toArray(new Property[0]);
+    }
+
+
+    /**
+     * Looks up the codes of the street in the dictionary, then scans the street code column.
+     *
+     * @param streetName The name of the street, matched ignoring case.
+     * @return A list of addresses for properties on the specified street, or null if none found.
+     */
+    @Override
+    public ArrayList<Address> getPropertiesOn(final String streetName)
+    {
+        final boolean[] matchingCodes;
+        final ArrayList<Address> addressesOn;
+
+        if(streetName == null)
+        {
+            return null;
+        }
+
+        matchingCodes = streetNames.codesEqualIgnoreCase(streetName);
+        addressesOn = new ArrayList<>();
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            if(matchingCodes[streetNameCodes[slot]] && liveSlots.get(slot))
+            {
+                addressesOn.add(addressAt(slot));
+            }
+        }
+
+        if(addressesOn.isEmpty())
+        {
+            return null;
+        }
+
+        return addressesOn;
+    }
+
+
+    /**
+     * Scans the kind and bedroom columns.
+     *
+     * @param minBedrooms The minimum number of bedrooms.
+     * @param maxBedrooms The maximum number of bedrooms.
+     * @return A map from propertyId to the residences with the specified number of bedrooms, or null if none found.
+     */
+    @Override
+    public HashMap<String, Residence> getPropertiesWithBedrooms(final int minBedrooms,
+                                                               final int maxBedrooms)
+    {
+        final HashMap<String, Residence> propertiesWithBedrooms;
+
+        propertiesWithBedrooms = new HashMap<>();
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            if(kinds[slot] == RESIDENCE_KIND && bedrooms[slot] >= minBedrooms && bedrooms[slot] <= maxBedrooms &&
+                    liveSlots.get(slot))
+            {
+                propertiesWithBedrooms.put(propertyIds[slot], (Residence) propertyAt(slot));
+            }
+        }
+
+        if(propertiesWithBedrooms.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesWithBedrooms;
+    }
+
+
+    /**
+     * Looks up the codes of the type in the dictionary, then scans the type code column.
+     *
+     * @param propertyType The type of property, matched ignoring case.
+     * @return A list of properties of the specified type, which is empty if none found.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesOfType(final String propertyType)
+    {
+        final boolean[] matchingCodes;
+        final ArrayList<Property> propertiesOfType;
+
+        propertiesOfType = new ArrayList<>();
+
+        if(propertyType == null)
+        {
+            return propertiesOfType;
+        }
+
+        matchingCodes = types.codesEqualIgnoreCase(propertyType);
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            if(matchingCodes[typeCodes[slot]] && liveSlots.get(slot))
+            {
+                propertiesOfType.add(propertyAt(slot));
+            }
+        }
+
+        return propertiesOfType;
+    }
+
+
+    /**
+     * @return A list of Commercial properties with loading docks, or null if none found.
+     */
+    @Override
+    public ArrayList<Commercial> getPropertiesWithLoadingDocks()
+    {
+        return collect(loadingDocks, Commercial.class);
+    }
+
+
+    /**
+     * @return A list of Commercial properties with highway access, or null if none found.
+     */
+    @Override
+    public ArrayList<Commercial> getPropertiesWithHighwayAccess()
+    {
+        return collect(highwayAccess, Commercial.class);
+    }
+
+
+    /**
+     * @return A list of Retail properties with customer parking, or null if none found.
+     */
+    @Override
+    public ArrayList<Retail> getPropertiesWithCustomerParking()
+    {
+        return collect(customerParking, Retail.class);
+    }
+
+
+    /**
+     * @return A list of residences in a strata, or null if none found.
+     */
+    @Override
+    public ArrayList<Residence> getPropertiesWithStrata()
+    {
+        return collect(strata, Residence.class);
+    }
+
+
+    /**
+     * Builds the properties whose bit is set in a feature column.
+     *
+     * @param featureColumn the feature column
+     * @param type          the kind of property the feature belongs to
+     * @param <T>           the kind of property the feature belongs to
+     * @return a list of the properties having the feature, or null if none found
+     */
+    private <T extends Property> ArrayList<T> collect(final BitSet featureColumn,
+                                                      final Class<T> type)
+    {
+        final ArrayList<T> propertiesWithFeature;
+
+        propertiesWithFeature = new ArrayList<>();
+
+        for(int slot = featureColumn.nextSetBit(0); slot >= 0; slot = featureColumn.nextSetBit(slot + 1))
+        {
+            propertiesWithFeature.add(type.cast(propertyAt(slot)));
+        }
+
+        if(propertiesWithFeature.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesWithFeature;
+    }
+
+
+    @Override
+    int slotLimit()
+    {
+        return slotCount;
+    }
+
+
+    @Override
+    boolean isLive(final int slot)
+    {
+        return liveSlots.get(slot);
+    }
+
+
+    @Override
+    byte kindAt(final int slot)
+    {
+        return kinds[slot];
+    }
+
+
+    @Override
+    double priceAt(final int slot)
+    {
+        return pricesUsd[slot];
+    }
+
+
+    @Override
+    int typeCodeAt(final int slot)
+    {
+        return typeCodes[slot];
+    }
+
+
+    @Override
+    int streetNameCodeAt(final int slot)
+    {
+        return streetNameCodes[slot];
+    }
+
+
+    @Override
+    int cityCodeAt(final int slot)
+    {
+        return cityCodes[slot];
+    }
+
+
+    @Override
+    int postalCodeLength(final int slot)
+    {
+        return postalCodes[slot].length();
+    }
+
+
+    @Override
+    char postalCodeCharAt(final int slot,
+                          final int index)
+    {
+        return postalCodes[slot].charAt(index);
+    }
+
+
+    @Override
+    int bedroomsAt(final int slot)
+    {
+        return bedrooms[slot];
+    }
+
+
+    @Override
+    int squareFootageAt(final int slot)
+    {
+        return squareFootages[slot];
+    }
+
+
+    @Override
+    boolean hasFeatureAt(final int slot,
+                         final PropertyFeature feature)
+    {
+        return featureColumn(feature).get(slot);
+    }
+
+
+    @Override
+    String propertyIdAt(final int slot)
+    {
+        return propertyIds[slot];
+    }
+
+
+    @Override
+    int propertyIdLength(final int slot)
+    {
+        return propertyIds[slot].length();
+    }
+
+
+    @Override
+    char propertyIdCharAt(final int slot,
+                          final int index)
+    {
+        return propertyIds[slot].charAt(index);
+    }
+
+
+    /**
+     * Copies the feature column instead of scanning the slots.
+     *
+     * @param feature the feature to look up
+     * @return a new bitmap of the slots having the feature
+     */
+    @Override
+    BitSet slotsWith(final PropertyFeature feature)
+    {
+        return (BitSet) featureColumn(feature).clone();
+    }
+
+
+    /**
+     * Copies the column of live slots instead of scanning the slots.
+     *
+     * @return a new bitmap of the live slots
+     */
+    @Override
+    BitSet liveSlots()
+    {
+        return (BitSet) liveSlots.clone();
+    }
+
+
+    /**
+     * @param feature a feature
+     * @return the bit column of the feature
+     */
+    private BitSet featureColumn(final PropertyFeature feature)
+    {
+        switch(feature)
+        {
+            case SWIMMING_POOL:
+                return swimmingPools;
+            case STRATA:
+                return strata;
+            case LOADING_DOCK:
+                return loadingDocks;
+            case HIGHWAY_ACCESS:
+                return highwayAccess;
+            default:
+                return customerParking;
+        }
+    }
+
+
+    /**
+     * Builds a property from the columns of a slot. The values were validated when the property was added,
+     * so the objects are built without validating them again.
+     *
+     * @param slot the slot of the property
+     * @return a new Property object of the stored kind
+     */
+    @Override
+    Property propertyAt(final int slot)
+    {
+        final Address address;
+        final String type;
+
+        address = addressAt(slot);
+        type = types.decode(typeCodes[slot]);
+
+        switch(kinds[slot])
+        {
+            case RESIDENCE_KIND:
+                return new Residence(pricesUsd[slot], address, bedrooms[slot], swimmingPools.get(slot), type,
+                                     propertyIds[slot], strata.get(slot), false);
+            case COMMERCIAL_KIND:
+                return new Commercial(pricesUsd[slot], address, type, propertyIds[slot], loadingDocks.get(slot),
+                                      highwayAccess.get(slot), false);
+            case RETAIL_KIND:
+                return new Retail(pricesUsd[slot], address, type, propertyIds[slot], squareFootages[slot],
+                                  customerParking.get(slot), false);
+            default:
+                return new Property(pricesUsd[slot], address, type, propertyIds[slot], false);
+        }
+    }
+
+
+    /**
+     * Builds an address from the columns of a slot.
+     *
+     * @param slot the slot of the property
+     * @return a new Address object
+     */
+    private Address addressAt(final int slot)
+    {
+        return new Address(unitNumbers[slot], streetNumbers[slot], streetNames.decode(streetNameCodes[slot]),
+                           postalCodes[slot], cities.decode(cityCodes[slot]), false);
+    }
+}
@@ -25,11 +25,36 @@ public class Commercial extends Property
                       final String propertyId,
                       final boolean loadingDock,
                       final boolean highwayAccess)
+    {
+        this(priceUsd, address, type, propertyId, loadingDock, highwayAccess, true);
+    }
+
+
+    /**
+     * Constructs a new Commercial property, optionally skipping validation.
+     * Only data that was validated before, such as an Agency snapshot, may be restored without validation.
+     *
+     * @param priceUsd      The price of the commercial property in USD.
+     * @param address       The address of the commercial property.
+     * @param type          The type of the commercial property.
+     * @param propertyId    The unique identifier of the commercial property.
+     * @param loadingDock   Indicates whether the commercial property has a loading dock.
+     * @param highwayAccess Indicates whether the commercial property has highway access.
+     * @param validate      true to validate the details as the public constructor does, false to trust them.
+     */
+    Commercial(final double priceUsd,
+               final Address address,
+               final String type,
+               final String propertyId,
+               final boolean loadingDock,
+               final boolean highwayAccess,
+               final boolean validate)
     {
         super(priceUsd,
               address,
               type,
-              propertyId);
+              propertyId,
+              validate);
 
         this.loadingDock = loadingDock;
         this.highwayAccess = highwayAccess;
@@ -0,0 +1,275 @@
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * CompressedLineReader of BCIT
+ * <p>
+ * Reads a gzip-compressed text file one line at a time without decompressing it to disk.
+ * A background thread decompresses the file into chunks and hands them over through a small queue,
+ * so decompression of the next chunks overlaps with parsing the lines of the current one.
+ * close() stops the thread and waits for it before closing the file, so the inflater is never
+ * closed while the thread is still using it.
+ * Like the Scanner loops it replaces, nextLine() skips the blank lines at the end of the file.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class CompressedLineReader implements LineReader
+{
+    private static final int CHUNK_SIZE = 1 << 16;
+    private static final int CHUNKS_AHEAD = 16;
+    private static final ByteBuffer END_OF_STREAM = ByteBuffer.allocate(0);
+
+    private final InputStream input;
+    private final BlockingQueue<ByteBuffer> chunks;
+    private final Thread decompressor;
+    private final Deque<String> heldLines;
+    private final LineBuffer line;
+    private volatile IOException failure;
+    private volatile boolean closed;
+    private ByteBuffer chunk;
+
+    /**
+     * Opens a gzip-compressed file and starts decompressing it in the background.
+     *
+     * @param file the File object representing the gzip-compressed file to read
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be opened or is not in gzip format
+     */
+    public CompressedLineReader(final File file) throws IOException
+    {
+        final FileInputStream fileInput;
+
+        if(!file.isFile())
+        {
+            throw new FileNotFoundException("File Not Found");
+        }
+
+        fileInput = new FileInputStream(file);
+
+        try
+        {
+            this.input = new GZIPInputStream(fileInput, CHUNK_SIZE);
+        }
+        catch(IOException | RuntimeException exception)
+        {
+            fileInput.close();
+            throw exception;
+        }
+
+        this.chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+        this.line = new LineBuffer();
+        this.heldLines = new ArrayDeque<>();
+        this.decompressor = new Thread(this::decompress, "decompressor-" + file.getName());
+        this.decompressor.setDaemon(true);
+        this.decompressor.start();
+    }
+
+
+    /**
+     * Runs on the background thread: decompresses the file into chunks until the end of the stream,
+     * a read error, or close().
+     */
+    private void decompress()
+    {
+        byte[] buffer;
+        int bytesRead;
+
+        try
+        {
+            while(!closed)
+            {
+                buffer = new byte[CHUNK_SIZE];
+                bytesRead = input.readNBytes(buffer, 0, CHUNK_SIZE);
+
+                if(bytesRead == 0)
+                {
+                    break;
+                }
+
+                chunks.put(ByteBuffer.wrap(buffer, 0, bytesRead));
+            }
+        }
+        catch(IOException ioException)
+        {
+            failure = ioException;
+        }
+        catch(InterruptedException interruptedException)
+        {
+            return;
+        }
+
+        if(closed)
+        {
+            return;
+        }
+
+        try
+        {
+            chunks.put(END_OF_STREAM);
+        }
+        catch(InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+
+    /**
+     * Reads the next decompressed line. Both "\n" and "\r\n" line terminators are accepted.
+     * A last line without a terminator is returned as well. Blank lines are held back until a line
+     * with text follows them, so the blank lines at the end of the file are skipped.
+     *
+     * @return the next line without its line terminator, or null if the end of the file was reached
+     * @throws IOException if the file cannot be read or decompressed
+     */
+    @Override
+    public String nextLine() throws IOException
+    {
+        String nextLine;
+
+        if(!heldLines.isEmpty())
+        {
+            return heldLines.removeFirst();
+        }
+
+        nextLine = readLine();
+
+        while(nextLine != null && nextLine.isBlank())
+        {
+            heldLines.addLast(nextLine);
+            nextLine = readLine();
+        }
+
+        if(nextLine == null)
+        {
+            heldLines.clear();
+            return null;
+        }
+
+        if(heldLines.isEmpty())
+        {
+            return nextLine;
+        }
+
+        heldLines.addLast(nextLine);
+
+        return heldLines.removeFirst();
+    }
+
+
+    /**
+     * Reads the next decompressed line, blank or not.
+     *
+     * @return the next line without its line terminator, or null if the end of the file was reached
+     * @throws IOException if the file cannot be read or decompressed
+     */
+    private String readLine() throws IOException
+    {
+        line.clear();
+
+        while(true)
+        {
+            if(chunk == null || !chunk.hasRemaining())
+            {
+                if(!takeNextChunk())
+                {
+                    if(line.isEmpty())
+                    {
+                        return null;
+                    }
+
+                    return line.decode();
+                }
+            }
+
+            if(line.append(chunk))
+            {
+                return line.decode();
+            }
+        }
+    }
+
+
+    /**
+     * Waits for the background thread to hand over the next chunk.
+     *
+     * @return true if a chunk was taken, false if the end of the stream was reached
+     * @throws IOException if decompression failed or the calling thread was interrupted
+     */
+    private boolean takeNextChunk() throws IOException
+    {
+        if(chunk == END_OF_STREAM)
+        {
+            return false;
+        }
+
+        try
+        {
+            chunk = chunks.take();
+        }
+        catch(InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while decompressing");
+        }
+
+        if(chunk == END_OF_STREAM)
+        {
+            if(failure != null)
+            {
+                throw failure;
+            }
+
+            return false;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Stops the background thread, waits for it to finish its current read, and only then closes the file.
+     * If the calling thread is interrupted while waiting, it keeps waiting and its interrupt status is restored.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        boolean interrupted;
+
+        closed = true;
+        decompressor.interrupt();
+        interrupted = false;
+
+        while(decompressor.isAlive())
+        {
+            try
+            {
+                decompressor.join();
+            }
+            catch(InterruptedException interruptedException)
+            {
+                interrupted = true;
+            }
+        }
+
+        if(interrupted)
+        {
+            Thread.currentThread().interrupt();
+        }
+
+        input.close();
+    }
+}
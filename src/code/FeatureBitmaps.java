@@ -0,0 +1,26 @@
+import java.util.BitSet;
+
+/**
+ * FeatureBitmaps of BCIT
+ * <p>
+ * The bitmaps a FeatureFilter is evaluated against: one bit per property of a store, set in the bitmap of each
+ * feature the property has. Agency numbers its properties with the ordinals of its FeatureIndex; the column and
+ * off-heap stores use their slots.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public interface FeatureBitmaps
+{
+    /**
+     * @param feature the feature to look up
+     * @return a copy of the bitmap of the properties having the feature
+     */
+    BitSet copyOf(PropertyFeature feature);
+
+
+    /**
+     * @return a copy of the bitmap of every property in the store
+     */
+    BitSet copyOfAll();
+}
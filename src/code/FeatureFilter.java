@@ -0,0 +1,83 @@
+import java.util.BitSet;
+
+/**
+ * FeatureFilter of BCIT
+ * <p>
+ * A combination of listing features, such as "pool and strata" or "loading dock or highway access",
+ * that a PropertyStore answers from its feature bitmaps. Filters are combined with and(), or() and not();
+ * not() selects the properties of the store that do not match, whatever their kind.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+@FunctionalInterface
+public interface FeatureFilter
+{
+    /**
+     * Computes the set of properties that match the filter.
+     *
+     * @param index the feature bitmaps of the store being queried
+     * @return a new bitmap with the bits of the matching properties set
+     */
+    BitSet select(FeatureBitmaps index);
+
+
+    /**
+     * @param feature the feature the properties must have
+     * @return a filter that matches the properties having the feature
+     */
+    static FeatureFilter has(final PropertyFeature feature)
+    {
+        return index -> index.copyOf(feature);
+    }
+
+
+    /**
+     * @param other the filter the properties must match as well
+     * @return a filter that matches the properties matching both filters
+     */
+    default FeatureFilter and(final FeatureFilter other)
+    {
+        return index -> {
+            final BitSet selected;
+
+            selected = select(index);
+            selected.and(other.select(index));
+
+            return selected;
+        };
+    }
+
+
+    /**
+     * @param other the filter the properties may match instead
+     * @return a filter that matches the properties matching either filter
+     */
+    default FeatureFilter or(final FeatureFilter other)
+    {
+        return index -> {
+            final BitSet selected;
+
+            selected = select(index);
+            selected.or(other.select(index));
+
+            return selected;
+        };
+    }
+
+
+    /**
+     * @return a filter that matches the properties of the store that do not match this filter
+     */
+    default FeatureFilter not()
+    {
+        return index -> {
+            final BitSet selected;
+
+            selected = index.copyOfAll();
+            selected.andNot(select(index));
+
+            return selected;
+        };
+    }
+}
@@ -0,0 +1,210 @@
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Deque;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * FeatureIndex of BCIT
+ * <p>
+ * Keeps one bitmap per PropertyFeature over the properties of an Agency. Every property is given a
+ * dense ordinal, which is its bit in the bitmaps; the ordinal of a removed property is handed to the
+ * next property added, so the bitmaps stay as small as the agency. Combining features with a
+ * FeatureFilter is then a few word-wide bitmap operations instead of a scan over the properties.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class FeatureIndex implements FeatureBitmaps
+{
+    private final Map<String, Integer> ordinals;
+    private final List<Property> propertiesByOrdinal;
+    private final Deque<Integer> freeOrdinals;
+    private final BitSet allProperties;
+    private final Map<PropertyFeature, BitSet> propertiesByFeature;
+
+    /**
+     * Creates an empty feature index.
+     */
+    public FeatureIndex()
+    {
+        this.ordinals = new HashMap<>();
+        this.propertiesByOrdinal = new ArrayList<>();
+        this.freeOrdinals = new ArrayDeque<>();
+        this.allProperties = new BitSet();
+        this.propertiesByFeature = new EnumMap<>(PropertyFeature.class);
+
+        for(final PropertyFeature feature : PropertyFeature.values())
+        {
+            propertiesByFeature.put(feature, new BitSet());
+        }
+    }
+
+
+    /**
+     * Gives a property an ordinal and sets its bit in the bitmaps of the features it has.
+     * A property with the same property ID must have been removed first.
+     *
+     * @param property the property to add
+     */
+    void add(final Property property)
+    {
+        final int ordinal;
+
+        if(freeOrdinals.isEmpty())
+        {
+            ordinal = propertiesByOrdinal.size();
+            propertiesByOrdinal.add(property);
+        }
+        else
+        {
+            ordinal = freeOrdinals.pop();
+            propertiesByOrdinal.set(ordinal, property);
+        }
+
+        ordinals.put(property.getPropertyId(), ordinal);
+        allProperties.set(ordinal);
+
+        for(final PropertyFeature feature : PropertyFeature.values())
+        {
+            if(feature.isPresentIn(property))
+            {
+                propertiesByFeature.get(feature).set(ordinal);
+            }
+        }
+    }
+
+
+    /**
+     * Clears the bits of a property and frees its ordinal.
+     *
+     * @param property the property to remove
+     */
+    void remove(final Property property)
+    {
+        final Integer ordinal;
+
+        ordinal = ordinals.remove(property.getPropertyId());
+
+        if(ordinal == null)
+        {
+            return;
+        }
+
+        propertiesByOrdinal.set(ordinal, null);
+        allProperties.clear(ordinal);
+
+        for(final BitSet propertiesWithFeature : propertiesByFeature.values())
+        {
+            propertiesWithFeature.clear(ordinal);
+        }
+
+        freeOrdinals.push(ordinal);
+    }
+
+
+    /**
+     * @param feature the feature to look up
+     * @return a copy of the bitmap of the properties having the feature
+     */
+    @Override
+    public BitSet copyOf(final PropertyFeature feature)
+    {
+        return (BitSet) propertiesByFeature.get(feature).clone();
+    }
+
+
+    /**
+     * @return a copy of the bitmap of every property in the index
+     */
+    @Override
+    public BitSet copyOfAll()
+    {
+        return (BitSet) allProperties.clone();
+    }
+
+
+    /**
+     * Lists the properties whose bits are set in a bitmap computed from this index.
+     *
+     * @param selected a bitmap returned by FeatureFilter.select for this index
+     * @return the selected properties, in ordinal order
+     */
+    List<Property> propertiesOf(final BitSet selected)
+    {
+        final List<Property> selectedProperties;
+
+        selectedProperties = new ArrayList<>(selected.cardinality());
+
+        for(int ordinal = selected.nextSetBit(0); ordinal >= 0; ordinal = selected.nextSetBit(ordinal + 1))
+        {
+            selectedProperties.add(propertiesByOrdinal.get(ordinal));
+        }
+
+        return selectedProperties;
+    }
+
+
+    /**
+     * Counts the properties that match a filter without visiting them.
+     *
+     * @param filter the combination of features to match
+     * @return the number of matching properties
+     */
+    public int count(final FeatureFilter filter)
+    {
+        return filter.select(this).cardinality();
+    }
+
+
+    /**
+     * Passes every property that matches a filter to the consumer, in ordinal order.
+     *
+     * @param filter   the combination of features to match
+     * @param consumer receives each matching property
+     */
+    public void forEach(final FeatureFilter filter,
+                        final Consumer<Property> consumer)
+    {
+        final BitSet selected;
+
+        selected = filter.select(this);
+
+        for(int ordinal = selected.nextSetBit(0); ordinal >= 0; ordinal = selected.nextSetBit(ordinal + 1))
+        {
+            consumer.accept(propertiesByOrdinal.get(ordinal));
+        }
+    }
+
+
+    /**
+     * Passes every property having a single feature to the consumer, in ordinal order.
+     * The bitmap of the feature is read in place rather than copied, so the consumer must not change the index.
+     *
+     * @param feature  the feature to match
+     * @param consumer receives each property having the feature
+     * @return the number of properties passed to the consumer
+     */
+    int forEachWith(final PropertyFeature feature,
+                    final Consumer<? super Property> consumer)
+    {
+        final BitSet propertiesWithFeature;
+        int count;
+
+        propertiesWithFeature = propertiesByFeature.get(feature);
+        count = 0;
+
+        for(int ordinal = propertiesWithFeature.nextSetBit(0); ordinal >= 0;
+            ordinal = propertiesWithFeature.nextSetBit(ordinal + 1))
+        {
+            consumer.accept(propertiesByOrdinal.get(ordinal));
+            count++;
+        }
+
+        return count;
+    }
+}
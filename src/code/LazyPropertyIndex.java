@@ -0,0 +1,319 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * LazyPropertyIndex of BCIT
+ * <p>
+ * Indexes the address and property files by propertyId without building any Property or Address objects.
+ * Only the propertyId column and the byte offsets of each pair of lines are kept; a record is read back
+ * from the files and parsed the first time it is asked for. The files must not change while the index is in use.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class LazyPropertyIndex implements Closeable
+{
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private final FileChannel addressChannel;
+    private final FileChannel propertyChannel;
+    private final Map<String, Integer> slots;
+    private final StringPool addressStrings;
+    private String[] propertyIds;
+    private long[] addressOffsets;
+    private int[] addressLengths;
+    private long[] propertyOffsets;
+    private int[] propertyLengths;
+    private int recordCount;
+
+    /**
+     * Creates an empty index over the given files, which stay open until close() is called
+     * or every record has been materialized.
+     *
+     * @param addressFile  the File object representing the address file
+     * @param propertyFile the File object representing the property file
+     * @throws IOException if either file cannot be opened
+     */
+    private LazyPropertyIndex(final File addressFile,
+                              final File propertyFile) throws IOException
+    {
+        this.addressChannel = FileChannel.open(addressFile.toPath(), StandardOpenOption.READ);
+        this.propertyChannel = FileChannel.open(propertyFile.toPath(), StandardOpenOption.READ);
+        this.slots = new HashMap<>();
+        this.addressStrings = new StringPool();
+        this.propertyIds = new String[INITIAL_CAPACITY];
+        this.addressOffsets = new long[INITIAL_CAPACITY];
+        this.addressLengths = new int[INITIAL_CAPACITY];
+        this.propertyOffsets = new long[INITIAL_CAPACITY];
+        this.propertyLengths = new int[INITIAL_CAPACITY];
+    }
+
+
+    /**
+     * Scans the address and property files once and records where each pair of lines is.
+     * When a propertyId appears more than once, the last record wins, as it does when loading eagerly.
+     *
+     * @param addressFile  the File object representing the address file
+     * @param propertyFile the File object representing the property file
+     * @return the index over both files
+     * @throws FileNotFoundException if either file is not found
+     * @throws IOException           if either file cannot be read
+     */
+    public static LazyPropertyIndex build(final File addressFile,
+                                          final File propertyFile) throws IOException
+    {
+        final LazyPropertyIndex index;
+        long addressOffset;
+        long propertyOffset;
+        String propertyString;
+
+        if(!addressFile.isFile() || !propertyFile.isFile())
+        {
+            throw new FileNotFoundException("File Not Found");
+        }
+
+        index = new LazyPropertyIndex(addressFile, propertyFile);
+
+        try(MappedLineReader addressReader = new MappedLineReader(addressFile);
+            MappedLineReader propertyReader = new MappedLineReader(propertyFile))
+        {
+            addressOffset = 0;
+            propertyOffset = 0;
+
+            while((propertyString = propertyReader.nextLine()) != null)
+            {
+                if(addressReader.nextLine() == null)
+                {
+                    throw new IllegalStateException("Missing address for property: " + propertyString);
+                }
+
+                index.addRecord(PropertyReader.getPropertyIdFromString(propertyString),
+                                addressOffset, (int) (addressReader.getPosition() - addressOffset),
+                                propertyOffset, (int) (propertyReader.getPosition() - propertyOffset));
+
+                addressOffset = addressReader.getPosition();
+                propertyOffset = propertyReader.getPosition();
+            }
+        }
+        catch(IOException | RuntimeException exception)
+        {
+            index.close();
+            throw exception;
+        }
+
+        return index;
+    }
+
+
+    /**
+     * Records where the lines of one property are, replacing an earlier record with the same propertyId.
+     *
+     * @param propertyId     the propertyId of the record
+     * @param addressOffset  the offset of the address line
+     * @param addressLength  the length of the address line in bytes, including its terminator
+     * @param propertyOffset the offset of the property line
+     * @param propertyLength the length of the property line in bytes, including its terminator
+     */
+    private void addRecord(final String propertyId,
+                           final long addressOffset,
+                           final int addressLength,
+                           final long propertyOffset,
+                           final int propertyLength)
+    {
+        final Integer previousSlot;
+
+        if(recordCount == propertyIds.length)
+        {
+            propertyIds = Arrays.copyOf(propertyIds, recordCount * 2);
+            addressOffsets = Arrays.copyOf(addressOffsets, recordCount * 2);
+            addressLengths = Arrays.copyOf(addressLengths, recordCount * 2);
+            propertyOffsets = Arrays.copyOf(propertyOffsets, recordCount * 2);
+            propertyLengths = Arrays.copyOf(propertyLengths, recordCount * 2);
+        }
+
+        previousSlot = slots.put(propertyId, recordCount);
+
+        if(previousSlot != null)
+        {
+            propertyIds[previousSlot] = null;
+        }
+
+        propertyIds[recordCount] = propertyId;
+        addressOffsets[recordCount] = addressOffset;
+        addressLengths[recordCount] = addressLength;
+        propertyOffsets[recordCount] = propertyOffset;
+        propertyLengths[recordCount] = propertyLength;
+        recordCount++;
+    }
+
+
+    /**
+     * @param propertyId the propertyId to look for
+     * @return true if the record has not been materialized or forgotten yet, false otherwise
+     */
+    public boolean contains(final String propertyId)
+    {
+        return slots.containsKey(propertyId);
+    }
+
+
+    /**
+     * @return the number of records that have not been materialized or forgotten yet
+     */
+    public int size()
+    {
+        return slots.size();
+    }
+
+
+    /**
+     * Drops a record without materializing it, for example because the property was replaced or removed.
+     *
+     * @param propertyId the propertyId of the record to drop
+     */
+    public void forget(final String propertyId)
+    {
+        final Integer slot;
+
+        slot = slots.remove(propertyId);
+
+        if(slot != null)
+        {
+            propertyIds[slot] = null;
+        }
+    }
+
+
+    /**
+     * Reads, parses and removes one record from the index.
+     *
+     * @param propertyId the propertyId of the record
+     * @return the property, or null if the index has no record with that propertyId
+     * @throws IOException if the record cannot be read back from the files
+     */
+    public Property materialize(final String propertyId) throws IOException
+    {
+        final Integer slot;
+
+        slot = slots.remove(propertyId);
+
+        if(slot == null)
+        {
+            return null;
+        }
+
+        propertyIds[slot] = null;
+
+        return readRecord(slot);
+    }
+
+
+    /**
+     * Reads, parses and removes every remaining record, in file order, then closes the files.
+     *
+     * @param consumer receives each materialized property
+     * @throws IOException if a record cannot be read back from the files
+     */
+    public void materializeAll(final Consumer<Property> consumer) throws IOException
+    {
+        for(int slot = 0; slot < recordCount; slot++)
+        {
+            if(propertyIds[slot] != null)
+            {
+                slots.remove(propertyIds[slot]);
+                propertyIds[slot] = null;
+                consumer.accept(readRecord(slot));
+            }
+        }
+
+        close();
+    }
+
+
+    /**
+     * Reads the lines of one record from the files and parses them.
+     *
+     * @param slot the slot of the record
+     * @return the property parsed from the record
+     * @throws IOException if the lines cannot be read
+     */
+    private Property readRecord(final int slot) throws IOException
+    {
+        final Address address;
+
+        address = AddressReader.getAddressFromString(readLine(addressChannel, addressOffsets[slot],
+                                                              addressLengths[slot]), addressStrings);
+
+        return PropertyReader.getPropertyFromString(readLine(propertyChannel, propertyOffsets[slot],
+                                                             propertyLengths[slot]), address);
+    }
+
+
+    /**
+     * Reads one line from a channel at the given position and strips its terminator.
+     *
+     * @param channel the channel to read from
+     * @param offset  the offset of the line
+     * @param length  the length of the line in bytes, including its terminator
+     * @return the line without its terminator
+     * @throws IOException if the line cannot be read
+     */
+    private static String readLine(final FileChannel channel,
+                                   final long offset,
+                                   final int length) throws IOException
+    {
+        final ByteBuffer buffer;
+        int lineLength;
+
+        buffer = ByteBuffer.allocate(length);
+
+        while(buffer.hasRemaining())
+        {
+            if(channel.read(buffer, offset + buffer.position()) < 0)
+            {
+                throw new IOException("File was truncated while indexed");
+            }
+        }
+
+        lineLength = length;
+
+        while(lineLength > 0 && (buffer.get(lineLength - 1) == '\n' || buffer.get(lineLength - 1) == '\r'))
+        {
+            lineLength--;
+        }
+
+        return new String(buffer.array(), 0, lineLength, StandardCharsets.UTF_8);
+    }
+
+
+    /**
+     * Closes both files and empties the pool of address strings. Records that were not materialized
+     * can no longer be read.
+     *
+     * @throws IOException if a file cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        addressStrings.clear();
+
+        try
+        {
+            addressChannel.close();
+        }
+        finally
+        {
+            propertyChannel.close();
+        }
+    }
+}
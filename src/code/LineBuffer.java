@@ -0,0 +1,170 @@
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * LineBuffer of BCIT
+ * <p>
+ * Collects the bytes of one line as it is copied out of one or more buffers, and decodes it as UTF-8
+ * once its terminator is found. Both "\n" and "\r\n" terminators are accepted. The line readers share
+ * it so that they split and decode lines in exactly the same way.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+final class LineBuffer
+{
+    private static final int INITIAL_CAPACITY = 256;
+    private static final byte NEW_LINE = '\n';
+    private static final byte CARRIAGE_RETURN = '\r';
+
+    private byte[] line;
+    private int length;
+
+    /**
+     * Creates an empty line buffer.
+     */
+    LineBuffer()
+    {
+        this.line = new byte[INITIAL_CAPACITY];
+    }
+
+
+    /**
+     * Empties the buffer to start a new line.
+     */
+    void clear()
+    {
+        length = 0;
+    }
+
+
+    /**
+     * @return true if no bytes of the current line have been copied yet, false otherwise
+     */
+    boolean isEmpty()
+    {
+        return length == 0;
+    }
+
+
+    /**
+     * Copies the remaining bytes of a buffer up to the next '\n' onto the current line.
+     * If the terminator is found, it is consumed as well.
+     *
+     * @param buffer the buffer to copy from, advanced past the bytes copied
+     * @return true if the line is complete, false if the buffer ran out before its terminator
+     */
+    boolean append(final ByteBuffer buffer)
+    {
+        final int newLineIndex;
+        final int bytesToCopy;
+
+        newLineIndex = indexOfNewLine(buffer);
+        bytesToCopy = (newLineIndex < 0 ? buffer.limit() : newLineIndex) - buffer.position();
+
+        ensureCapacity(length + bytesToCopy);
+        buffer.get(line, length, bytesToCopy);
+        length += bytesToCopy;
+
+        if(newLineIndex < 0)
+        {
+            return false;
+        }
+
+        buffer.get();
+
+        return true;
+    }
+
+
+    /**
+     * Decodes the current line as UTF-8, dropping a trailing carriage return.
+     *
+     * @return the current line as a string
+     */
+    String decode()
+    {
+        return decodeLine(line, 0, length);
+    }
+
+
+    /**
+     * Grows the buffer so that it can hold at least the requested number of bytes.
+     *
+     * @param capacity the number of bytes the buffer must be able to hold
+     */
+    private void ensureCapacity(final int capacity)
+    {
+        byte[] grownLine;
+
+        if(capacity > line.length)
+        {
+            grownLine = new byte[Math.max(capacity, line.length * 2)];
+            System.arraycopy(line, 0, grownLine, 0, length);
+            line = grownLine;
+        }
+    }
+
+
+    /**
+     * Finds the next line terminator in the remaining bytes of a buffer.
+     *
+     * @param buffer the buffer to search
+     * @return the absolute index of the next '\n', or -1 if the buffer has none left
+     */
+    static int indexOfNewLine(final ByteBuffer buffer)
+    {
+        for(int i = buffer.position(); i < buffer.limit(); i++)
+        {
+            if(buffer.get(i) == NEW_LINE)
+            {
+                return i;
+            }
+        }
+
+        return -1;
+    }
+
+
+    /**
+     * Finds the next line terminator in an array.
+     *
+     * @param bytes the bytes to search
+     * @param from  the index to start searching from
+     * @return the index of the next '\n', or the length of the array if there is none
+     */
+    static int indexOfNewLine(final byte[] bytes,
+                              final int from)
+    {
+        for(int i = from; i < bytes.length; i++)
+        {
+            if(bytes[i] == NEW_LINE)
+            {
+                return i;
+            }
+        }
+
+        return bytes.length;
+    }
+
+
+    /**
+     * Decodes a line as UTF-8, dropping a trailing carriage return.
+     *
+     * @param bytes the bytes holding the line
+     * @param start the index of the first byte of the line
+     * @param end   the index just after the last byte of the line, before its '\n'
+     * @return the line as a string
+     */
+    static String decodeLine(final byte[] bytes,
+                             final int start,
+                             final int end)
+    {
+        if(end > start && bytes[end - 1] == CARRIAGE_RETURN)
+        {
+            return new String(bytes, start, end - start - 1, StandardCharsets.UTF_8);
+        }
+
+        return new String(bytes, start, end - start, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,102 @@
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * LineReader of BCIT
+ * <p>
+ * Reads a text file one line at a time. open() picks the implementation from the first bytes of the file:
+ * gzip-compressed files are decompressed on the fly by a CompressedLineReader, and plain files are
+ * memory-mapped by a MappedLineReader.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public interface LineReader extends Closeable
+{
+    int GZIP_MAGIC = 0x1F8B;
+    int ZSTD_MAGIC = 0x28B52FFD;
+
+    /**
+     * Reads the next line of the file. Both "\n" and "\r\n" line terminators are accepted.
+     * A last line without a terminator is returned as well. Blank lines at the end of the file are skipped,
+     * as Scanner.hasNext() skipped them.
+     *
+     * @return the next line without its line terminator, or null if the end of the file was reached
+     * @throws IOException if the file cannot be read
+     */
+    String nextLine() throws IOException;
+
+
+    /**
+     * Opens a file for reading lines, decompressing it on the fly if it is gzip-compressed.
+     *
+     * @param file the File object representing the file to read
+     * @return a reader positioned at the first line of the file
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be opened or uses an unsupported compression format
+     */
+    static LineReader open(final File file) throws IOException
+    {
+        final byte[] header;
+        int headerLength;
+        int bytesRead;
+
+        if(!file.isFile())
+        {
+            throw new FileNotFoundException("File Not Found");
+        }
+
+        header = new byte[Integer.BYTES];
+        headerLength = 0;
+
+        try(InputStream input = new FileInputStream(file))
+        {
+            while(headerLength < header.length &&
+                    (bytesRead = input.read(header, headerLength, header.length - headerLength)) > 0)
+            {
+                headerLength += bytesRead;
+            }
+        }
+
+        if(headerLength >= Short.BYTES && ((header[0] & 0xFF) << 8 | (header[1] & 0xFF)) == GZIP_MAGIC)
+        {
+            return new CompressedLineReader(file);
+        }
+
+        if(headerLength == Integer.BYTES && ((header[0] & 0xFF) << 24 | (header[1] & 0xFF) << 16 |
+                (header[2] & 0xFF) << 8 | (header[3] & 0xFF)) == ZSTD_MAGIC)
+        {
+            throw new IOException("Zstandard-compressed input is not supported, use gzip: " + file);
+        }
+
+        return new MappedLineReader(file);
+    }
+
+
+    /**
+     * Reads every line of the given file and passes it to the consumer, one line at a time.
+     *
+     * @param file     the File object representing the file to read, plain or gzip-compressed
+     * @param consumer receives each line of the file, without its line terminator
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be read
+     */
+    static void forEachLine(final File file,
+                            final Consumer<String> consumer) throws IOException
+    {
+        String line;
+
+        try(LineReader reader = open(file))
+        {
+            while((line = reader.nextLine()) != null)
+            {
+                consumer.accept(line);
+            }
+        }
+    }
+}
@@ -0,0 +1,205 @@
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * ListingFollower of BCIT
+ * <p>
+ * Follows the address and property files as lines are appended to them and adds the new
+ * properties to a live Agency. The follower remembers how far it has read into each file, so
+ * every poll only reads and parses the lines appended since the previous one. A line that is
+ * appended to one file before its partner reaches the other file waits until the partner arrives.
+ * A pair of lines that cannot be turned into a property is skipped and counted, so one bad record
+ * neither stops the follower nor shifts the pairing of the lines after it.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class ListingFollower
+{
+    private final File addressFile;
+    private final File propertyFile;
+    private final Agency agency;
+    private final Deque<String> pendingAddresses;
+    private final Deque<String> pendingProperties;
+    private long addressOffset;
+    private long propertyOffset;
+    private long rejectedCount;
+
+    /**
+     * Creates a follower that continues reading both files from the given byte offsets.
+     *
+     * @param addressFile    the File object representing the address file
+     * @param propertyFile   the File object representing the property file
+     * @param agency         the agency new properties are added to
+     * @param addressOffset  the offset of the first unread line of the address file
+     * @param propertyOffset the offset of the first unread line of the property file
+     * @throws IllegalArgumentException if either offset is negative
+     */
+    public ListingFollower(final File addressFile,
+                           final File propertyFile,
+                           final Agency agency,
+                           final long addressOffset,
+                           final long propertyOffset)
+    {
+        if(addressOffset < 0 || propertyOffset < 0)
+        {
+            throw new IllegalArgumentException("Invalid offsets: " + addressOffset + ", " + propertyOffset);
+        }
+
+        this.addressFile = addressFile;
+        this.propertyFile = propertyFile;
+        this.agency = agency;
+        this.addressOffset = addressOffset;
+        this.propertyOffset = propertyOffset;
+        this.pendingAddresses = new ArrayDeque<>();
+        this.pendingProperties = new ArrayDeque<>();
+    }
+
+
+    /**
+     * Creates a follower that only picks up lines appended after this call.
+     *
+     * @param addressFile  the File object representing the address file
+     * @param propertyFile the File object representing the property file
+     * @param agency       the agency new properties are added to
+     * @return a follower positioned at the current end of both files
+     */
+    public static ListingFollower fromEndOf(final File addressFile,
+                                            final File propertyFile,
+                                            final Agency agency)
+    {
+        return new ListingFollower(addressFile, propertyFile, agency, addressFile.length(), propertyFile.length());
+    }
+
+
+    /**
+     * Reads the complete lines appended to both files since the last poll, pairs them up in order
+     * and adds the resulting properties to the agency. A pair that cannot be parsed, or that is not of a
+     * known property type, is skipped and counted in getRejectedCount(); the pairs after it are still added.
+     *
+     * @return the number of properties added to the agency
+     * @throws IOException if either file cannot be read or has become shorter than what was already read
+     */
+    public int poll() throws IOException
+    {
+        final StringPool addressStrings;
+        int added;
+        Property property;
+
+        addressOffset = readAppendedLines(addressFile, addressOffset, pendingAddresses);
+        propertyOffset = readAppendedLines(propertyFile, propertyOffset, pendingProperties);
+
+        addressStrings = new StringPool();
+        added = 0;
+
+        while(!pendingAddresses.isEmpty() && !pendingProperties.isEmpty())
+        {
+            property = parseListing(pendingAddresses.removeFirst(), pendingProperties.removeFirst(), addressStrings);
+
+            if(property == null)
+            {
+                rejectedCount++;
+            }
+            else
+            {
+                agency.addProperty(property);
+                added++;
+            }
+        }
+
+        return added;
+    }
+
+
+    /**
+     * Turns a pair of lines into a property.
+     *
+     * @param addressString  the address line
+     * @param propertyString the property line
+     * @param addressStrings the pool shared by the addresses of the poll
+     * @return the property, or null if the lines are invalid or the property is not of a known type
+     */
+    private static Property parseListing(final String addressString,
+                                         final String propertyString,
+                                         final StringPool addressStrings)
+    {
+        final Address address;
+
+        try
+        {
+            address = AddressReader.getAddressFromString(addressString, addressStrings);
+
+            return PropertyReader.getPropertyFromString(propertyString, address);
+        }
+        catch(RuntimeException exception)
+        {
+            return null;
+        }
+    }
+
+
+    /**
+     * Reads the complete lines of a file that start at or after the given offset.
+     *
+     * @param file   the file to read
+     * @param offset the offset of the first unread line
+     * @param lines  receives the lines that were read
+     * @return the offset of the first line that is still unread
+     * @throws IOException if the file cannot be read or is shorter than the offset
+     */
+    private static long readAppendedLines(final File file,
+                                          final long offset,
+                                          final Deque<String> lines) throws IOException
+    {
+        String line;
+
+        if(file.length() < offset)
+        {
+            throw new IOException("File was truncated while being followed: " + file);
+        }
+
+        if(file.length() == offset)
+        {
+            return offset;
+        }
+
+        try(MappedLineReader reader = new MappedLineReader(file, offset))
+        {
+            while((line = reader.nextCompleteLine()) != null)
+            {
+                lines.addLast(line);
+            }
+
+            return reader.getPosition();
+        }
+    }
+
+
+    /**
+     * @return the number of appended pairs of lines that were skipped because they were invalid
+     */
+    public long getRejectedCount()
+    {
+        return rejectedCount;
+    }
+
+
+    /**
+     * @return the offset of the first unread line of the address file
+     */
+    public long getAddressOffset()
+    {
+        return addressOffset;
+    }
+
+
+    /**
+     * @return the offset of the first unread line of the property file
+     */
+    public long getPropertyOffset()
+    {
+        return propertyOffset;
+    }
+}
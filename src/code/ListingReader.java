@@ -0,0 +1,136 @@
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+
+/**
+ * ListingReader of BCIT
+ * <p>
+ * Reads listing files, which hold one property per line together with its address:
+ * the five address fields come first, followed by the property fields, all separated by '|'.
+ * <pre>
+ * 1a|777|56th avenue|v7n2m8|surrey|499000.0|2|false|residence|abc123|true
+ * </pre>
+ * Because every line is a complete record, a listing file can be streamed in constant memory
+ * without pairing lines across two files. convert() builds a listing file from the separate
+ * address and property files.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class ListingReader
+{
+    private static final char SEPARATOR = '|';
+    private static final ThreadLocal<RecordTokenizer> TOKENIZER = ThreadLocal.withInitial(RecordTokenizer::new);
+
+    /**
+     * Reads a listing file and passes each Property to the consumer as soon as it is parsed.
+     * The addresses of one call share their street name, postal code and city strings through a StringPool.
+     *
+     * @param file     the File object representing the listing file
+     * @param consumer receives each Property in file order (null for records of an unknown type)
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be read
+     */
+    public static void readListingData(final File file,
+                                       final Consumer<Property> consumer) throws IOException
+    {
+        final StringPool addressStrings;
+
+        addressStrings = new StringPool();
+        LineReader.forEachLine(file, listingString -> consumer.accept(getPropertyFromString(listingString,
+                                                                                            addressStrings)));
+    }
+
+
+    /**
+     * Loads every property of a listing file into a store, such as an Agency.
+     *
+     * @param file  the File object representing the listing file
+     * @param store the store the properties are added to
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be read
+     */
+    public static void load(final File file,
+                            final PropertyStore store) throws IOException
+    {
+        readListingData(file, store::addProperty);
+    }
+
+
+    /**
+     * Parses a listing line into a Property with its Address in a single pass.
+     *
+     * @param listingString the listing line, address fields first and property fields after
+     * @return a Property object parsed from the line, or null if the property is not of a known type
+     */
+    public static Property getPropertyFromString(final String listingString)
+    {
+        return getPropertyFromString(listingString, null);
+    }
+
+
+    /**
+     * Parses a listing line like getPropertyFromString, taking the address strings from a pool.
+     *
+     * @param listingString  the listing line, address fields first and property fields after
+     * @param addressStrings the pool shared by the addresses of one load (nullable, in which case nothing is pooled)
+     * @return a Property object parsed from the line, or null if the property is not of a known type
+     */
+    public static Property getPropertyFromString(final String listingString,
+                                                 final StringPool addressStrings)
+    {
+        final RecordTokenizer tokenizer;
+        final Address address;
+
+        tokenizer = TOKENIZER.get().reset(listingString);
+        address = AddressReader.getAddressFromFields(tokenizer, addressStrings);
+
+        return PropertyReader.getPropertyFromFields(tokenizer, address);
+    }
+
+
+    /**
+     * Joins the lines of an address file and a property file into a listing file, streaming both.
+     * The lines are copied as they are, so the conversion does not parse or validate them.
+     *
+     * @param addressFile  the File object representing the address file
+     * @param propertyFile the File object representing the property file
+     * @param listingFile  the listing file to write
+     * @throws FileNotFoundException if the address or property file is not found
+     * @throws IOException           if a file cannot be read or written
+     */
+    public static void convert(final File addressFile,
+                               final File propertyFile,
+                               final File listingFile) throws IOException
+    {
+        String addressString;
+        String propertyString;
+
+        try(LineReader addressReader = LineReader.open(addressFile);
+            LineReader propertyReader = LineReader.open(propertyFile);
+            Writer listings = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(listingFile), StandardCharsets.UTF_8)))
+        {
+            while((propertyString = propertyReader.nextLine()) != null)
+            {
+                addressString = addressReader.nextLine();
+
+                if(addressString == null)
+                {
+                    throw new IllegalStateException("Missing address for property: " + propertyString);
+                }
+
+                listings.write(addressString);
+                listings.write(SEPARATOR);
+                listings.write(propertyString);
+                listings.write('\n');
+            }
+        }
+    }
+}
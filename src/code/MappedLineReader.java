@@ -0,0 +1,287 @@
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * MappedLineReader of BCIT
+ * <p>
+ * Reads a text file one line at a time through memory-mapped windows of the file,
+ * so that large files can be streamed without holding every line in memory.
+ * Like the Scanner loops it replaces, nextLine() skips the blank lines at the end of the file.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class MappedLineReader implements LineReader
+{
+    private static final long WINDOW_SIZE = 64L * 1024L * 1024L;
+    private static final int BLANK_SCAN_SIZE = 8192;
+
+    private final FileChannel channel;
+    private final long size;
+    private final long windowSize;
+    private final LineBuffer line;
+    private MappedByteBuffer window;
+    private long windowStart;
+
+    /**
+     * Opens the given file for reading from its first line.
+     *
+     * @param file the File object representing the file to read
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be opened
+     */
+    public MappedLineReader(final File file) throws IOException
+    {
+        this(file, 0);
+    }
+
+
+    /**
+     * Opens the given file for reading from a byte offset, which should be the start of a line.
+     * Only the bytes present when the file is opened are read; lines appended later need a new reader.
+     *
+     * @param file   the File object representing the file to read
+     * @param offset the byte offset to start reading from
+     * @throws FileNotFoundException    if the specified file is not found
+     * @throws IOException              if the file cannot be opened
+     * @throws IllegalArgumentException if the offset is negative or past the end of the file
+     */
+    public MappedLineReader(final File file,
+                            final long offset) throws IOException
+    {
+        this(file, offset, WINDOW_SIZE);
+    }
+
+
+    /**
+     * Opens the given file for reading from a byte offset, mapping it in windows of the given size.
+     * Small windows let tests cross window boundaries without large files.
+     *
+     * @param file       the File object representing the file to read
+     * @param offset     the byte offset to start reading from
+     * @param windowSize the number of bytes mapped at a time
+     * @throws FileNotFoundException    if the specified file is not found
+     * @throws IOException              if the file cannot be opened
+     * @throws IllegalArgumentException if the offset is negative or past the end of the file,
+     *                                  or the window size is less than 1
+     */
+    MappedLineReader(final File file,
+                     final long offset,
+                     final long windowSize) throws IOException
+    {
+        if(windowSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid window size: " + windowSize);
+        }
+
+        if(!file.isFile())
+        {
+            throw new FileNotFoundException("File Not Found");
+        }
+
+        this.channel = FileChannel.open(file.toPath(), StandardOpenOption.READ);
+        this.size = channel.size();
+
+        if(offset < 0 || offset > size)
+        {
+            channel.close();
+            throw new IllegalArgumentException("Invalid offset: " + offset);
+        }
+
+        this.windowSize = windowSize;
+        this.windowStart = offset;
+        this.line = new LineBuffer();
+    }
+
+
+    /**
+     * Reads the next line of the file. Both "\n" and "\r\n" line terminators are accepted.
+     * A last line without a terminator is returned as well. Blank lines followed only by more blank lines
+     * are skipped, so a file ending in empty lines reads the same as one that does not.
+     *
+     * @return the next line without its line terminator, or null if the end of the file was reached
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public String nextLine() throws IOException
+    {
+        final String nextLine;
+
+        nextLine = readLine(false);
+
+        if(nextLine != null && nextLine.isBlank() && isBlankToEnd(getPosition()))
+        {
+            window = null;
+            windowStart = size;
+
+            return null;
+        }
+
+        return nextLine;
+    }
+
+
+    /**
+     * Checks whether the file holds nothing but whitespace from an offset to its end.
+     * It is only called after a blank line, so it usually reads a few bytes before it stops.
+     *
+     * @param offset the byte offset to start checking from
+     * @return true if every remaining byte is whitespace, false otherwise
+     * @throws IOException if the file cannot be read
+     */
+    private boolean isBlankToEnd(final long offset) throws IOException
+    {
+        final ByteBuffer buffer;
+        long position;
+        int bytesRead;
+        byte nextByte;
+
+        buffer = ByteBuffer.allocate(BLANK_SCAN_SIZE);
+        position = offset;
+
+        while(position < size)
+        {
+            buffer.clear();
+            bytesRead = channel.read(buffer, position);
+
+            if(bytesRead <= 0)
+            {
+                break;
+            }
+
+            for(int i = 0; i < bytesRead; i++)
+            {
+                nextByte = buffer.get(i);
+
+                if(nextByte < 0 || !Character.isWhitespace((char) nextByte))
+                {
+                    return false;
+                }
+            }
+
+            position += bytesRead;
+        }
+
+        return true;
+    }
+
+
+    /**
+     * Reads the next line of the file only if it is complete, that is, followed by a line terminator.
+     * A last line that is still being written is left unread, so that a later reader opened at
+     * getPosition() sees it whole.
+     *
+     * @return the next complete line without its line terminator, or null if there is none
+     * @throws IOException if the file cannot be read
+     */
+    public String nextCompleteLine() throws IOException
+    {
+        return readLine(true);
+    }
+
+
+    /**
+     * Returns the byte offset just after the last line that was read, where the next line starts.
+     *
+     * @return the offset of the next unread line
+     */
+    public long getPosition()
+    {
+        if(window == null)
+        {
+            return windowStart;
+        }
+
+        return windowStart + window.position();
+    }
+
+
+    /**
+     * Reads the next line of the file.
+     *
+     * @param requireTerminator true to leave a last line without a terminator unread
+     * @return the next line without its line terminator, or null if there is none
+     * @throws IOException if the file cannot be read
+     */
+    private String readLine(final boolean requireTerminator) throws IOException
+    {
+        final long lineStart;
+
+        lineStart = getPosition();
+        line.clear();
+
+        while(true)
+        {
+            if(window == null || !window.hasRemaining())
+            {
+                if(!mapNextWindow())
+                {
+                    if(line.isEmpty())
+                    {
+                        return null;
+                    }
+
+                    if(requireTerminator)
+                    {
+                        window = null;
+                        windowStart = lineStart;
+
+                        return null;
+                    }
+
+                    return line.decode();
+                }
+            }
+
+            if(line.append(window))
+            {
+                return line.decode();
+            }
+        }
+    }
+
+
+    /**
+     * Maps the region of the file that follows the current window.
+     *
+     * @return true if a new window was mapped, false if the end of the file was reached
+     * @throws IOException if the file cannot be mapped
+     */
+    private boolean mapNextWindow() throws IOException
+    {
+        final long windowLength;
+
+        if(window != null)
+        {
+            windowStart += window.limit();
+            window = null;
+        }
+
+        if(windowStart >= size)
+        {
+            return false;
+        }
+
+        windowLength = Math.min(windowSize, size - windowStart);
+        window = channel.map(FileChannel.MapMode.READ_ONLY, windowStart, windowLength);
+
+        return true;
+    }
+
+
+    /**
+     * Closes the underlying file channel.
+     *
+     * @throws IOException if the channel cannot be closed
+     */
+    @Override
+    public void close() throws IOException
+    {
+        channel.close();
+    }
+}
@@ -0,0 +1,806 @@
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * OffHeapPropertyStore of BCIT
+ * <p>
+ * Stores properties outside the Java heap, as fixed-size records in direct ByteBuffers. The records are not
+ * objects, so the garbage collector has nothing in them to trace. What stays on the heap is a buffer object per
+ * 65536 records, the slot map and free-slot stack, which are primitive arrays, and the dictionary strings, which
+ * grow with the number of distinct names rather than properties. The number of objects to trace therefore does
+ * not grow with the portfolio, although the primitive arrays do and are still copied when the collector moves
+ * them; property IDs outside Latin-1 are the exception and are kept in a HashMap. Every field has a
+ * fixed place in the record; the strings are stored inline, with their widths taken from the maximum lengths
+ * that Property and Address allow, except street, city and type names, which repeat and are stored as codes
+ * into a StringDictionary. Record layout, in bytes:
+ * <pre>
+ *  0 flags           1 bedrooms          2 kind            3 id length       4 unit length     5 postal length
+ *  8 price (double) 16 square footage   20 street number  24 type code      28 street code    32 city code
+ * 36 property ID    48 unit number      56 postal code    (strings are UTF-16, up to their maximum length)
+ * </pre>
+ * Queries scan the records in place; Property and Address objects are only built for results, so every call
+ * returns new objects and changing them does not change the store.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class OffHeapPropertyStore extends SlottedPropertyStore
+{
+    private static final int SLOT_SHIFT = 16;
+    private static final int RECORDS_PER_BUFFER = 1 << SLOT_SHIFT;
+    private static final int SLOT_MASK = RECORDS_PER_BUFFER - 1;
+    private static final int RECORD_SIZE = 72;
+
+    private static final int FLAGS = 0;
+    private static final int BEDROOMS = 1;
+    private static final int KIND = 2;
+    private static final int PROPERTY_ID_LENGTH = 3;
+    private static final int UNIT_NUMBER_LENGTH = 4;
+    private static final int POSTAL_CODE_LENGTH = 5;
+    private static final int PRICE_USD = 8;
+    private static final int SQUARE_FOOTAGE = 16;
+    private static final int STREET_NUMBER = 20;
+    private static final int TYPE_CODE = 24;
+    private static final int STREET_NAME_CODE = 28;
+    private static final int CITY_CODE = 32;
+    private static final int PROPERTY_ID = 36;
+    private static final int UNIT_NUMBER = PROPERTY_ID + Property.MAX_PROPERTY_ID_LENGTH * Character.BYTES;
+    private static final int POSTAL_CODE = UNIT_NUMBER + Address.MAX_UNIT_NUMBER_LENGTH * Character.BYTES;
+
+    private static final byte LIVE = 1;
+    private static final byte SWIMMING_POOL = 1 << 1;
+    private static final byte STRATA = 1 << 2;
+    private static final byte LOADING_DOCK = 1 << 3;
+    private static final byte HIGHWAY_ACCESS = 1 << 4;
+    private static final byte CUSTOMER_PARKING = 1 << 5;
+
+    private static final byte NO_UNIT_NUMBER = -1;
+
+    private final List<ByteBuffer> buffers;
+    private final PackedSlotMap slots;
+    private int slotCount;
+
+    /**
+     * Creates an empty off-heap store. Memory is allocated in buffers of 65536 records as the store grows.
+     */
+    public OffHeapPropertyStore()
+    {
+        this.buffers = new ArrayList<>();
+        this.slots = new PackedSlotMap();
+    }
+
+
+    /**
+     * Writes a property into a record, replacing a property with the same property ID.
+     *
+     * @param property The property to be added; null is ignored.
+     * @throws IllegalArgumentException if a string of the property is longer than its field.
+     */
+    @Override
+    public void addProperty(final Property property)
+    {
+        final Address address;
+        final ByteBuffer buffer;
+        final int offset;
+        final int slot;
+        byte flags;
+
+        if(property == null)
+        {
+            return;
+        }
+
+        address = property.getAddress();
+
+        checkLength(property.getPropertyId(), Property.MAX_PROPERTY_ID_LENGTH, "property ID");
+        checkLength(address.getUnitNumber(), Address.MAX_UNIT_NUMBER_LENGTH, "unit number");
+        checkLength(address.getPostalCode(), Address.MAX_POSTAL_CODE_LENGTH, "postal code");
+
+        removeProperty(property.getPropertyId());
+
+        slot = allocateSlot();
+        buffer = bufferOf(slot);
+        offset = offsetOf(slot);
+        flags = LIVE;
+
+        buffer.put(offset + KIND, PROPERTY_KIND);
+        buffer.put(offset + BEDROOMS, (byte) 0);
+        buffer.putInt(offset + SQUARE_FOOTAGE, 0);
+
+        if(property instanceof Residence)
+        {
+            buffer.put(offset + KIND, RESIDENCE_KIND);
+            buffer.put(offset + BEDROOMS, (byte) ((Residence) property).getNumberOfBedrooms());
+            flags |= ((Residence) property).hasSwimmingPool() ? SWIMMING_POOL : 0;
+            flags |= ((Residence) property).hasStrata() ? STRATA : 0;
+        }
+        else if(property instanceof Commercial)
+        {
+            buffer.put(offset + KIND, COMMERCIAL_KIND);
+            flags |= ((Commercial) property).hasLoadingDock() ? LOADING_DOCK : 0;
+            flags |= ((Commercial) property).hasHighwayAccess() ? HIGHWAY_ACCESS : 0;
+        }
+        else if(property instanceof Retail)
+        {
+            buffer.put(offset + KIND, RETAIL_KIND);
+            buffer.putInt(offset + SQUARE_FOOTAGE, ((Retail) property).getSquareFootage());
+            flags |= ((Retail) property).hasCustomerParking() ? CUSTOMER_PARKING : 0;
+        }
+
+        buffer.putDouble(offset + PRICE_USD, property.getPriceUsd());
+        buffer.putInt(offset + STREET_NUMBER, address.getStreetNumber());
+        buffer.putInt(offset + TYPE_CODE, types.encode(property.getType()));
+        buffer.putInt(offset + STREET_NAME_CODE, streetNames.encode(address.getStreetName()));
+        buffer.putInt(offset + CITY_CODE, cities.encode(address.getCity()));
+        putString(buffer, offset + PROPERTY_ID_LENGTH, offset + PROPERTY_ID, property.getPropertyId());
+        putString(buffer, offset + UNIT_NUMBER_LENGTH, offset + UNIT_NUMBER, address.getUnitNumber());
+        putString(buffer, offset + POSTAL_CODE_LENGTH, offset + POSTAL_CODE, address.getPostalCode());
+        buffer.put(offset + FLAGS, flags);
+
+        slots.put(property.getPropertyId(), slot);
+    }
+
+
+    /**
+     * Checks that a string fits in its fixed-width field.
+     *
+     * @param value     the string (nullable)
+     * @param maxLength the number of characters the field holds
+     * @param field     the name of the field, for the error message
+     * @throws IllegalArgumentException if the string is longer than the field
+     */
+    private static void checkLength(final String value,
+                                    final int maxLength,
+                                    final String field)
+    {
+        if(value != null && value.length() > maxLength)
+        {
+            throw new IllegalArgumentException("Invalid " + field + ": " + value);
+        }
+    }
+
+
+    /**
+     * Hands out a free slot, allocating another buffer when every slot is taken.
+     *
+     * @return the slot
+     */
+    private int allocateSlot()
+    {
+        final int freeSlot;
+
+        freeSlot = takeFreeSlot();
+
+        if(freeSlot != PackedSlotMap.NO_SLOT)
+        {
+            return freeSlot;
+        }
+
+        if(slotCount == buffers.size() * RECORDS_PER_BUFFER)
+        {
+            buffers.add(ByteBuffer.allocateDirect(RECORDS_PER_BUFFER * RECORD_SIZE));
+        }
+
+        return slotCount++;
+    }
+
+
+    /**
+     * Removes a property based on its property ID and frees its record.
+     *
+     * @param propertyId The property ID of the property to be removed.
+     */
+    @Override
+    public void removeProperty(final String propertyId)
+    {
+        final int slot;
+
+        if(propertyId == null)
+        {
+            return;
+        }
+
+        slot = slots.remove(propertyId);
+
+        if(slot != PackedSlotMap.NO_SLOT)
+        {
+            bufferOf(slot).put(offsetOf(slot) + FLAGS, (byte) 0);
+            freeSlot(slot);
+        }
+    }
+
+
+    /**
+     * Builds the property with a property ID from its record.
+     *
+     * @param propertyId The property ID of the desired property.
+     * @return A new Property object with the stored details, or null if not found.
+     */
+    @Override
+    public Property getProperty(final String propertyId)
+    {
+        final int slot;
+
+        slot = slots.get(propertyId);
+
+        if(slot == PackedSlotMap.NO_SLOT)
+        {
+            return null;
+        }
+
+        return propertyAt(slot);
+    }
+
+
+    /**
+     * @return The number of properties in the store.
+     */
+    public int size()
+    {
+        return slots.size();
+    }
+
+
+    /**
+     * Sums the prices of the records with compensated summation.
+     *
+     * @return The total value of all properties in USD.
+     */
+    @Override
+    public double getTotalPropertyValues()
+    {
+        ByteBuffer buffer;
+        int offset;
+        double priceUsd;
+        double sumUsd;
+        double compensationUsd;
+        double newSumUsd;
+
+        sumUsd = 0;
+        compensationUsd = 0;
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            buffer = bufferOf(slot);
+            offset = offsetOf(slot);
+
+            if((buffer.get(offset + FLAGS) & LIVE) != 0)
+            {
+                priceUsd = buffer.getDouble(offset + PRICE_USD);
+                newSumUsd = sumUsd + priceUsd;
+
+                if(Math.abs(sumUsd) >= Math.abs(priceUsd))
+                {
+                    compensationUsd += (sumUsd - newSumUsd) + priceUsd;
+                }
+                else
+                {
+                    compensationUsd += (priceUsd - newSumUsd) + sumUsd;
+                }
+
+                sumUsd = newSumUsd;
+            }
+        }
+
+        return sumUsd + compensationUsd;
+    }
+
+
+    /**
+     * @return A list of residences with swimming pools, or null if none found.
+     */
+    @Override
+    public ArrayList<Residence> getPropertiesWithPools()
+    {
+        return collect(SWIMMING_POOL, Residence.class);
+    }
+
+
+    /**
+     * Scans the price field of the records.
+     *
+     * @param minUsd The minimum price in USD.
+     * @param maxUsd The maximum price in USD.
+     * @return An array of properties within the specified price range (inclusive), or null if none found.
+     */
+    @Override
+    public Property[] getPropertiesBetween(final double minUsd,
+                                           final double maxUsd)
+    {
+        final ArrayList<Property> propertiesBetween;
+        ByteBuffer buffer;
+        int offset;
+        double priceUsd;
+
+        propertiesBetween = new ArrayList<>();
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            buffer = bufferOf(slot);
+            offset = offsetOf(slot);
+            priceUsd = buffer.getDouble(offset + PRICE_USD);
+
+            if(priceUsd >= minUsd && priceUsd <= maxUsd && (buffer.get(offset + FLAGS) & LIVE) != 0)
+            {
+                propertiesBetween.add(propertyAt(slot));
+            }
+        }
+
+        if(propertiesBetween.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesBetween.toArray(new Property[0]);
+    }
+
+
+    /**
+     * Looks up the codes of the street in the dictionary, then scans the street code field of the records.
+     *
+     * @param streetName The name of the street, matched ignoring case.
+     * @return A list of addresses for properties on the specified street, or null if none found.
+     */
+    @Override
+    public ArrayList<Address> getPropertiesOn(final String streetName)
+    {
+        final boolean[] matchingCodes;
+        final ArrayList<Address> addressesOn;
+
+        if(streetName == null)
+        {
+            return null;
+        }
+
+        matchingCodes = streetNames.codesEqualIgnoreCase(streetName);
+        addressesOn = new ArrayList<>();
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            if(isLive(slot) && matchingCodes[bufferOf(slot).getInt(offsetOf(slot) + STREET_NAME_CODE)])
+            {
+                addressesOn.add(addressAt(slot));
+            }
+        }
+
+        if(addressesOn.isEmpty())
+        {
+            return null;
+        }
+
+        return addressesOn;
+    }
+
+
+    /**
+     * Scans the kind and bedroom fields of the records.
+     *
+     * @param minBedrooms The minimum number of bedrooms.
+     * @param maxBedrooms The maximum number of bedrooms.
+     * @return A map from propertyId to the residences with the specified number of bedrooms, or null if none found.
+     */
+    @Override
+    public HashMap<String, Residence> getPropertiesWithBedrooms(final int minBedrooms,
+                                                               final int maxBedrooms)
+    {
+        final HashMap<String, Residence> propertiesWithBedrooms;
+        ByteBuffer buffer;
+        int offset;
+        int numberOfBedrooms;
+        Residence residence;
+
+        propertiesWithBedrooms = new HashMap<>();
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            buffer = bufferOf(slot);
+            offset = offsetOf(slot);
+            numberOfBedrooms = buffer.get(offset + BEDROOMS);
+
+            if(buffer.get(offset + KIND) == RESIDENCE_KIND && numberOfBedrooms >= minBedrooms &&
+                    numberOfBedrooms <= maxBedrooms && (buffer.get(offset + FLAGS) & LIVE) != 0)
+            {
+                residence = (Residence) propertyAt(slot);
+                propertiesWithBedrooms.put(residence.getPropertyId(), residence);
+            }
+        }
+
+        if(propertiesWithBedrooms.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesWithBedrooms;
+    }
+
+
+    /**
+     * Looks up the codes of the type in the dictionary, then scans the type code field of the records.
+     *
+     * @param propertyType The type of property, matched ignoring case.
+     * @return A list of properties of the specified type, which is empty if none found.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesOfType(final String propertyType)
+    {
+        final boolean[] matchingCodes;
+        final ArrayList<Property> propertiesOfType;
+
+        propertiesOfType = new ArrayList<>();
+
+        if(propertyType == null)
+        {
+            return propertiesOfType;
+        }
+
+        matchingCodes = types.codesEqualIgnoreCase(propertyType);
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            if(isLive(slot) && matchingCodes[bufferOf(slot).getInt(offsetOf(slot) + TYPE_CODE)])
+            {
+                propertiesOfType.add(propertyAt(slot));
+            }
+        }
+
+        return propertiesOfType;
+    }
+
+
+    /**
+     * @return A list of Commercial properties with loading docks, or null if none found.
+     */
+    @Override
+    public ArrayList<Commercial> getPropertiesWithLoadingDocks()
+    {
+        return collect(LOADING_DOCK, Commercial.class);
+    }
+
+
+    /**
+     * @return A list of Commercial properties with highway access, or null if none found.
+     */
+    @Override
+    public ArrayList<Commercial> getPropertiesWithHighwayAccess()
+    {
+        return collect(HIGHWAY_ACCESS, Commercial.class);
+    }
+
+
+    /**
+     * @return A list of Retail properties with customer parking, or null if none found.
+     */
+    @Override
+    public ArrayList<Retail> getPropertiesWithCustomerParking()
+    {
+        return collect(CUSTOMER_PARKING, Retail.class);
+    }
+
+
+    /**
+     * @return A list of residences in a strata, or null if none found.
+     */
+    @Override
+    public ArrayList<Residence> getPropertiesWithStrata()
+    {
+        return collect(STRATA, Residence.class);
+    }
+
+
+    /**
+     * Builds the properties of the records that have a feature flag set.
+     *
+     * @param featureFlag the flag of the feature
+     * @param type        the kind of property the feature belongs to
+     * @param <T>         the kind of property the feature belongs to
+     * @return a list of the properties having the feature, or null if none found
+     */
+    private <T extends Property> ArrayList<T> collect(final byte featureFlag,
+                                                      final Class<T> type)
+    {
+        final ArrayList<T> propertiesWithFeature;
+
+        propertiesWithFeature = new ArrayList<>();
+
+        for(int slot = 0; slot < slotCount; slot++)
+        {
+            if((bufferOf(slot).get(offsetOf(slot) + FLAGS) & (LIVE | featureFlag)) == (LIVE | featureFlag))
+            {
+                propertiesWithFeature.add(type.cast(propertyAt(slot)));
+            }
+        }
+
+        if(propertiesWithFeature.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesWithFeature;
+    }
+
+
+    @Override
+    int slotLimit()
+    {
+        return slotCount;
+    }
+
+
+    @Override
+    byte kindAt(final int slot)
+    {
+        return bufferOf(slot).get(offsetOf(slot) + KIND);
+    }
+
+
+    @Override
+    double priceAt(final int slot)
+    {
+        return bufferOf(slot).getDouble(offsetOf(slot) + PRICE_USD);
+    }
+
+
+    @Override
+    int typeCodeAt(final int slot)
+    {
+        return bufferOf(slot).getInt(offsetOf(slot) + TYPE_CODE);
+    }
+
+
+    @Override
+    int streetNameCodeAt(final int slot)
+    {
+        return bufferOf(slot).getInt(offsetOf(slot) + STREET_NAME_CODE);
+    }
+
+
+    @Override
+    int cityCodeAt(final int slot)
+    {
+        return bufferOf(slot).getInt(offsetOf(slot) + CITY_CODE);
+    }
+
+
+    @Override
+    int postalCodeLength(final int slot)
+    {
+        return bufferOf(slot).get(offsetOf(slot) + POSTAL_CODE_LENGTH);
+    }
+
+
+    @Override
+    char postalCodeCharAt(final int slot,
+                          final int index)
+    {
+        return bufferOf(slot).getChar(offsetOf(slot) + POSTAL_CODE + index * Character.BYTES);
+    }
+
+
+    @Override
+    int bedroomsAt(final int slot)
+    {
+        return bufferOf(slot).get(offsetOf(slot) + BEDROOMS);
+    }
+
+
+    @Override
+    int squareFootageAt(final int slot)
+    {
+        return bufferOf(slot).getInt(offsetOf(slot) + SQUARE_FOOTAGE);
+    }
+
+
+    @Override
+    boolean hasFeatureAt(final int slot,
+                         final PropertyFeature feature)
+    {
+        return (bufferOf(slot).get(offsetOf(slot) + FLAGS) & featureFlag(feature)) != 0;
+    }
+
+
+    @Override
+    String propertyIdAt(final int slot)
+    {
+        final int offset;
+
+        offset = offsetOf(slot);
+
+        return getString(bufferOf(slot), offset + PROPERTY_ID_LENGTH, offset + PROPERTY_ID);
+    }
+
+
+    @Override
+    int propertyIdLength(final int slot)
+    {
+        return bufferOf(slot).get(offsetOf(slot) + PROPERTY_ID_LENGTH);
+    }
+
+
+    @Override
+    char propertyIdCharAt(final int slot,
+                          final int index)
+    {
+        return bufferOf(slot).getChar(offsetOf(slot) + PROPERTY_ID + index * Character.BYTES);
+    }
+
+
+    /**
+     * @param feature a feature
+     * @return the flag of the feature in the flags field of a record
+     */
+    private static byte featureFlag(final PropertyFeature feature)
+    {
+        switch(feature)
+        {
+            case SWIMMING_POOL:
+                return SWIMMING_POOL;
+            case STRATA:
+                return STRATA;
+            case LOADING_DOCK:
+                return LOADING_DOCK;
+            case HIGHWAY_ACCESS:
+                return HIGHWAY_ACCESS;
+            default:
+                return CUSTOMER_PARKING;
+        }
+    }
+
+
+    /**
+     * @param slot the slot of a record
+     * @return true if the record holds a property, false if it is free
+     */
+    @Override
+    boolean isLive(final int slot)
+    {
+        return (bufferOf(slot).get(offsetOf(slot) + FLAGS) & LIVE) != 0;
+    }
+
+
+    /**
+     * @param slot the slot of a record
+     * @return the buffer holding the record
+     */
+    private ByteBuffer bufferOf(final int slot)
+    {
+        return buffers.get(slot >>> SLOT_SHIFT);
+    }
+
+
+    /**
+     * @param slot the slot of a record
+     * @return the offset of the record in its buffer
+     */
+    private static int offsetOf(final int slot)
+    {
+        return (slot & SLOT_MASK) * RECORD_SIZE;
+    }
+
+
+    /**
+     * Builds a property from its record. The values were validated when the property was added,
+     * so the objects are built without validating them again.
+     *
+     * @param slot the slot of the record
+     * @return a new Property object of the stored kind
+     */
+    @Override
+    Property propertyAt(final int slot)
+    {
+        final ByteBuffer buffer;
+        final int offset;
+        final byte flags;
+        final double priceUsd;
+        final Address address;
+        final String type;
+        final String propertyId;
+
+        buffer = bufferOf(slot);
+        offset = offsetOf(slot);
+        flags = buffer.get(offset + FLAGS);
+        priceUsd = buffer.getDouble(offset + PRICE_USD);
+        address = addressAt(slot);
+        type = types.decode(buffer.getInt(offset + TYPE_CODE));
+        propertyId = getString(buffer, offset + PROPERTY_ID_LENGTH, offset + PROPERTY_ID);
+
+        switch(buffer.get(offset + KIND))
+        {
+            case RESIDENCE_KIND:
+                return new Residence(priceUsd, address, buffer.get(offset + BEDROOMS), (flags & SWIMMING_POOL) != 0,
+                                     type, propertyId, (flags & STRATA) != 0, false);
+            case COMMERCIAL_KIND:
+                return new Commercial(priceUsd, address, type, propertyId, (flags & LOADING_DOCK) != 0,
+                                      (flags & HIGHWAY_ACCESS) != 0, false);
+            case RETAIL_KIND:
+                return new Retail(priceUsd, address, type, propertyId, buffer.getInt(offset + SQUARE_FOOTAGE),
+                                  (flags & CUSTOMER_PARKING) != 0, false);
+            default:
+                return new Property(priceUsd, address, type, propertyId, false);
+        }
+    }
+
+
+    /**
+     * Builds an address from a record.
+     *
+     * @param slot the slot of the record
+     * @return a new Address object
+     */
+    private Address addressAt(final int slot)
+    {
+        final ByteBuffer buffer;
+        final int offset;
+
+        buffer = bufferOf(slot);
+        offset = offsetOf(slot);
+
+        return new Address(getString(buffer, offset + UNIT_NUMBER_LENGTH, offset + UNIT_NUMBER),
+                           buffer.getInt(offset + STREET_NUMBER),
+                           streetNames.decode(buffer.getInt(offset + STREET_NAME_CODE)),
+                           getString(buffer, offset + POSTAL_CODE_LENGTH, offset + POSTAL_CODE),
+                           cities.decode(buffer.getInt(offset + CITY_CODE)), false);
+    }
+
+
+    /**
+     * Writes a nullable string into a fixed-width field as its length followed by its characters.
+     *
+     * @param buffer       the buffer holding the record
+     * @param lengthOffset the offset of the length byte
+     * @param valueOffset  the offset of the characters
+     * @param value        the string, which fits in the field (nullable)
+     */
+    private static void putString(final ByteBuffer buffer,
+                                  final int lengthOffset,
+                                  final int valueOffset,
+                                  final String value)
+    {
+        if(value == null)
+        {
+            buffer.put(lengthOffset, NO_UNIT_NUMBER);
+            return;
+        }
+
+        buffer.put(lengthOffset, (byte) value.length());
+
+        for(int i = 0; i < value.length(); i++)
+        {
+            buffer.putChar(valueOffset + i * Character.BYTES, value.charAt(i));
+        }
+    }
+
+
+    /**
+     * Reads a string written with putString.
+     *
+     * @param buffer       the buffer holding the record
+     * @param lengthOffset the offset of the length byte
+     * @param valueOffset  the offset of the characters
+     * @return the string, or null if a null string was written
+     */
+    private static String getString(final ByteBuffer buffer,
+                                    final int lengthOffset,
+                                    final int valueOffset)
+    {
+        final int length;
+        final char[] characters;
+
+        length = buffer.get(lengthOffset);
+
+        if(length < 0)
+        {
+            return null;
+        }
+
+        characters = new char[length];
+
+        for(int i = 0; i < length; i++)
+        {
+            characters[i] = buffer.getChar(valueOffset + i * Character.BYTES);
+        }
+
+        return new String(characters);
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PackedIdMap of BCIT
+ * <p>
+ * Maps property IDs to values without hashing strings. The IDs are packed into longs and kept in the
+ * open-addressing table of PackedIdTable, with each value at the index of its ID in an array beside it.
+ * IDs that cannot be packed are kept in an ordinary HashMap.
+ *
+ * @param <V> the type of the values
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+final class PackedIdMap<V> extends PackedIdTable
+{
+    private final Map<String, V> unpackedValues;
+    private V[] values;
+
+    /**
+     * Creates an empty map.
+     */
+    PackedIdMap()
+    {
+        this.unpackedValues = new HashMap<>();
+    }
+
+
+    /**
+     * @param propertyId the property ID to look up (nullable)
+     * @return the value of the property ID, or null if it has none
+     */
+    V get(final String propertyId)
+    {
+        final long packedId;
+        final int index;
+
+        packedId = pack(propertyId);
+
+        if(packedId == NOT_PACKED)
+        {
+            return unpackedValues.get(propertyId);
+        }
+
+        index = indexOf(packedId);
+
+        if(index == NOT_FOUND)
+        {
+            return null;
+        }
+
+        return values[index];
+    }
+
+
+    /**
+     * Maps a property ID to a value, replacing its previous value.
+     *
+     * @param propertyId the property ID
+     * @param value      the value
+     * @return the previous value of the property ID, or null if it had none
+     */
+    V put(final String propertyId,
+          final V value)
+    {
+        final long packedId;
+        final int index;
+        final V previousValue;
+
+        packedId = pack(propertyId);
+
+        if(packedId == NOT_PACKED)
+        {
+            return unpackedValues.put(propertyId, value);
+        }
+
+        index = probe(packedId);
+        previousValue = values[index];
+        values[index] = value;
+
+        if(isEmptyAt(index))
+        {
+            addAt(index, packedId);
+        }
+
+        return previousValue;
+    }
+
+
+    /**
+     * Removes a property ID.
+     *
+     * @param propertyId the property ID to remove (nullable)
+     * @return the value of the property ID, or null if it had none
+     */
+    V remove(final String propertyId)
+    {
+        final long packedId;
+        final int index;
+        final V removedValue;
+
+        packedId = pack(propertyId);
+
+        if(packedId == NOT_PACKED)
+        {
+            return unpackedValues.remove(propertyId);
+        }
+
+        index = indexOf(packedId);
+
+        if(index == NOT_FOUND)
+        {
+            return null;
+        }
+
+        removedValue = values[index];
+        removeAt(index);
+
+        return removedValue;
+    }
+
+
+    /**
+     * @return the number of property IDs in the map
+     */
+    int size()
+    {
+        return packedSize() + unpackedValues.size();
+    }
+
+
+    @Override
+    @SuppressWarnings("unchecked")
+    void resizeValues(final int capacity,
+                      final int[] newIndexes)
+    {
+        final V[] resizedValues;
+
+        resizedValues = (V[]) new Object[capacity];
+
+        for(int i = 0; i < newIndexes.length; i++)
+        {
+            if(newIndexes[i] != NOT_FOUND)
+            {
+                resizedValues[newIndexes[i]] = values[i];
+            }
+        }
+
+        values = resizedValues;
+    }
+
+
+    @Override
+    void moveValue(final int from,
+                   final int to)
+    {
+        values[to] = values[from];
+    }
+
+
+    @Override
+    void clearValue(final int index)
+    {
+        values[index] = null;
+    }
+}
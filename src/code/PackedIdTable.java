@@ -0,0 +1,276 @@
+/**
+ * PackedIdTable of BCIT
+ * <p>
+ * The open-addressing table of packed property IDs that PackedIdMap and PackedSlotMap keep their values next to.
+ * A property ID has at most Property.MAX_PROPERTY_ID_LENGTH characters, so an ID whose characters are all
+ * Latin-1 is packed into a single long, one byte per character above its length. The packed IDs are kept in a
+ * table of primitive longs with linear probing, so a lookup packs the ID and probes one or two adjacent entries
+ * instead of hashing the string, following a bucket node and calling equals. The maps keep their values in an
+ * array of the same capacity, at the index of their key, and are told when the table moves or resizes entries.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+abstract class PackedIdTable
+{
+    static final long NOT_PACKED = 0L;
+    static final int NOT_FOUND = -1;
+
+    private static final int INITIAL_CAPACITY = 16;
+    private static final int LENGTH_SHIFT = 48;
+    private static final int MAX_PACKED_CHAR = 0xFF;
+    private static final long HASH_MULTIPLIER = 0x9E3779B97F4A7C15L;
+
+    private long[] keys;
+    private int packedCount;
+    private int shift;
+
+    /**
+     * Creates an empty table. It calls resizeValues to allocate the values of the subclass, so the subclass
+     * must not initialize its value array in a field initializer or constructor.
+     */
+    PackedIdTable()
+    {
+        allocate(INITIAL_CAPACITY, new int[0]);
+    }
+
+
+    /**
+     * Packs a property ID into a long: its length in the bits above 48 and one byte per character below.
+     *
+     * @param propertyId the property ID (nullable)
+     * @return the packed ID, or NOT_PACKED if the ID is null, empty, too long or has a character above Latin-1
+     */
+    static long pack(final String propertyId)
+    {
+        long packedId;
+        char character;
+
+        if(propertyId == null || propertyId.isEmpty() || propertyId.length() > Property.MAX_PROPERTY_ID_LENGTH)
+        {
+            return NOT_PACKED;
+        }
+
+        packedId = (long) propertyId.length() << LENGTH_SHIFT;
+
+        for(int i = 0; i < propertyId.length(); i++)
+        {
+            character = propertyId.charAt(i);
+
+            if(character > MAX_PACKED_CHAR)
+            {
+                return NOT_PACKED;
+            }
+
+            packedId |= (long) character << (i * Byte.SIZE);
+        }
+
+        return packedId;
+    }
+
+
+    /**
+     * Replaces the value array with one of a new capacity, moving each value to the new index of its entry.
+     *
+     * @param capacity   the number of entries of the new array
+     * @param newIndexes the new index of the entry at each index of the current array, or NOT_FOUND
+     *                   where there is no entry; empty when the first array is allocated
+     */
+    abstract void resizeValues(int capacity, int[] newIndexes);
+
+
+    /**
+     * Moves a value within the value array; called when a removal shifts an entry back into a gap.
+     *
+     * @param from the index of the value
+     * @param to   the index to move it to
+     */
+    abstract void moveValue(int from, int to);
+
+
+    /**
+     * Forgets the value at an index, which no longer holds an entry.
+     *
+     * @param index the index of the value
+     */
+    abstract void clearValue(int index);
+
+
+    /**
+     * @param packedId a packed property ID, not NOT_PACKED
+     * @return the index of the entry of the ID, or NOT_FOUND if it has none
+     */
+    final int indexOf(final long packedId)
+    {
+        int index;
+
+        index = homeOf(packedId);
+
+        while(keys[index] != NOT_PACKED)
+        {
+            if(keys[index] == packedId)
+            {
+                return index;
+            }
+
+            index = (index + 1) & (keys.length - 1);
+        }
+
+        return NOT_FOUND;
+    }
+
+
+    /**
+     * Finds the index of the entry of an ID, or the empty index where it would be added.
+     *
+     * @param packedId a packed property ID, not NOT_PACKED
+     * @return the index, which holds the ID if isEmptyAt returns false for it
+     */
+    final int probe(final long packedId)
+    {
+        int index;
+
+        index = homeOf(packedId);
+
+        while(keys[index] != NOT_PACKED && keys[index] != packedId)
+        {
+            index = (index + 1) & (keys.length - 1);
+        }
+
+        return index;
+    }
+
+
+    /**
+     * @param index an index returned by probe
+     * @return true if no entry is at the index, false otherwise
+     */
+    final boolean isEmptyAt(final int index)
+    {
+        return keys[index] == NOT_PACKED;
+    }
+
+
+    /**
+     * Adds an entry at the empty index returned by probe, once its value has been stored at that index.
+     * The table grows when it is three quarters full.
+     *
+     * @param index    the index returned by probe
+     * @param packedId the packed property ID
+     */
+    final void addAt(final int index,
+                     final long packedId)
+    {
+        keys[index] = packedId;
+        packedCount++;
+
+        if(packedCount * 4 > keys.length * 3)
+        {
+            resize();
+        }
+    }
+
+
+    /**
+     * Removes the entry at an index. The entries that follow it in its probe run are shifted back into the gap,
+     * so lookups never have to skip deleted entries.
+     *
+     * @param index the index returned by indexOf
+     */
+    final void removeAt(final int index)
+    {
+        final int mask;
+        int gap;
+        int next;
+
+        mask = keys.length - 1;
+        gap = index;
+        next = (gap + 1) & mask;
+
+        while(keys[next] != NOT_PACKED)
+        {
+            if(((next - homeOf(keys[next])) & mask) >= ((next - gap) & mask))
+            {
+                keys[gap] = keys[next];
+                moveValue(next, gap);
+                gap = next;
+            }
+
+            next = (next + 1) & mask;
+        }
+
+        keys[gap] = NOT_PACKED;
+        clearValue(gap);
+        packedCount--;
+    }
+
+
+    /**
+     * @return the number of packed IDs in the table
+     */
+    final int packedSize()
+    {
+        return packedCount;
+    }
+
+
+    /**
+     * @param packedId a packed property ID
+     * @return the index the probe for the ID starts at
+     */
+    private int homeOf(final long packedId)
+    {
+        return (int) ((packedId * HASH_MULTIPLIER) >>> shift);
+    }
+
+
+    /**
+     * Doubles the table and puts every packed ID back in it.
+     */
+    private void resize()
+    {
+        final long[] oldKeys;
+        final int[] newIndexes;
+        int index;
+
+        oldKeys = keys;
+        newIndexes = new int[oldKeys.length];
+        keys = new long[oldKeys.length * 2];
+        shift--;
+
+        for(int i = 0; i < oldKeys.length; i++)
+        {
+            newIndexes[i] = NOT_FOUND;
+
+            if(oldKeys[i] != NOT_PACKED)
+            {
+                index = homeOf(oldKeys[i]);
+
+                while(keys[index] != NOT_PACKED)
+                {
+                    index = (index + 1) & (keys.length - 1);
+                }
+
+                keys[index] = oldKeys[i];
+                newIndexes[i] = index;
+            }
+        }
+
+        resizeValues(keys.length, newIndexes);
+    }
+
+
+    /**
+     * Allocates an empty table and value array.
+     *
+     * @param capacity   the number of entries, a power of two
+     * @param newIndexes passed on to resizeValues
+     */
+    private void allocate(final int capacity,
+                          final int[] newIndexes)
+    {
+        keys = new long[capacity];
+        shift = Long.SIZE - Integer.numberOfTrailingZeros(capacity);
+        resizeValues(capacity, newIndexes);
+    }
+}
@@ -0,0 +1,171 @@
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * PackedSlotMap of BCIT
+ * <p>
+ * Maps property IDs to slots, the primitive counterpart of PackedIdMap used by the stores that number their
+ * properties. The slots are kept in an int[] beside the table of PackedIdTable, so neither a lookup nor an
+ * insert allocates: no Integer is boxed and no map entry is created per property. IDs that cannot be packed
+ * are kept in an ordinary HashMap.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+final class PackedSlotMap extends PackedIdTable
+{
+    static final int NO_SLOT = -1;
+
+    private final Map<String, Integer> unpackedSlots;
+    private int[] slots;
+
+    /**
+     * Creates an empty map.
+     */
+    PackedSlotMap()
+    {
+        this.unpackedSlots = new HashMap<>();
+    }
+
+
+    /**
+     * @param propertyId the property ID to look up (nullable)
+     * @return the slot of the property ID, or NO_SLOT if it has none
+     */
+    int get(final String propertyId)
+    {
+        final long packedId;
+        final int index;
+
+        packedId = pack(propertyId);
+
+        if(packedId == NOT_PACKED)
+        {
+            return unpackedSlots.getOrDefault(propertyId, NO_SLOT);
+        }
+
+        index = indexOf(packedId);
+
+        if(index == NOT_FOUND)
+        {
+            return NO_SLOT;
+        }
+
+        return slots[index];
+    }
+
+
+    /**
+     * Maps a property ID to a slot, replacing its previous slot.
+     *
+     * @param propertyId the property ID
+     * @param slot       the slot, not negative
+     * @return the previous slot of the property ID, or NO_SLOT if it had none
+     */
+    int put(final String propertyId,
+            final int slot)
+    {
+        final long packedId;
+        final Integer unpackedSlot;
+        final int index;
+        final int previousSlot;
+
+        packedId = pack(propertyId);
+
+        if(packedId == NOT_PACKED)
+        {
+            unpackedSlot = unpackedSlots.put(propertyId, slot);
+            return unpackedSlot == null ? NO_SLOT : unpackedSlot;
+        }
+
+        index = probe(packedId);
+        previousSlot = slots[index];
+        slots[index] = slot;
+
+        if(isEmptyAt(index))
+        {
+            addAt(index, packedId);
+            return NO_SLOT;
+        }
+
+        return previousSlot;
+    }
+
+
+    /**
+     * Removes a property ID.
+     *
+     * @param propertyId the property ID to remove (nullable)
+     * @return the slot of the property ID, or NO_SLOT if it had none
+     */
+    int remove(final String propertyId)
+    {
+        final long packedId;
+        final Integer unpackedSlot;
+        final int index;
+        final int removedSlot;
+
+        packedId = pack(propertyId);
+
+        if(packedId == NOT_PACKED)
+        {
+            unpackedSlot = unpackedSlots.remove(propertyId);
+            return unpackedSlot == null ? NO_SLOT : unpackedSlot;
+        }
+
+        index = indexOf(packedId);
+
+        if(index == NOT_FOUND)
+        {
+            return NO_SLOT;
+        }
+
+        removedSlot = slots[index];
+        removeAt(index);
+
+        return removedSlot;
+    }
+
+
+    /**
+     * @return the number of property IDs in the map
+     */
+    int size()
+    {
+        return packedSize() + unpackedSlots.size();
+    }
+
+
+    @Override
+    void resizeValues(final int capacity,
+                      final int[] newIndexes)
+    {
+        final int[] resizedSlots;
+
+        resizedSlots = new int[capacity];
+
+        for(int i = 0; i < newIndexes.length; i++)
+        {
+            if(newIndexes[i] != NOT_FOUND)
+            {
+                resizedSlots[newIndexes[i]] = slots[i];
+            }
+        }
+
+        slots = resizedSlots;
+    }
+
+
+    @Override
+    void moveValue(final int from,
+                   final int to)
+    {
+        slots[to] = slots[from];
+    }
+
+
+    @Override
+    void clearValue(final int index)
+    {
+    }
+}
@@ -0,0 +1,43 @@
+/**
+ * PageCursor of BCIT
+ * <p>
+ * Marks where a page of properties ordered by price ended, so that the next page can start right after it
+ * without counting or skipping the properties before it. Properties are ordered by price and then by
+ * property ID, so the position stays well defined when several properties share a price.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public final class PageCursor
+{
+    private final RangeKey lastKey;
+
+    /**
+     * Creates a cursor positioned after a property.
+     *
+     * @param lastProperty the last property of a page
+     */
+    PageCursor(final Property lastProperty)
+    {
+        this.lastKey = new RangeKey(lastProperty.getPriceUsd(), lastProperty.getPropertyId());
+    }
+
+
+    /**
+     * @return the position of the last property of the page in a price index
+     */
+    RangeKey getLastKey()
+    {
+        return lastKey;
+    }
+
+
+    /**
+     * @param property the property to check
+     * @return true if the property comes after the cursor in price order, false otherwise
+     */
+    boolean precedes(final Property property)
+    {
+        return lastKey.compareTo(new RangeKey(property.getPriceUsd(), property.getPropertyId())) < 0;
+    }
+}
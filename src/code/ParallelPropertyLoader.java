@@ -0,0 +1,665 @@
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * ParallelPropertyLoader of BCIT
+ * <p>
+ * Loads the address and property files into an Agency, or any other PropertyStore, using every available core.
+ * Both files are cut into aligned chunks of line pairs. For plain files the chunks are byte ranges found by
+ * counting line terminators in parallel, and each worker reads, decodes and parses its own ranges; the calling
+ * thread only merges finished chunks into the store, in file order, so the result is the same as loading the
+ * files one line at a time.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class ParallelPropertyLoader
+{
+    public static final int DEFAULT_CHUNK_SIZE = 10000;
+    private static final int CHUNKS_IN_FLIGHT_PER_THREAD = 2;
+    private static final long MAX_SEGMENT_SIZE = 64L * 1024L * 1024L;
+    private static final int SCAN_BLOCK_SIZE = 8192;
+    private static final byte NEW_LINE = '\n';
+
+    /**
+     * Loads the address and property files into the store with one worker per available processor.
+     *
+     * @param addressFile  the File object representing the address file
+     * @param propertyFile the File object representing the property file
+     * @param store        the store the properties are added to, such as an Agency
+     * @throws FileNotFoundException if either file is not found
+     * @throws IOException           if either file cannot be read
+     */
+    public static void load(final File addressFile,
+                            final File propertyFile,
+                            final PropertyStore store) throws IOException
+    {
+        load(addressFile, propertyFile, store, Runtime.getRuntime().availableProcessors(), DEFAULT_CHUNK_SIZE);
+    }
+
+
+    /**
+     * Loads the address and property files into the store.
+     * Plain files are cut into chunks of line-aligned byte ranges that the workers read, decode and parse
+     * themselves, so the calling thread only merges. Compressed files cannot be cut by byte offset, so their
+     * lines are read on the calling thread and only parsed by the workers.
+     * At most two chunks per thread are held in memory at any time. The addresses of one load share their
+     * street name, postal code and city strings through a StringPool that is dropped when the load returns.
+     *
+     * @param addressFile  the File object representing the address file
+     * @param propertyFile the File object representing the property file
+     * @param store        the store the properties are added to, such as an Agency
+     * @param threads      the number of worker threads that parse chunks
+     * @param chunkSize    the number of line pairs in each chunk
+     * @throws FileNotFoundException    if either file is not found
+     * @throws IOException              if either file cannot be read
+     * @throws IllegalArgumentException if threads or chunkSize is less than 1
+     */
+    public static void load(final File addressFile,
+                            final File propertyFile,
+                            final PropertyStore store,
+                            final int threads,
+                            final int chunkSize) throws IOException
+    {
+        final ExecutorService executor;
+        final StringPool addressStrings;
+
+        if(threads < 1)
+        {
+            throw new IllegalArgumentException("Invalid number of threads: " + threads);
+        }
+        if(chunkSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid chunk size: " + chunkSize);
+        }
+
+        executor = Executors.newFixedThreadPool(threads);
+        addressStrings = new StringPool();
+
+        try(LineReader addressReader = LineReader.open(addressFile);
+            LineReader propertyReader = LineReader.open(propertyFile))
+        {
+            if(addressReader instanceof MappedLineReader && propertyReader instanceof MappedLineReader)
+            {
+                loadRanges(addressFile, propertyFile, store, addressStrings, executor, threads, chunkSize);
+            }
+            else
+            {
+                loadLines(addressReader, propertyReader, store, addressStrings, executor, threads, chunkSize);
+            }
+        }
+        finally
+        {
+            executor.shutdownNow();
+        }
+    }
+
+
+    /**
+     * Loads plain files by byte range. The offsets where every chunk starts are found first, by counting
+     * line terminators in parallel; then each worker reads its own byte range of both files.
+     *
+     * @param addressFile    the File object representing the address file
+     * @param propertyFile   the File object representing the property file
+     * @param store          the store the properties are added to
+     * @param addressStrings the pool shared by the addresses of the load
+     * @param executor       the executor that runs the workers
+     * @param threads        the number of worker threads
+     * @param chunkSize      the number of line pairs in each chunk
+     * @throws IOException if either file cannot be read
+     */
+    private static void loadRanges(final File addressFile,
+                                   final File propertyFile,
+                                   final PropertyStore store,
+                                   final StringPool addressStrings,
+                                   final ExecutorService executor,
+                                   final int threads,
+                                   final int chunkSize) throws IOException
+    {
+        final Deque<Future<List<Property>>> chunksInFlight;
+        final int maxChunksInFlight;
+        final long addressSize;
+        final long propertySize;
+        final long[] addressChunkStarts;
+        final long[] propertyChunkStarts;
+        long addressStart;
+        long addressEnd;
+        long propertyEnd;
+
+        chunksInFlight = new ArrayDeque<>();
+        maxChunksInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+
+        try(FileChannel addressChannel = FileChannel.open(addressFile.toPath(), StandardOpenOption.READ);
+            FileChannel propertyChannel = FileChannel.open(propertyFile.toPath(), StandardOpenOption.READ))
+        {
+            addressSize = addressChannel.size();
+            propertySize = endOfContent(propertyChannel);
+            addressChunkStarts = findChunkStarts(executor, addressChannel, addressSize, threads, chunkSize);
+            propertyChunkStarts = findChunkStarts(executor, propertyChannel, propertySize, threads, chunkSize);
+
+            for(int chunk = 0; chunk < propertyChunkStarts.length; chunk++)
+            {
+                propertyEnd = chunk + 1 < propertyChunkStarts.length ? propertyChunkStarts[chunk + 1] : propertySize;
+                addressStart = chunk < addressChunkStarts.length ? addressChunkStarts[chunk] : addressSize;
+                addressEnd = chunk + 1 < addressChunkStarts.length ? addressChunkStarts[chunk + 1] : addressSize;
+
+                if(chunksInFlight.size() == maxChunksInFlight)
+                {
+                    mergeChunk(chunksInFlight.removeFirst(), store);
+                }
+
+                chunksInFlight.addLast(submitRange(executor, addressChannel, addressStart, addressEnd,
+                                                   propertyChannel, propertyChunkStarts[chunk], propertyEnd,
+                                                   addressStrings));
+            }
+
+            while(!chunksInFlight.isEmpty())
+            {
+                mergeChunk(chunksInFlight.removeFirst(), store);
+            }
+        }
+    }
+
+
+    /**
+     * Loads files that can only be read as a stream of lines, such as compressed files.
+     * The lines are read on the calling thread and cut into chunks that the workers parse.
+     *
+     * @param addressReader  the reader of the address file
+     * @param propertyReader the reader of the property file
+     * @param store          the store the properties are added to
+     * @param addressStrings the pool shared by the addresses of the load
+     * @param executor       the executor that runs the workers
+     * @param threads        the number of worker threads
+     * @param chunkSize      the number of line pairs in each chunk
+     * @throws IOException if either file cannot be read
+     */
+    private static void loadLines(final LineReader addressReader,
+                                  final LineReader propertyReader,
+                                  final PropertyStore store,
+                                  final StringPool addressStrings,
+                                  final ExecutorService executor,
+                                  final int threads,
+                                  final int chunkSize) throws IOException
+    {
+        final Deque<Future<List<Property>>> chunksInFlight;
+        final int maxChunksInFlight;
+        String[] addressLines;
+        String[] propertyLines;
+        int lineCount;
+        String propertyString;
+
+        chunksInFlight = new ArrayDeque<>();
+        maxChunksInFlight = threads * CHUNKS_IN_FLIGHT_PER_THREAD;
+        addressLines = new String[chunkSize];
+        propertyLines = new String[chunkSize];
+        lineCount = 0;
+
+        while((propertyString = propertyReader.nextLine()) != null)
+        {
+            addressLines[lineCount] = addressReader.nextLine();
+            propertyLines[lineCount] = propertyString;
+
+            if(addressLines[lineCount] == null)
+            {
+                throw new IllegalStateException("Missing address for property: " + propertyString);
+            }
+
+            lineCount++;
+
+            if(lineCount == chunkSize)
+            {
+                if(chunksInFlight.size() == maxChunksInFlight)
+                {
+                    mergeChunk(chunksInFlight.removeFirst(), store);
+                }
+
+                chunksInFlight.addLast(submitChunk(executor, addressLines, propertyLines, lineCount,
+                                                   addressStrings));
+
+                addressLines = new String[chunkSize];
+                propertyLines = new String[chunkSize];
+                lineCount = 0;
+            }
+        }
+
+        if(lineCount > 0)
+        {
+            chunksInFlight.addLast(submitChunk(executor, addressLines, propertyLines, lineCount, addressStrings));
+        }
+
+        while(!chunksInFlight.isEmpty())
+        {
+            mergeChunk(chunksInFlight.removeFirst(), store);
+        }
+    }
+
+
+    /**
+     * Finds where the content of a file ends, leaving out the blank lines at its end as LineReader does.
+     *
+     * @param channel the channel of the file
+     * @return the offset just after the line terminator of the last line with text, or the size of the file
+     *         if that line has no terminator; 0 if the file holds only whitespace
+     * @throws IOException if the file cannot be read
+     */
+    private static long endOfContent(final FileChannel channel) throws IOException
+    {
+        final ByteBuffer block;
+        long blockStart;
+        long blockEnd;
+        long firstNewLine;
+        byte nextByte;
+
+        block = ByteBuffer.allocate(SCAN_BLOCK_SIZE);
+        blockEnd = channel.size();
+        firstNewLine = -1;
+
+        while(blockEnd > 0)
+        {
+            blockStart = Math.max(0, blockEnd - SCAN_BLOCK_SIZE);
+            block.clear().limit((int) (blockEnd - blockStart));
+            readFully(channel, block, blockStart);
+
+            for(int i = block.limit() - 1; i >= 0; i--)
+            {
+                nextByte = block.get(i);
+
+                if(nextByte < 0 || !Character.isWhitespace((char) nextByte))
+                {
+                    return firstNewLine < 0 ? channel.size() : firstNewLine + 1;
+                }
+
+                if(nextByte == NEW_LINE)
+                {
+                    firstNewLine = blockStart + i;
+                }
+            }
+
+            blockEnd = blockStart;
+        }
+
+        return 0;
+    }
+
+
+    /**
+     * Finds the offsets of the lines that start a chunk: lines 0, chunkSize, 2 * chunkSize and so on.
+     * The file is cut into segments; the line terminators of every segment are counted in parallel, and
+     * then every segment, knowing how many lines come before it, records the chunk starts it holds.
+     *
+     * @param executor  the executor that runs the workers
+     * @param channel   the channel of the file
+     * @param size      the number of bytes of the file to consider
+     * @param threads   the number of worker threads
+     * @param chunkSize the number of lines in each chunk
+     * @return the offsets of the chunk starts in file order, empty if the file is empty
+     * @throws IOException if the file cannot be read
+     */
+    private static long[] findChunkStarts(final ExecutorService executor,
+                                          final FileChannel channel,
+                                          final long size,
+                                          final int threads,
+                                          final int chunkSize) throws IOException
+    {
+        final long segmentSize;
+        final int segmentCount;
+        final List<Future<Long>> newLineCounts;
+        final List<Future<long[]>> segmentChunkStarts;
+        final List<long[]> chunkStartsBySegment;
+        final long[] chunkStarts;
+        long linesBefore;
+        long segmentStart;
+        int chunkCount;
+
+        if(size == 0)
+        {
+            return new long[0];
+        }
+
+        segmentSize = Math.min(MAX_SEGMENT_SIZE, (size + threads - 1) / threads);
+        segmentCount = (int) ((size + segmentSize - 1) / segmentSize);
+        newLineCounts = new ArrayList<>(segmentCount);
+        segmentChunkStarts = new ArrayList<>(segmentCount);
+        chunkStartsBySegment = new ArrayList<>(segmentCount);
+
+        for(int segment = 0; segment < segmentCount; segment++)
+        {
+            segmentStart = segment * segmentSize;
+            newLineCounts.add(submitCount(executor, channel, segmentStart, Math.min(size, segmentStart + segmentSize)));
+        }
+
+        linesBefore = 0;
+
+        for(int segment = 0; segment < segmentCount; segment++)
+        {
+            segmentStart = segment * segmentSize;
+            segmentChunkStarts.add(submitChunkStarts(executor, channel, segmentStart,
+                                                     Math.min(size, segmentStart + segmentSize), size,
+                                                     linesBefore, chunkSize));
+            linesBefore += await(newLineCounts.get(segment));
+        }
+
+        chunkCount = 1;
+
+        for(final Future<long[]> starts : segmentChunkStarts)
+        {
+            chunkStartsBySegment.add(await(starts));
+            chunkCount += chunkStartsBySegment.get(chunkStartsBySegment.size() - 1).length;
+        }
+
+        chunkStarts = new long[chunkCount];
+        chunkCount = 1;
+
+        for(final long[] starts : chunkStartsBySegment)
+        {
+            System.arraycopy(starts, 0, chunkStarts, chunkCount, starts.length);
+            chunkCount += starts.length;
+        }
+
+        return chunkStarts;
+    }
+
+
+    /**
+     * Hands a segment of a file to a worker that counts its line terminators.
+     *
+     * @param executor the executor that runs the workers
+     * @param channel  the channel of the file
+     * @param start    the offset of the first byte of the segment
+     * @param end      the offset just after the last byte of the segment
+     * @return the pending number of '\n' bytes in the segment
+     */
+    private static Future<Long> submitCount(final ExecutorService executor,
+                                            final FileChannel channel,
+                                            final long start,
+                                            final long end)
+    {
+        return executor.submit(() -> {
+            final MappedByteBuffer segment;
+            long newLineCount;
+
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            newLineCount = 0;
+
+            for(int i = 0; i < segment.limit(); i++)
+            {
+                if(segment.get(i) == NEW_LINE)
+                {
+                    newLineCount++;
+                }
+            }
+
+            return newLineCount;
+        });
+    }
+
+
+    /**
+     * Hands a segment of a file to a worker that records the offsets of the chunk starts in it.
+     * A line starts just after each '\n'; its number is the number of '\n' bytes before it.
+     *
+     * @param executor    the executor that runs the workers
+     * @param channel     the channel of the file
+     * @param start       the offset of the first byte of the segment
+     * @param end         the offset just after the last byte of the segment
+     * @param size        the number of bytes of the file to consider
+     * @param linesBefore the number of '\n' bytes before the segment
+     * @param chunkSize   the number of lines in each chunk
+     * @return the pending offsets of the chunk starts that follow a '\n' in the segment
+     */
+    private static Future<long[]> submitChunkStarts(final ExecutorService executor,
+                                                    final FileChannel channel,
+                                                    final long start,
+                                                    final long end,
+                                                    final long size,
+                                                    final long linesBefore,
+                                                    final int chunkSize)
+    {
+        return executor.submit(() -> {
+            final MappedByteBuffer segment;
+            final List<Long> chunkStarts;
+            long lineNumber;
+
+            segment = channel.map(FileChannel.MapMode.READ_ONLY, start, end - start);
+            chunkStarts = new ArrayList<>();
+            lineNumber = linesBefore;
+
+            for(int i = 0; i < segment.limit(); i++)
+            {
+                if(segment.get(i) == NEW_LINE)
+                {
+                    lineNumber++;
+
+                    if(lineNumber % chunkSize == 0 && start + i + 1 < size)
+                    {
+                        chunkStarts.add(start + i + 1);
+                    }
+                }
+            }
+
+            return chunkStarts.stream().mapToLong(Long::longValue).toArray();
+        });
+    }
+
+
+    /**
+     * Hands a chunk of line-aligned byte ranges to a worker that reads, decodes and parses them.
+     * The address range may hold more lines than the property range; the extra lines are ignored.
+     *
+     * @param executor        the executor that runs the workers
+     * @param addressChannel  the channel of the address file
+     * @param addressStart    the offset of the first address line of the chunk
+     * @param addressEnd      the offset just after the address range
+     * @param propertyChannel the channel of the property file
+     * @param propertyStart   the offset of the first property line of the chunk
+     * @param propertyEnd     the offset just after the property range
+     * @param addressStrings  the pool shared by the addresses of the load
+     * @return the pending list of properties parsed from the chunk, in line order
+     */
+    private static Future<List<Property>> submitRange(final ExecutorService executor,
+                                                      final FileChannel addressChannel,
+                                                      final long addressStart,
+                                                      final long addressEnd,
+                                                      final FileChannel propertyChannel,
+                                                      final long propertyStart,
+                                                      final long propertyEnd,
+                                                      final StringPool addressStrings)
+    {
+        return executor.submit(() -> {
+            final byte[] addressBytes;
+            final byte[] propertyBytes;
+            final List<Property> properties;
+            int addressLineStart;
+            int addressLineEnd;
+            int propertyLineStart;
+            int propertyLineEnd;
+            String addressString;
+            String propertyString;
+            Address address;
+
+            addressBytes = readRange(addressChannel, addressStart, addressEnd);
+            propertyBytes = readRange(propertyChannel, propertyStart, propertyEnd);
+            properties = new ArrayList<>();
+            addressLineStart = 0;
+            propertyLineStart = 0;
+
+            while(propertyLineStart < propertyBytes.length)
+            {
+                propertyLineEnd = LineBuffer.indexOfNewLine(propertyBytes, propertyLineStart);
+                propertyString = LineBuffer.decodeLine(propertyBytes, propertyLineStart, propertyLineEnd);
+                propertyLineStart = propertyLineEnd + 1;
+
+                if(addressLineStart >= addressBytes.length)
+                {
+                    throw new IllegalStateException("Missing address for property: " + propertyString);
+                }
+
+                addressLineEnd = LineBuffer.indexOfNewLine(addressBytes, addressLineStart);
+                addressString = LineBuffer.decodeLine(addressBytes, addressLineStart, addressLineEnd);
+                addressLineStart = addressLineEnd + 1;
+
+                address = AddressReader.getAddressFromString(addressString, addressStrings);
+                properties.add(PropertyReader.getPropertyFromString(propertyString, address));
+            }
+
+            return properties;
+        });
+    }
+
+
+    /**
+     * Reads a byte range of a file. Positional reads let several workers share the channel.
+     *
+     * @param channel the channel of the file
+     * @param start   the offset of the first byte
+     * @param end     the offset just after the last byte
+     * @return the bytes of the range
+     * @throws IOException if the file cannot be read or the range does not fit in an array
+     */
+    private static byte[] readRange(final FileChannel channel,
+                                    final long start,
+                                    final long end) throws IOException
+    {
+        final byte[] bytes;
+
+        if(end - start > Integer.MAX_VALUE - 8)
+        {
+            throw new IOException("Chunk too large, use a smaller chunk size: " + (end - start) + " bytes");
+        }
+
+        bytes = new byte[(int) (end - start)];
+        readFully(channel, ByteBuffer.wrap(bytes), start);
+
+        return bytes;
+    }
+
+
+    /**
+     * Fills the remaining space of a buffer from a file.
+     *
+     * @param channel  the channel of the file
+     * @param buffer   the buffer to fill
+     * @param position the offset of the file to read from
+     * @throws EOFException if the file ends before the buffer is full
+     * @throws IOException  if the file cannot be read
+     */
+    private static void readFully(final FileChannel channel,
+                                  final ByteBuffer buffer,
+                                  final long position) throws IOException
+    {
+        final int start;
+
+        start = buffer.position();
+
+        while(buffer.hasRemaining())
+        {
+            if(channel.read(buffer, position + buffer.position() - start) < 0)
+            {
+                throw new EOFException("Unexpected end of file at offset " + (position + buffer.position() - start));
+            }
+        }
+    }
+
+
+    /**
+     * Hands a chunk of line pairs to a worker that parses it into properties.
+     *
+     * @param executor       the executor that runs the workers
+     * @param addressLines   the address lines of the chunk
+     * @param propertyLines  the property lines of the chunk, aligned with addressLines
+     * @param lineCount      the number of line pairs used in the arrays
+     * @param addressStrings the pool shared by the addresses of the load
+     * @return the pending list of properties parsed from the chunk, in line order
+     */
+    private static Future<List<Property>> submitChunk(final ExecutorService executor,
+                                                      final String[] addressLines,
+                                                      final String[] propertyLines,
+                                                      final int lineCount,
+                                                      final StringPool addressStrings)
+    {
+        return executor.submit(() -> {
+            final List<Property> properties;
+            Address address;
+
+            properties = new ArrayList<>(lineCount);
+
+            for(int i = 0; i < lineCount; i++)
+            {
+                address = AddressReader.getAddressFromString(addressLines[i], addressStrings);
+                properties.add(PropertyReader.getPropertyFromString(propertyLines[i], address));
+            }
+
+            return properties;
+        });
+    }
+
+
+    /**
+     * Waits for a chunk to be parsed and adds its properties to the store.
+     * A failure on the worker is rethrown on the calling thread.
+     *
+     * @param chunk  the pending list of properties parsed from a chunk
+     * @param store  the store the properties are added to
+     * @throws IOException if the worker failed to read the chunk or the calling thread is interrupted
+     */
+    private static void mergeChunk(final Future<List<Property>> chunk,
+                                   final PropertyStore store) throws IOException
+    {
+        for(final Property property : await(chunk))
+        {
+            store.addProperty(property);
+        }
+    }
+
+
+    /**
+     * Waits for a worker to finish. A failure on the worker is rethrown on the calling thread.
+     *
+     * @param result the pending result of the worker
+     * @param <T>    the type of the result
+     * @return the result of the worker
+     * @throws IOException if the worker failed to read its file or the calling thread is interrupted
+     */
+    private static <T> T await(final Future<T> result) throws IOException
+    {
+        try
+        {
+            return result.get();
+        }
+        catch(InterruptedException interruptedException)
+        {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while loading properties");
+        }
+        catch(ExecutionException executionException)
+        {
+            if(executionException.getCause() instanceof RuntimeException)
+            {
+                throw (RuntimeException) executionException.getCause();
+            }
+
+            if(executionException.getCause() instanceof IOException)
+            {
+                throw (IOException) executionException.getCause();
+            }
+
+            throw new IllegalStateException(executionException.getCause());
+        }
+    }
+}
@@ -0,0 +1,19 @@
+/**
+ * PriceChangeListener of BCIT
+ * <p>
+ * Is notified when the price of a Property changes in place, so that anything ordered or
+ * summed by price can follow the change.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public interface PriceChangeListener
+{
+    /**
+     * Called after the price of a property has changed.
+     *
+     * @param property    the property whose price changed; getPriceUsd() returns the new price
+     * @param oldPriceUsd the price of the property before the change
+     */
+    void priceChanged(Property property, double oldPriceUsd);
+}
@@ -0,0 +1,181 @@
+import java.util.Collection;
+import java.util.Collections;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+
+/**
+ * PriceIndex of BCIT
+ * <p>
+ * Keeps a group of properties ordered by price, together with a running total of their prices.
+ * The total is kept with Neumaier's compensated summation: the low-order bits lost by each addition
+ * are carried in a separate compensation term, so adding and removing millions of prices does not
+ * make the total drift away from the exact sum.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class PriceIndex
+{
+    private final NavigableMap<RangeKey, Property> propertiesByPrice;
+    private double sumUsd;
+    private double compensationUsd;
+
+    /**
+     * Creates an empty price index.
+     */
+    public PriceIndex()
+    {
+        this.propertiesByPrice = new TreeMap<>();
+    }
+
+
+    /**
+     * Adds a property under its current price.
+     *
+     * @param property the property to add
+     */
+    void add(final Property property)
+    {
+        propertiesByPrice.put(new RangeKey(property.getPriceUsd(), property.getPropertyId()), property);
+        addToTotal(property.getPriceUsd());
+    }
+
+
+    /**
+     * Removes a property that was added under its current price.
+     *
+     * @param property the property to remove
+     */
+    void remove(final Property property)
+    {
+        if(propertiesByPrice.remove(new RangeKey(property.getPriceUsd(), property.getPropertyId())) != null)
+        {
+            addToTotal(-property.getPriceUsd());
+        }
+    }
+
+
+    /**
+     * Moves a property whose price has changed from its old price to its current one.
+     *
+     * @param property    the property whose price changed
+     * @param oldPriceUsd the price the property was added under
+     */
+    void move(final Property property,
+              final double oldPriceUsd)
+    {
+        if(propertiesByPrice.remove(new RangeKey(oldPriceUsd, property.getPropertyId())) != null)
+        {
+            addToTotal(-oldPriceUsd);
+            add(property);
+        }
+    }
+
+
+    /**
+     * Adds an amount to the running total with Neumaier's compensated summation.
+     *
+     * @param amountUsd the amount to add, negative to subtract a price
+     */
+    private void addToTotal(final double amountUsd)
+    {
+        final double newSumUsd;
+
+        newSumUsd = sumUsd + amountUsd;
+
+        if(Math.abs(sumUsd) >= Math.abs(amountUsd))
+        {
+            compensationUsd += (sumUsd - newSumUsd) + amountUsd;
+        }
+        else
+        {
+            compensationUsd += (amountUsd - newSumUsd) + sumUsd;
+        }
+
+        sumUsd = newSumUsd;
+    }
+
+
+    /**
+     * @return the number of properties in the index
+     */
+    public int size()
+    {
+        return propertiesByPrice.size();
+    }
+
+
+    /**
+     * @return the sum of the prices of the properties in USD
+     */
+    public double getTotalUsd()
+    {
+        return sumUsd + compensationUsd;
+    }
+
+
+    /**
+     * @return the count, total, mean, min and max price of the properties, or null if the index is empty
+     */
+    public PriceStatistics getStatistics()
+    {
+        if(propertiesByPrice.isEmpty())
+        {
+            return null;
+        }
+
+        return new PriceStatistics(propertiesByPrice.size(), getTotalUsd(),
+                                   propertiesByPrice.firstKey().getValue(),
+                                   propertiesByPrice.lastKey().getValue());
+    }
+
+
+    /**
+     * @return a read-only view of every property in the index, ordered by price
+     */
+    public Collection<Property> values()
+    {
+        return Collections.unmodifiableCollection(propertiesByPrice.values());
+    }
+
+
+    /**
+     * @param minUsd the minimum price in USD
+     * @param maxUsd the maximum price in USD
+     * @return a read-only view of the properties within the price range (inclusive), ordered by price;
+     *         empty if the range is empty or either bound is NaN
+     */
+    public Collection<Property> between(final double minUsd,
+                                        final double maxUsd)
+    {
+        return range(minUsd, maxUsd).values();
+    }
+
+
+    /**
+     * @return a read-only view of every entry of the index, ordered by price
+     */
+    NavigableMap<RangeKey, Property> entries()
+    {
+        return Collections.unmodifiableNavigableMap(propertiesByPrice);
+    }
+
+
+    /**
+     * @param minUsd the minimum price in USD
+     * @param maxUsd the maximum price in USD
+     * @return a read-only view of the entries within the price range (inclusive), ordered by price;
+     *         empty if the range is empty or either bound is NaN
+     */
+    NavigableMap<RangeKey, Property> range(final double minUsd,
+                                           final double maxUsd)
+    {
+        if(!(minUsd <= maxUsd))
+        {
+            return Collections.emptyNavigableMap();
+        }
+
+        return Collections.unmodifiableNavigableMap(propertiesByPrice.subMap(RangeKey.lowest(minUsd), true,
+                                                                             RangeKey.highest(maxUsd), true));
+    }
+}
@@ -0,0 +1,99 @@
+/**
+ * PriceStatistics of BCIT
+ * <p>
+ * The price statistics of a group of properties at one point in time: how many there are,
+ * their total and mean price, and the lowest and highest price.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class PriceStatistics
+{
+    private final int count;
+    private final double totalUsd;
+    private final double minUsd;
+    private final double maxUsd;
+
+    /**
+     * Constructs the price statistics of a non-empty group of properties.
+     *
+     * @param count    the number of properties
+     * @param totalUsd the sum of their prices in USD
+     * @param minUsd   the lowest price in USD
+     * @param maxUsd   the highest price in USD
+     * @throws IllegalArgumentException if count is less than 1
+     */
+    public PriceStatistics(final int count,
+                           final double totalUsd,
+                           final double minUsd,
+                           final double maxUsd)
+    {
+        if(count < 1)
+        {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        this.count = count;
+        this.totalUsd = totalUsd;
+        this.minUsd = minUsd;
+        this.maxUsd = maxUsd;
+    }
+
+
+    /**
+     * @return the number of properties
+     */
+    public int getCount()
+    {
+        return count;
+    }
+
+
+    /**
+     * @return the sum of the prices in USD
+     */
+    public double getTotalUsd()
+    {
+        return totalUsd;
+    }
+
+
+    /**
+     * @return the mean price in USD
+     */
+    public double getMeanUsd()
+    {
+        return totalUsd / count;
+    }
+
+
+    /**
+     * @return the lowest price in USD
+     */
+    public double getMinUsd()
+    {
+        return minUsd;
+    }
+
+
+    /**
+     * @return the highest price in USD
+     */
+    public double getMaxUsd()
+    {
+        return maxUsd;
+    }
+
+
+    /**
+     * Returns a string representation of the statistics.
+     *
+     * @return the count, total, mean, min and max prices
+     */
+    @Override
+    public String toString()
+    {
+        return String.format("Count: %d%nTotal: $%.2f%nMean: $%.2f%nMin: $%.2f%nMax: $%.2f",
+                             count, totalUsd, getMeanUsd(), minUsd, maxUsd);
+    }
+}
@@ -1,3 +1,6 @@
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * Property of BCIT
  *
@@ -10,8 +13,9 @@ public class Property
     private final Address address;
     private final String type;
     private final String propertyId;
+    private List<PriceChangeListener> priceChangeListeners;
 
-    private static final int MAX_PROPERTY_ID_LENGTH = 6;
+    public static final int MAX_PROPERTY_ID_LENGTH = 6;
     private static final double MIN_PRICE_USD = 0;
 
 
@@ -33,6 +37,52 @@ public class Property
                     final Address address,
                     final String type,
                     final String propertyId)
+    {
+        this(priceUsd, address, type, propertyId, true);
+    }
+
+
+    /**
+     * Constructs a new Property object, optionally skipping validation.
+     * Only data that was validated before, such as an Agency snapshot, may be restored without validation.
+     *
+     * @param priceUsd   The price of the property in USD.
+     * @param address    The address of the property.
+     * @param type       The type of the property.
+     * @param propertyId The unique identifier of the property.
+     * @param validate   true to validate the details as the public constructor does, false to trust them.
+     */
+    Property(final double priceUsd,
+             final Address address,
+             final String type,
+             final String propertyId,
+             final boolean validate)
+    {
+        if(validate)
+        {
+            validateProperty(priceUsd, address, type, propertyId);
+        }
+
+        this.propertyId = propertyId;
+        this.type = type;
+        this.priceUsd = priceUsd;
+        this.address = address;
+    }
+
+    /**
+     * Validates the details of a property, throwing for the first invalid one.
+     *
+     * @param priceUsd   The price of the property in USD.
+     * @param address    The address of the property.
+     * @param type       The type of the property.
+     * @param propertyId The unique identifier of the property.
+     * @throws NullPointerException     if the address, type or propertyId is null.
+     * @throws IllegalArgumentException if any of the details is invalid.
+     */
+    private void validateProperty(final double priceUsd,
+                                  final Address address,
+                                  final String type,
+                                  final String propertyId)
     {
         if(!isValidPriceUsd(priceUsd))
         {
@@ -61,11 +111,6 @@ public class Property
         {
             throw new IllegalArgumentException("Invalid property id: " + propertyId);
         }
-
-        this.propertyId = propertyId;
-        this.type = type;
-        this.priceUsd = priceUsd;
-        this.address = address;
     }
 
     /**
@@ -113,13 +158,59 @@ public class Property
 
 
     /**
-     * Sets the price of the property in USD.
+     * Sets the price of the property in USD and notifies the registered price change listeners.
      *
      * @param priceUsd The new price of the property.
      */
     public void setPriceUsd(final double priceUsd)
     {
+        final double oldPriceUsd;
+
+        oldPriceUsd = this.priceUsd;
         this.priceUsd = priceUsd;
+
+        if(priceChangeListeners != null)
+        {
+            for(final PriceChangeListener priceChangeListener : priceChangeListeners)
+            {
+                priceChangeListener.priceChanged(this, oldPriceUsd);
+            }
+        }
+    }
+
+
+    /**
+     * Registers a listener to be notified whenever setPriceUsd changes the price of this property.
+     *
+     * @param priceChangeListener The listener to register.
+     */
+    void addPriceChangeListener(final PriceChangeListener priceChangeListener)
+    {
+        if(priceChangeListeners == null)
+        {
+            priceChangeListeners = new ArrayList<>(1);
+        }
+
+        priceChangeListeners.add(priceChangeListener);
+    }
+
+
+    /**
+     * Unregisters a listener registered with addPriceChangeListener.
+     *
+     * @param priceChangeListener The listener to unregister.
+     */
+    void removePriceChangeListener(final PriceChangeListener priceChangeListener)
+    {
+        if(priceChangeListeners != null)
+        {
+            priceChangeListeners.remove(priceChangeListener);
+
+            if(priceChangeListeners.isEmpty())
+            {
+                priceChangeListeners = null;
+            }
+        }
     }
 
 
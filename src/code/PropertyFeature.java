@@ -0,0 +1,42 @@
+/**
+ * PropertyFeature of BCIT
+ * <p>
+ * The yes/no features a listing can have. Each feature belongs to one kind of property;
+ * properties of the other kinds never have it.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public enum PropertyFeature
+{
+    SWIMMING_POOL,
+    STRATA,
+    LOADING_DOCK,
+    HIGHWAY_ACCESS,
+    CUSTOMER_PARKING;
+
+    /**
+     * Checks whether a property has this feature.
+     *
+     * @param property the property to check
+     * @return true if the property is of the kind this feature belongs to and has it, false otherwise
+     */
+    public boolean isPresentIn(final Property property)
+    {
+        switch(this)
+        {
+            case SWIMMING_POOL:
+                return property instanceof Residence && ((Residence) property).hasSwimmingPool();
+            case STRATA:
+                return property instanceof Residence && ((Residence) property).hasStrata();
+            case LOADING_DOCK:
+                return property instanceof Commercial && ((Commercial) property).hasLoadingDock();
+            case HIGHWAY_ACCESS:
+                return property instanceof Commercial && ((Commercial) property).hasHighwayAccess();
+            case CUSTOMER_PARKING:
+                return property instanceof Retail && ((Retail) property).hasCustomerParking();
+            default:
+                throw new IllegalStateException("Unknown feature: " + this);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * PropertyPage of BCIT
+ * <p>
+ * One page of the results of a query, ordered by price. getNextCursor() returns the cursor
+ * that fetches the following page, or null if this is the last one.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class PropertyPage
+{
+    private final List<Property> properties;
+    private final PageCursor nextCursor;
+
+    /**
+     * Creates a page from the first results after the previous page. One result more than the page size
+     * is expected when there is a next page; it is only used to know that the next page exists.
+     *
+     * @param results  up to pageSize + 1 results, ordered by price
+     * @param pageSize the maximum number of properties on the page
+     */
+    PropertyPage(final List<Property> results,
+                 final int pageSize)
+    {
+        if(results.size() > pageSize)
+        {
+            this.properties = Collections.unmodifiableList(results.subList(0, pageSize));
+            this.nextCursor = new PageCursor(results.get(pageSize - 1));
+        }
+        else
+        {
+            this.properties = Collections.unmodifiableList(results);
+            this.nextCursor = null;
+        }
+    }
+
+
+    /**
+     * @return the properties on the page, ordered by price
+     */
+    public List<Property> getProperties()
+    {
+        return properties;
+    }
+
+
+    /**
+     * @return the cursor of the next page, or null if this is the last page
+     */
+    public PageCursor getNextCursor()
+    {
+        return nextCursor;
+    }
+
+
+    /**
+     * @return true if there is a page after this one, false otherwise
+     */
+    public boolean hasNextPage()
+    {
+        return nextCursor != null;
+    }
+}
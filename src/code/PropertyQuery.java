@@ -0,0 +1,404 @@
+import java.util.EnumMap;
+import java.util.Map;
+
+/**
+ * PropertyQuery of BCIT
+ * <p>
+ * Describes a search over the properties of an Agency that combines any of the criteria the agency
+ * supports: price range, street, postal area, city, type, bedrooms, square footage and the yes/no features. Criteria are
+ * added with the chainable methods and all of them must hold, for example:
+ * <pre>
+ * new PropertyQuery().ofType("residence")
+ *                    .bedroomsBetween(3, 5)
+ *                    .withFeature(PropertyFeature.SWIMMING_POOL, true)
+ *                    .priceBetween(0, 1000000)
+ * </pre>
+ * Agency.findProperties answers the query in a single pass over the candidates of its most selective index.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class PropertyQuery
+{
+    private boolean priceRange;
+    private double minPriceUsd;
+    private double maxPriceUsd;
+    private String streetName;
+    private String postalCodePrefix;
+    private String city;
+    private String type;
+    private boolean bedroomRange;
+    private int minBedrooms;
+    private int maxBedrooms;
+    private boolean squareFootageRange;
+    private int minSquareFootage;
+    private int maxSquareFootage;
+    private final Map<PropertyFeature, Boolean> features;
+
+    /**
+     * Creates a query without criteria, which matches every property.
+     */
+    public PropertyQuery()
+    {
+        this.features = new EnumMap<>(PropertyFeature.class);
+    }
+
+
+    /**
+     * Requires the price to be within a range (inclusive).
+     *
+     * @param minUsd the minimum price in USD
+     * @param maxUsd the maximum price in USD
+     * @return this query
+     */
+    public PropertyQuery priceBetween(final double minUsd,
+                                      final double maxUsd)
+    {
+        this.priceRange = true;
+        this.minPriceUsd = minUsd;
+        this.maxPriceUsd = maxUsd;
+
+        return this;
+    }
+
+
+    /**
+     * Requires the property to be on a street, matched ignoring case.
+     *
+     * @param streetName the name of the street
+     * @return this query
+     * @throws NullPointerException if the street name is null
+     */
+    public PropertyQuery onStreet(final String streetName)
+    {
+        if(streetName == null)
+        {
+            throw new NullPointerException("Invalid street name: " + streetName);
+        }
+
+        this.streetName = streetName;
+
+        return this;
+    }
+
+
+    /**
+     * Requires the postal code of the property to start with a prefix, such as "V7N".
+     * Whitespace and case are ignored in both the prefix and the postal codes.
+     *
+     * @param postalCodePrefix the beginning of the postal code
+     * @return this query
+     * @throws NullPointerException if the prefix is null
+     */
+    public PropertyQuery inPostalArea(final String postalCodePrefix)
+    {
+        if(postalCodePrefix == null)
+        {
+            throw new NullPointerException("Invalid postal code prefix: " + postalCodePrefix);
+        }
+
+        this.postalCodePrefix = Address.normalizePostalCode(postalCodePrefix);
+
+        return this;
+    }
+
+
+    /**
+     * Requires the property to be in a city, matched ignoring case.
+     *
+     * @param city the name of the city
+     * @return this query
+     * @throws NullPointerException if the city is null
+     */
+    public PropertyQuery inCity(final String city)
+    {
+        if(city == null)
+        {
+            throw new NullPointerException("Invalid city: " + city);
+        }
+
+        this.city = city;
+
+        return this;
+    }
+
+
+    /**
+     * Requires the property to be of a type, matched ignoring case.
+     *
+     * @param type the type of property
+     * @return this query
+     * @throws NullPointerException if the type is null
+     */
+    public PropertyQuery ofType(final String type)
+    {
+        if(type == null)
+        {
+            throw new NullPointerException("Invalid type: " + type);
+        }
+
+        this.type = type;
+
+        return this;
+    }
+
+
+    /**
+     * Requires the property to be a Residence with a number of bedrooms within a range (inclusive).
+     *
+     * @param minBedrooms the minimum number of bedrooms
+     * @param maxBedrooms the maximum number of bedrooms
+     * @return this query
+     */
+    public PropertyQuery bedroomsBetween(final int minBedrooms,
+                                         final int maxBedrooms)
+    {
+        this.bedroomRange = true;
+        this.minBedrooms = minBedrooms;
+        this.maxBedrooms = maxBedrooms;
+
+        return this;
+    }
+
+
+    /**
+     * Requires the property to be a Retail with a square footage within a range (inclusive).
+     *
+     * @param minSquareFootage the minimum square footage
+     * @param maxSquareFootage the maximum square footage
+     * @return this query
+     */
+    public PropertyQuery squareFootageBetween(final int minSquareFootage,
+                                              final int maxSquareFootage)
+    {
+        this.squareFootageRange = true;
+        this.minSquareFootage = minSquareFootage;
+        this.maxSquareFootage = maxSquareFootage;
+
+        return this;
+    }
+
+
+    /**
+     * Requires the property to have, or not to have, a feature. Properties of a kind the feature does
+     * not belong to never have it, so requiring a pool also requires a Residence.
+     *
+     * @param feature the feature
+     * @param present true if the property must have the feature, false if it must not
+     * @return this query
+     * @throws NullPointerException if the feature is null
+     */
+    public PropertyQuery withFeature(final PropertyFeature feature,
+                                     final boolean present)
+    {
+        if(feature == null)
+        {
+            throw new NullPointerException("Invalid feature: " + feature);
+        }
+
+        features.put(feature, present);
+
+        return this;
+    }
+
+
+    /**
+     * Checks a property against every criterion of the query.
+     *
+     * @param property the property to check
+     * @return true if the property meets every criterion, false otherwise
+     */
+    public boolean matches(final Property property)
+    {
+        final double priceUsd;
+
+        priceUsd = property.getPriceUsd();
+
+        if(priceRange && !(priceUsd >= minPriceUsd && priceUsd <= maxPriceUsd))
+        {
+            return false;
+        }
+        if(streetName != null && !property.getAddress().getStreetName().equalsIgnoreCase(streetName))
+        {
+            return false;
+        }
+        if(postalCodePrefix != null &&
+                !Address.normalizePostalCode(property.getAddress().getPostalCode()).startsWith(postalCodePrefix))
+        {
+            return false;
+        }
+        if(city != null && !property.getAddress().getCity().equalsIgnoreCase(city))
+        {
+            return false;
+        }
+        if(type != null && !property.getType().equalsIgnoreCase(type))
+        {
+            return false;
+        }
+        if(bedroomRange && !(property instanceof Residence &&
+                ((Residence) property).getNumberOfBedrooms() >= minBedrooms &&
+                ((Residence) property).getNumberOfBedrooms() <= maxBedrooms))
+        {
+            return false;
+        }
+        if(squareFootageRange && !(property instanceof Retail &&
+                ((Retail) property).getSquareFootage() >= minSquareFootage &&
+                ((Retail) property).getSquareFootage() <= maxSquareFootage))
+        {
+            return false;
+        }
+
+        for(final Map.Entry<PropertyFeature, Boolean> feature : features.entrySet())
+        {
+            if(feature.getKey().isPresentIn(property) != feature.getValue())
+            {
+                return false;
+            }
+        }
+
+        return true;
+    }
+
+
+    /**
+     * @return the combination of every feature criterion, or null if the query has none
+     */
+    FeatureFilter getFeatureFilter()
+    {
+        FeatureFilter featureFilter;
+        FeatureFilter featureCriterion;
+
+        featureFilter = null;
+
+        for(final Map.Entry<PropertyFeature, Boolean> feature : features.entrySet())
+        {
+            featureCriterion = FeatureFilter.has(feature.getKey());
+
+            if(!feature.getValue())
+            {
+                featureCriterion = featureCriterion.not();
+            }
+
+            featureFilter = featureFilter == null ? featureCriterion : featureFilter.and(featureCriterion);
+        }
+
+        return featureFilter;
+    }
+
+
+    /**
+     * @return true if the query has a price range
+     */
+    boolean hasPriceRange()
+    {
+        return priceRange;
+    }
+
+
+    /**
+     * @return the minimum price in USD of the price range
+     */
+    double getMinPriceUsd()
+    {
+        return minPriceUsd;
+    }
+
+
+    /**
+     * @return the maximum price in USD of the price range
+     */
+    double getMaxPriceUsd()
+    {
+        return maxPriceUsd;
+    }
+
+
+    /**
+     * @return the street name criterion, or null if the query has none
+     */
+    String getStreetName()
+    {
+        return streetName;
+    }
+
+
+    /**
+     * @return the normalized postal code prefix criterion, or null if the query has none
+     */
+    String getPostalCodePrefix()
+    {
+        return postalCodePrefix;
+    }
+
+
+    /**
+     * @return the city criterion, or null if the query has none
+     */
+    String getCity()
+    {
+        return city;
+    }
+
+
+    /**
+     * @return the type criterion, or null if the query has none
+     */
+    String getType()
+    {
+        return type;
+    }
+
+
+    /**
+     * @return true if the query has a bedroom range
+     */
+    boolean hasBedroomRange()
+    {
+        return bedroomRange;
+    }
+
+
+    /**
+     * @return the minimum number of bedrooms of the bedroom range
+     */
+    int getMinBedrooms()
+    {
+        return minBedrooms;
+    }
+
+
+    /**
+     * @return the maximum number of bedrooms of the bedroom range
+     */
+    int getMaxBedrooms()
+    {
+        return maxBedrooms;
+    }
+
+
+    /**
+     * @return true if the query has a square footage range
+     */
+    boolean hasSquareFootageRange()
+    {
+        return squareFootageRange;
+    }
+
+
+    /**
+     * @return the minimum square footage of the square footage range
+     */
+    int getMinSquareFootage()
+    {
+        return minSquareFootage;
+    }
+
+
+    /**
+     * @return the maximum square footage of the square footage range
+     */
+    int getMaxSquareFootage()
+    {
+        return maxSquareFootage;
+    }
+}
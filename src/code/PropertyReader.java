@@ -1,7 +1,8 @@
 import java.io.File;
 import java.io.FileNotFoundException;
+import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Scanner;
+import java.util.function.Consumer;
 
 /**
  * PropertyReader of BCIT
@@ -11,6 +12,11 @@ import java.util.Scanner;
  */
 public class PropertyReader
 {
+    private static final String RESIDENCE_TYPE = "residence";
+    private static final String COMMERCIAL_TYPE = "commercial";
+    private static final String RETAIL_TYPE = "retail";
+
+    private static final ThreadLocal<RecordTokenizer> TOKENIZER = ThreadLocal.withInitial(RecordTokenizer::new);
 
     /**
      * Reads property data from the given file and adds Strings (for each line) to an ArrayList<String> and returns it.
@@ -18,27 +24,148 @@ public class PropertyReader
      * @param file the File object representing the file to read
      * @return an ArrayList of property strings read from the file
      * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be read
      */
-    public static ArrayList<String> readPropertyData(File file) throws FileNotFoundException
+    public static ArrayList<String> readPropertyData(final File file) throws IOException
     {
         final ArrayList<String> properties;
-        final Scanner scanner;
-        String propertyString;
 
-        if(!file.isFile())
+        properties = new ArrayList<>();
+        readPropertyData(file, properties::add);
+
+        return properties;
+    }
+
+
+    /**
+     * Reads property data from the given file and passes each line to the consumer as soon as it is read,
+     * so the lines never have to be held in memory all at once.
+     *
+     * @param file     the File object representing the file to read
+     * @param consumer receives each property string in file order
+     * @throws FileNotFoundException if the specified file is not found
+     * @throws IOException           if the file cannot be read
+     */
+    public static void readPropertyData(final File file,
+                                        final Consumer<String> consumer) throws IOException
+    {
+        LineReader.forEachLine(file, consumer);
+    }
+
+
+    /**
+     * Parses a string representing a property and creates a Property object from it in a single pass.
+     * The second field decides the subtype: "retail" and "commercial" records carry their type there,
+     * while residence records carry the number of bedrooms and their type in the fourth field.
+     * <ul>
+     *     <li>residence: "priceUsd|numberOfBedrooms|swimmingPool|type|propertyId|strata"</li>
+     *     <li>retail: "priceUsd|type|propertyId|squareFootage|customerParking"</li>
+     *     <li>commercial: "priceUsd|type|propertyId|loadingDock|highwayAccess"</li>
+     * </ul>
+     *
+     * @param propertyString the string representing the property
+     * @param address        the address associated with the property
+     * @return a Property object parsed from the input string, or null if the record is not of a known type
+     */
+    public static Property getPropertyFromString(final String propertyString,
+                                                 final Address address)
+    {
+        return getPropertyFromFields(TOKENIZER.get().reset(propertyString), address);
+    }
+
+
+    /**
+     * Parses a property from the next fields of a record, in the same layout getPropertyFromString accepts.
+     * This lets records that carry other fields before the property, such as joined listings, be parsed in one pass.
+     *
+     * @param tokenizer the tokenizer positioned just before the price field
+     * @param address   the address associated with the property
+     * @return a Property object parsed from the fields, or null if the record is not of a known type
+     */
+    public static Property getPropertyFromFields(final RecordTokenizer tokenizer,
+                                                 final Address address)
+    {
+        final double priceUsd;
+
+        priceUsd = tokenizer.nextDouble();
+        tokenizer.requireNextField();
+
+        if(tokenizer.fieldEqualsIgnoreCase(RETAIL_TYPE))
         {
-            throw new FileNotFoundException("File Not Found");
+            return new Retail(priceUsd, address, tokenizer.fieldAsString(RETAIL_TYPE), tokenizer.nextString(),
+                              tokenizer.nextInt(), tokenizer.nextBoolean());
         }
 
-        scanner = new Scanner(file);
-        properties = new ArrayList<>();
+        if(tokenizer.fieldEqualsIgnoreCase(COMMERCIAL_TYPE))
+        {
+            return new Commercial(priceUsd, address, tokenizer.fieldAsString(COMMERCIAL_TYPE), tokenizer.nextString(),
+                                  tokenizer.nextBoolean(), tokenizer.nextBoolean());
+        }
+
+        return getResidenceFromFields(tokenizer, priceUsd, address);
+    }
+
+
+    /**
+     * Reads only the propertyId field of a string representing a property, without creating the property.
+     * The propertyId is the third field of retail and commercial records and the fifth field of residence records.
+     *
+     * @param propertyString the string representing the property
+     * @return the propertyId of the property
+     * @throws IllegalArgumentException if the record does not have a propertyId field
+     */
+    public static String getPropertyIdFromString(final String propertyString)
+    {
+        final RecordTokenizer tokenizer;
 
-        while(scanner.hasNext())
+        tokenizer = TOKENIZER.get().reset(propertyString);
+        tokenizer.requireNextField();
+        tokenizer.requireNextField();
+
+        if(!tokenizer.fieldEqualsIgnoreCase(RETAIL_TYPE) && !tokenizer.fieldEqualsIgnoreCase(COMMERCIAL_TYPE))
         {
-            propertyString = scanner.nextLine();
-            properties.add(propertyString);
+            tokenizer.requireNextField();
+            tokenizer.requireNextField();
         }
 
-        return properties;
+        return tokenizer.nextString();
+    }
+
+
+    /**
+     * Parses the remaining fields of a residence record, starting at the number of bedrooms.
+     *
+     * @param tokenizer the tokenizer positioned on the number of bedrooms field
+     * @param priceUsd  the price already parsed from the first field
+     * @param address   the address associated with the property
+     * @return a Residence parsed from the record, or null if the type field is not "residence"
+     */
+    private static Residence getResidenceFromFields(final RecordTokenizer tokenizer,
+                                                    final double priceUsd,
+                                                    final Address address)
+    {
+        final int numberOfBedrooms;
+        final boolean swimmingPool;
+        final String type;
+        final String propertyId;
+        final boolean strata;
+
+        tokenizer.mark();
+
+        if(!tokenizer.nextField() || !tokenizer.nextField() || !tokenizer.fieldEqualsIgnoreCase(RESIDENCE_TYPE))
+        {
+            return null;
+        }
+
+        type = tokenizer.fieldAsString(RESIDENCE_TYPE);
+        tokenizer.returnToMark();
+
+        numberOfBedrooms = tokenizer.fieldAsInt();
+        swimmingPool = tokenizer.nextBoolean();
+        tokenizer.requireNextField();
+        propertyId = tokenizer.nextString();
+        strata = tokenizer.nextBoolean();
+
+        return new Residence(priceUsd, address, numberOfBedrooms, swimmingPool, type, propertyId, strata);
     }
 }
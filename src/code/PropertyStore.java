@@ -0,0 +1,196 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * PropertyStore of BCIT
+ * <p>
+ * The storage and query operations of a collection of properties. Agency keeps its properties as objects on
+ * the heap with an index per query; ColumnarPropertyStore keeps them in primitive columns and OffHeapPropertyStore
+ * in records outside the heap, and both answer each query with a sequential scan. All of them return the same
+ * results for the operations below, except where a result is not ordered, in which case the order may differ.
+ * Agency also has operations outside this interface that depend on its indexes or its object identity, such as
+ * the forEach queries, getLargestRetails, lazy loading and snapshots.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public interface PropertyStore
+{
+    /**
+     * Adds a property, replacing a property with the same property ID.
+     *
+     * @param property The property to be added; null is ignored.
+     */
+    void addProperty(Property property);
+
+
+    /**
+     * Removes a property based on its property ID.
+     *
+     * @param propertyId The property ID of the property to be removed.
+     */
+    void removeProperty(String propertyId);
+
+
+    /**
+     * @param propertyId The property ID of the desired property.
+     * @return The property with the specified property ID, or null if not found.
+     */
+    Property getProperty(String propertyId);
+
+
+    /**
+     * @return The total value of all properties in USD.
+     */
+    double getTotalPropertyValues();
+
+
+    /**
+     * @return The count, total, mean, min and max price of all properties, or null if there are none.
+     */
+    PriceStatistics getPriceStatistics();
+
+
+    /**
+     * @param propertyType The type of property, matched ignoring case.
+     * @return The price statistics of the properties of the specified type, or null if none found.
+     */
+    PriceStatistics getPriceStatistics(String propertyType);
+
+
+    /**
+     * @return A list of residences with swimming pools, or null if none found.
+     */
+    ArrayList<Residence> getPropertiesWithPools();
+
+
+    /**
+     * @param minUsd The minimum price in USD.
+     * @param maxUsd The maximum price in USD.
+     * @return An array of properties within the specified price range (inclusive), or null if none found.
+     */
+    Property[] getPropertiesBetween(double minUsd, double maxUsd);
+
+
+    /**
+     * @param streetName The name of the street, matched ignoring case.
+     * @return A list of addresses for properties on the specified street, or null if none found.
+     */
+    ArrayList<Address> getPropertiesOn(String streetName);
+
+
+    /**
+     * @param postalCodePrefix The beginning of the postal code, such as "V7N"; whitespace and case are ignored.
+     * @return A list of the properties in the postal area, or null if none found.
+     */
+    ArrayList<Property> getPropertiesInPostalArea(String postalCodePrefix);
+
+
+    /**
+     * @param city The name of the city, matched ignoring case.
+     * @return A list of the properties in the city, or null if none found.
+     */
+    ArrayList<Property> getPropertiesInCity(String city);
+
+
+    /**
+     * @param minBedrooms The minimum number of bedrooms.
+     * @param maxBedrooms The maximum number of bedrooms.
+     * @return A map from propertyId to the residences with the specified number of bedrooms, or null if none found.
+     */
+    HashMap<String, Residence> getPropertiesWithBedrooms(int minBedrooms, int maxBedrooms);
+
+
+    /**
+     * @param propertyType The type of property, matched ignoring case.
+     * @return A list of properties of the specified type, which is empty if none found.
+     */
+    ArrayList<Property> getPropertiesOfType(String propertyType);
+
+
+    /**
+     * @return A list of Commercial properties with loading docks, or null if none found.
+     */
+    ArrayList<Commercial> getPropertiesWithLoadingDocks();
+
+
+    /**
+     * @return A list of Commercial properties with highway access, or null if none found.
+     */
+    ArrayList<Commercial> getPropertiesWithHighwayAccess();
+
+
+    /**
+     * @param squareFootage The minimum square footage required.
+     * @return A list of Retail properties with at least that square footage, or null if none found.
+     */
+    ArrayList<Retail> getPropertiesSquareFootage(int squareFootage);
+
+
+    /**
+     * @param minSquareFootage The minimum square footage required.
+     * @param maxSquareFootage The maximum square footage allowed.
+     * @return A list of Retail properties within the square footage range (inclusive), or null if none found.
+     */
+    ArrayList<Retail> getPropertiesSquareFootage(int minSquareFootage, int maxSquareFootage);
+
+
+    /**
+     * @return A list of Retail properties with customer parking, or null if none found.
+     */
+    ArrayList<Retail> getPropertiesWithCustomerParking();
+
+
+    /**
+     * @return A list of residences in a strata, or null if none found.
+     */
+    ArrayList<Residence> getPropertiesWithStrata();
+
+
+    /**
+     * @param filter The combination of features to match.
+     * @return The number of matching properties.
+     */
+    int countProperties(FeatureFilter filter);
+
+
+    /**
+     * @param filter The combination of features to match.
+     * @return A list of the matching properties, or null if none found.
+     */
+    ArrayList<Property> getPropertiesMatching(FeatureFilter filter);
+
+
+    /**
+     * @param filter The combination of features to match.
+     * @return A list of the matching property IDs, or null if none found.
+     */
+    ArrayList<String> getPropertyIdsMatching(FeatureFilter filter);
+
+
+    /**
+     * @param query The criteria the properties must meet.
+     * @return A list of the properties meeting every criterion, or null if none found.
+     */
+    ArrayList<Property> findProperties(PropertyQuery query);
+
+
+    /**
+     * @param query    The criteria the properties must meet.
+     * @param after    The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The maximum number of properties on the page.
+     * @return One page of the properties meeting every criterion, ordered by price and then by property ID;
+     *         empty if no properties are left.
+     * @throws IllegalArgumentException if the page size is less than 1.
+     */
+    PropertyPage findProperties(PropertyQuery query, PageCursor after, int pageSize);
+
+
+    /**
+     * @param query The criteria the properties must meet.
+     * @param count The maximum number of properties to return.
+     * @return A list of at most count properties meeting every criterion, most expensive first, or null if none found.
+     * @throws IllegalArgumentException if count is less than 1.
+     */
+    ArrayList<Property> findMostExpensive(PropertyQuery query, int count);
+}
@@ -0,0 +1,104 @@
+import java.util.Objects;
+
+/**
+ * RangeKey of BCIT
+ * <p>
+ * Orders the entries of a range index by a numeric value, and by property ID between equal values,
+ * so that several properties can share a value. A null property ID sorts after every property ID,
+ * which lets lowest() and highest() bound a range of values inclusively.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+final class RangeKey implements Comparable<RangeKey>
+{
+    private static final String LOWEST_PROPERTY_ID = "";
+
+    private final double value;
+    private final String propertyId;
+
+    /**
+     * Creates the key of an index entry.
+     *
+     * @param value      The indexed value; -0.0 is stored as 0.0 so that both compare equal, as they do with ==.
+     * @param propertyId The property ID of the indexed property, or null for the upper bound of a range.
+     */
+    RangeKey(final double value,
+             final String propertyId)
+    {
+        this.value = value + 0.0;
+        this.propertyId = propertyId;
+    }
+
+
+    /**
+     * @param value The lowest value of a range.
+     * @return A key that sorts before every entry with that value.
+     */
+    static RangeKey lowest(final double value)
+    {
+        return new RangeKey(value, LOWEST_PROPERTY_ID);
+    }
+
+
+    /**
+     * @param value The highest value of a range.
+     * @return A key that sorts after every entry with that value.
+     */
+    static RangeKey highest(final double value)
+    {
+        return new RangeKey(value, null);
+    }
+
+
+    /**
+     * @return The indexed value.
+     */
+    double getValue()
+    {
+        return value;
+    }
+
+
+    /**
+     * @return The property ID of the indexed property, or null for the upper bound of a range.
+     */
+    String getPropertyId()
+    {
+        return propertyId;
+    }
+
+
+    @Override
+    public int compareTo(final RangeKey other)
+    {
+        final int valueComparison;
+
+        valueComparison = Double.compare(value, other.value);
+
+        if(valueComparison != 0)
+        {
+            return valueComparison;
+        }
+        if(propertyId == null || other.propertyId == null)
+        {
+            return Boolean.compare(propertyId == null, other.propertyId == null);
+        }
+
+        return propertyId.compareTo(other.propertyId);
+    }
+
+
+    @Override
+    public boolean equals(final Object other)
+    {
+        return other instanceof RangeKey && compareTo((RangeKey) other) == 0;
+    }
+
+
+    @Override
+    public int hashCode()
+    {
+        return 31 * Double.hashCode(value) + Objects.hashCode(propertyId);
+    }
+}
@@ -0,0 +1,375 @@
+/**
+ * RecordTokenizer of BCIT
+ * <p>
+ * Walks the fields of a pipe-delimited record in a single pass without regular expressions.
+ * Numbers and booleans are parsed straight from the characters of the record, so only the
+ * fields that are kept as strings allocate. A tokenizer is meant to be reset and reused for
+ * every record read by the same thread.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class RecordTokenizer
+{
+    private static final char DELIMITER = '|';
+    private static final int MAX_FAST_INT_DIGITS = 9;
+    private static final int MAX_FAST_DOUBLE_DIGITS = 15;
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+    private static final String TRUE = "true";
+
+    private String record;
+    private int nextFieldStart;
+    private int fieldStart;
+    private int fieldEnd;
+    private int markedFieldStart;
+    private int markedFieldEnd;
+
+    /**
+     * Starts tokenizing a new record. The first call to nextField() moves to its first field.
+     *
+     * @param record the pipe-delimited record to tokenize
+     * @return this tokenizer
+     */
+    public RecordTokenizer reset(final String record)
+    {
+        if(record == null)
+        {
+            throw new NullPointerException("Invalid record: " + record);
+        }
+
+        this.record = record;
+        this.nextFieldStart = 0;
+        this.fieldStart = 0;
+        this.fieldEnd = -1;
+
+        return this;
+    }
+
+
+    /**
+     * Moves to the next field of the record.
+     *
+     * @return true if there was a next field, false if the record has no more fields
+     */
+    public boolean nextField()
+    {
+        final int delimiterIndex;
+
+        if(nextFieldStart > record.length())
+        {
+            return false;
+        }
+
+        delimiterIndex = record.indexOf(DELIMITER, nextFieldStart);
+
+        fieldStart = nextFieldStart;
+        fieldEnd = delimiterIndex < 0 ? record.length() : delimiterIndex;
+        nextFieldStart = fieldEnd + 1;
+
+        return true;
+    }
+
+
+    /**
+     * Moves to the next field of the record, failing if there is none.
+     *
+     * @return this tokenizer
+     * @throws IllegalArgumentException if the record has no more fields
+     */
+    public RecordTokenizer requireNextField()
+    {
+        if(!nextField())
+        {
+            throw new IllegalArgumentException("Missing field in record: " + record);
+        }
+
+        return this;
+    }
+
+
+    /**
+     * Remembers the current field so that the tokenizer can come back to it with returnToMark().
+     */
+    public void mark()
+    {
+        markedFieldStart = fieldStart;
+        markedFieldEnd = fieldEnd;
+    }
+
+
+    /**
+     * Moves back to the field remembered by the last call to mark().
+     */
+    public void returnToMark()
+    {
+        fieldStart = markedFieldStart;
+        fieldEnd = markedFieldEnd;
+        nextFieldStart = fieldEnd + 1;
+    }
+
+
+    /**
+     * @return the current field as a new string
+     */
+    public String fieldAsString()
+    {
+        return record.substring(fieldStart, fieldEnd);
+    }
+
+
+    /**
+     * Returns the current field as a string, reusing the given constant when the field matches it exactly.
+     *
+     * @param constant the value the field is expected to hold most of the time
+     * @return the constant if the field equals it, otherwise a new string with the field
+     */
+    public String fieldAsString(final String constant)
+    {
+        if(fieldLength() == constant.length() && record.startsWith(constant, fieldStart))
+        {
+            return constant;
+        }
+
+        return fieldAsString();
+    }
+
+
+    /**
+     * Returns the current field as the pooled instance of its value. The field is only copied into a new string
+     * the first time the pool sees its value.
+     *
+     * @param pool the pool the field is canonicalized through (nullable, in which case a new string is returned)
+     * @return the pooled string equal to the field
+     */
+    public String fieldAsPooledString(final StringPool pool)
+    {
+        if(pool == null)
+        {
+            return fieldAsString();
+        }
+
+        return pool.canonicalize(record, fieldStart, fieldEnd);
+    }
+
+
+    /**
+     * Compares the current field to a value, ignoring case, without allocating.
+     *
+     * @param value the value to compare the field against
+     * @return true if the field equals the value ignoring case, false otherwise
+     */
+    public boolean fieldEqualsIgnoreCase(final String value)
+    {
+        return fieldLength() == value.length() && record.regionMatches(true, fieldStart, value, 0, value.length());
+    }
+
+
+    /**
+     * Parses the current field as a boolean with the same rules as Boolean.parseBoolean.
+     *
+     * @return true if the field is "true" ignoring case, false otherwise
+     */
+    public boolean fieldAsBoolean()
+    {
+        return fieldEqualsIgnoreCase(TRUE);
+    }
+
+
+    /**
+     * Parses the current field as a decimal int with the same rules as Integer.parseInt.
+     *
+     * @return the int value of the field
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int fieldAsInt()
+    {
+        final boolean negative;
+        int index;
+        int value;
+
+        index = fieldStart;
+        negative = index < fieldEnd && record.charAt(index) == '-';
+
+        if(negative || index < fieldEnd && record.charAt(index) == '+')
+        {
+            index++;
+        }
+
+        if(index == fieldEnd || fieldEnd - index > MAX_FAST_INT_DIGITS)
+        {
+            return Integer.parseInt(fieldAsString());
+        }
+
+        value = 0;
+
+        for(; index < fieldEnd; index++)
+        {
+            final char c;
+
+            c = record.charAt(index);
+
+            if(c < '0' || c > '9')
+            {
+                return Integer.parseInt(fieldAsString());
+            }
+
+            value = value * 10 + (c - '0');
+        }
+
+        return negative ? -value : value;
+    }
+
+
+    /**
+     * Parses the current field as a double with the same result as Double.parseDouble.
+     * Plain decimals of up to 15 significant digits are converted exactly from the characters;
+     * anything else (exponents, very long mantissas, special values) is handed to Double.parseDouble.
+     *
+     * @return the double value of the field
+     * @throws NumberFormatException if the field is not a valid double
+     */
+    public double fieldAsDouble()
+    {
+        final boolean negative;
+        int index;
+        int digits;
+        int fractionDigits;
+        boolean seenDigit;
+        boolean seenPoint;
+        long mantissa;
+        double value;
+
+        index = fieldStart;
+        negative = index < fieldEnd && record.charAt(index) == '-';
+
+        if(negative || index < fieldEnd && record.charAt(index) == '+')
+        {
+            index++;
+        }
+
+        digits = 0;
+        fractionDigits = 0;
+        seenDigit = false;
+        seenPoint = false;
+        mantissa = 0;
+
+        for(; index < fieldEnd; index++)
+        {
+            final char c;
+
+            c = record.charAt(index);
+
+            if(c >= '0' && c <= '9')
+            {
+                seenDigit = true;
+
+                if(mantissa != 0 || c != '0')
+                {
+                    digits++;
+                }
+
+                if(digits > MAX_FAST_DOUBLE_DIGITS)
+                {
+                    return Double.parseDouble(fieldAsString());
+                }
+
+                mantissa = mantissa * 10 + (c - '0');
+
+                if(seenPoint)
+                {
+                    fractionDigits++;
+                }
+            }
+            else if(c == '.' && !seenPoint)
+            {
+                seenPoint = true;
+            }
+            else
+            {
+                return Double.parseDouble(fieldAsString());
+            }
+        }
+
+        if(!seenDigit || fractionDigits >= POWERS_OF_TEN.length)
+        {
+            return Double.parseDouble(fieldAsString());
+        }
+
+        value = mantissa / POWERS_OF_TEN[fractionDigits];
+
+        return negative ? -value : value;
+    }
+
+
+    /**
+     * @return the number of characters in the current field
+     */
+    private int fieldLength()
+    {
+        return fieldEnd - fieldStart;
+    }
+
+
+    /**
+     * Moves to the next field and returns it as a new string.
+     *
+     * @return the next field
+     * @throws IllegalArgumentException if the record has no more fields
+     */
+    public String nextString()
+    {
+        return requireNextField().fieldAsString();
+    }
+
+
+    /**
+     * Moves to the next field and returns it as the pooled instance of its value.
+     *
+     * @param pool the pool the field is canonicalized through (nullable, in which case a new string is returned)
+     * @return the next field
+     * @throws IllegalArgumentException if the record has no more fields
+     */
+    public String nextPooledString(final StringPool pool)
+    {
+        return requireNextField().fieldAsPooledString(pool);
+    }
+
+
+    /**
+     * Moves to the next field and parses it as an int.
+     *
+     * @return the int value of the next field
+     * @throws IllegalArgumentException if the record has no more fields or the field is not a valid int
+     */
+    public int nextInt()
+    {
+        return requireNextField().fieldAsInt();
+    }
+
+
+    /**
+     * Moves to the next field and parses it as a double.
+     *
+     * @return the double value of the next field
+     * @throws IllegalArgumentException if the record has no more fields or the field is not a valid double
+     */
+    public double nextDouble()
+    {
+        return requireNextField().fieldAsDouble();
+    }
+
+
+    /**
+     * Moves to the next field and parses it as a boolean.
+     *
+     * @return the boolean value of the next field
+     * @throws IllegalArgumentException if the record has no more fields
+     */
+    public boolean nextBoolean()
+    {
+        return requireNextField().fieldAsBoolean();
+    }
+}
@@ -10,7 +10,7 @@ public class Residence extends Property
     private final boolean swimmingPool;
     private final boolean strata;
 
-    private static final int MAX_NUMBER_OF_BEDROOMS = 20;
+    public static final int MAX_NUMBER_OF_BEDROOMS = 20;
 
     /**
      * Constructs a new Residence with the specified details.
@@ -31,13 +31,40 @@ public class Residence extends Property
                      final String type,
                      final String propertyId,
                      final boolean strata)
+    {
+        this(priceUsd, address, numberOfBedrooms, swimmingPool, type, propertyId, strata, true);
+    }
+
+
+    /**
+     * Constructs a new Residence, optionally skipping validation.
+     * Only data that was validated before, such as an Agency snapshot, may be restored without validation.
+     *
+     * @param priceUsd         The price of the residence in USD.
+     * @param address          The address of the residence.
+     * @param numberOfBedrooms The number of bedrooms in the residence.
+     * @param swimmingPool     Indicates whether the residence has a swimming pool.
+     * @param type             The type of the residence.
+     * @param propertyId       The unique identifier of the residence.
+     * @param strata           Indicates whether the residence is part of a strata.
+     * @param validate         true to validate the details as the public constructor does, false to trust them.
+     */
+    Residence(final double priceUsd,
+              final Address address,
+              final int numberOfBedrooms,
+              final boolean swimmingPool,
+              final String type,
+              final String propertyId,
+              final boolean strata,
+              final boolean validate)
     {
         super(priceUsd,
               address,
               type,
-              propertyId);
+              propertyId,
+              validate);
 
-        if(!isValidNumberBedrooms(numberOfBedrooms))
+        if(validate && !isValidNumberBedrooms(numberOfBedrooms))
         {
             throw new IllegalArgumentException("Invalid number of bedrooms: " + numberOfBedrooms);
         }
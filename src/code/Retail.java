@@ -26,11 +26,36 @@ public class Retail extends Property
                   final String propertyId,
                   final int squareFootage,
                   final boolean customerParking)
+    {
+        this(priceUsd, address, type, propertyId, squareFootage, customerParking, true);
+    }
+
+
+    /**
+     * Constructs a new Retail property, optionally skipping validation.
+     * Only data that was validated before, such as an Agency snapshot, may be restored without validation.
+     *
+     * @param priceUsd        The price of the retail property in USD.
+     * @param address         The address of the retail property.
+     * @param type            The type of the retail property.
+     * @param propertyId      The unique identifier of the retail property.
+     * @param squareFootage   The amount of floor space available in square footage.
+     * @param customerParking Indicates whether customer parking is available.
+     * @param validate        true to validate the details as the public constructor does, false to trust them.
+     */
+    Retail(final double priceUsd,
+           final Address address,
+           final String type,
+           final String propertyId,
+           final int squareFootage,
+           final boolean customerParking,
+           final boolean validate)
     {
         super(priceUsd,
               address,
               type,
-              propertyId);
+              propertyId,
+              validate);
 
         this.squareFootage = squareFootage;
         this.customerParking = customerParking;
@@ -0,0 +1,995 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+
+/**
+ * SlottedPropertyStore of BCIT
+ * <p>
+ * The queries shared by the stores that keep each property in a numbered slot rather than as an object,
+ * ColumnarPropertyStore and OffHeapPropertyStore. Every query here is a sequential scan over the slots that
+ * reads only the fields its criteria need, through the accessors each store implements over its own layout;
+ * Property objects are only built for the results. Street, city and type names are stored as codes into the
+ * dictionaries kept here, so a name criterion is looked up once and then compared as an int per slot.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+abstract class SlottedPropertyStore implements PropertyStore
+{
+    static final byte PROPERTY_KIND = 0;
+    static final byte RESIDENCE_KIND = 1;
+    static final byte COMMERCIAL_KIND = 2;
+    static final byte RETAIL_KIND = 3;
+
+    private static final int INITIAL_FREE_SLOTS = 16;
+    private static final int INITIAL_HEAP_CAPACITY = 16;
+    private static final int ASCENDING = 1;
+    private static final int DESCENDING = -1;
+
+    final StringDictionary streetNames;
+    final StringDictionary cities;
+    final StringDictionary types;
+
+    private final FeatureBitmaps featureBitmaps;
+    private int[] freeSlots;
+    private int freeSlotCount;
+
+    /**
+     * Creates the dictionaries and free-slot stack of an empty store.
+     */
+    SlottedPropertyStore()
+    {
+        this.streetNames = new StringDictionary();
+        this.cities = new StringDictionary();
+        this.types = new StringDictionary();
+        this.featureBitmaps = new SlotBitmaps();
+        this.freeSlots = new int[INITIAL_FREE_SLOTS];
+    }
+
+
+    /**
+     * Pushes a slot onto the stack of free slots, to be handed out again by takeFreeSlot.
+     *
+     * @param slot the slot of a removed property
+     */
+    final void freeSlot(final int slot)
+    {
+        if(freeSlotCount == freeSlots.length)
+        {
+            freeSlots = Arrays.copyOf(freeSlots, freeSlotCount * 2);
+        }
+
+        freeSlots[freeSlotCount++] = slot;
+    }
+
+
+    /**
+     * Pops the most recently freed slot.
+     *
+     * @return the slot, or PackedSlotMap.NO_SLOT if no slot is free
+     */
+    final int takeFreeSlot()
+    {
+        if(freeSlotCount == 0)
+        {
+            return PackedSlotMap.NO_SLOT;
+        }
+
+        return freeSlots[--freeSlotCount];
+    }
+
+
+    /**
+     * @return the number of slots ever handed out; every live slot is below it
+     */
+    abstract int slotLimit();
+
+
+    /**
+     * @param slot a slot below slotLimit()
+     * @return true if the slot holds a property, false if it is free
+     */
+    abstract boolean isLive(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the kind of the property, one of the *_KIND constants
+     */
+    abstract byte kindAt(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the price of the property in USD
+     */
+    abstract double priceAt(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the type code of the property in the types dictionary
+     */
+    abstract int typeCodeAt(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the street name code of the property in the street names dictionary
+     */
+    abstract int streetNameCodeAt(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the city code of the property in the cities dictionary
+     */
+    abstract int cityCodeAt(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the number of characters of the postal code of the property
+     */
+    abstract int postalCodeLength(int slot);
+
+
+    /**
+     * Reads one character of a postal code in place, so a scan can compare it without building a String.
+     *
+     * @param slot  a live slot
+     * @param index the index of the character, below postalCodeLength(slot)
+     * @return the character of the postal code at the index
+     */
+    abstract char postalCodeCharAt(int slot, int index);
+
+
+    /**
+     * @param slot a live slot
+     * @return the number of bedrooms if the property is a residence
+     */
+    abstract int bedroomsAt(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the square footage if the property is a retail property
+     */
+    abstract int squareFootageAt(int slot);
+
+
+    /**
+     * @param slot    a live slot
+     * @param feature the feature to check
+     * @return true if the property has the feature, false otherwise
+     */
+    abstract boolean hasFeatureAt(int slot, PropertyFeature feature);
+
+
+    /**
+     * @param slot a live slot
+     * @return the property ID of the property
+     */
+    abstract String propertyIdAt(int slot);
+
+
+    /**
+     * @param slot a live slot
+     * @return the number of characters of the property ID of the property
+     */
+    abstract int propertyIdLength(int slot);
+
+
+    /**
+     * Reads one character of a property ID in place, so a scan can order by it without building a String.
+     *
+     * @param slot  a live slot
+     * @param index the index of the character, below propertyIdLength(slot)
+     * @return the character of the property ID at the index
+     */
+    abstract char propertyIdCharAt(int slot, int index);
+
+
+    /**
+     * @param slot a live slot
+     * @return a new Property object of the stored kind
+     */
+    abstract Property propertyAt(int slot);
+
+
+    /**
+     * Sets the bits of the live slots whose property has a feature. Stores that keep a bitmap per feature
+     * return a copy of it instead of scanning.
+     *
+     * @param feature the feature to look up
+     * @return a new bitmap of the slots having the feature
+     */
+    BitSet slotsWith(final PropertyFeature feature)
+    {
+        final BitSet slotsWithFeature;
+
+        slotsWithFeature = new BitSet(slotLimit());
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(isLive(slot) && hasFeatureAt(slot, feature))
+            {
+                slotsWithFeature.set(slot);
+            }
+        }
+
+        return slotsWithFeature;
+    }
+
+
+    /**
+     * Sets the bits of the live slots. Stores that keep a bitmap of live slots return a copy of it instead.
+     *
+     * @return a new bitmap of the live slots
+     */
+    BitSet liveSlots()
+    {
+        final BitSet live;
+
+        live = new BitSet(slotLimit());
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(isLive(slot))
+            {
+                live.set(slot);
+            }
+        }
+
+        return live;
+    }
+
+
+    /**
+     * Scans the price column with compensated summation.
+     *
+     * @return The count, total, mean, min and max price of all properties, or null if there are none.
+     */
+    @Override
+    public PriceStatistics getPriceStatistics()
+    {
+        return priceStatistics(null);
+    }
+
+
+    /**
+     * Looks up the codes of the type in the dictionary, then scans the type code and price columns.
+     *
+     * @param propertyType The type of property, matched ignoring case.
+     * @return The price statistics of the properties of the specified type, or null if none found.
+     */
+    @Override
+    public PriceStatistics getPriceStatistics(final String propertyType)
+    {
+        if(propertyType == null)
+        {
+            return null;
+        }
+
+        return priceStatistics(types.codesEqualIgnoreCase(propertyType));
+    }
+
+
+    /**
+     * Computes the price statistics of the live slots, or of those with a matching type code.
+     *
+     * @param matchingTypeCodes the type codes to include, indexed by code (nullable, in which case all are included)
+     * @return the price statistics, or null if no slot was included
+     */
+    private PriceStatistics priceStatistics(final boolean[] matchingTypeCodes)
+    {
+        int count;
+        double priceUsd;
+        double sumUsd;
+        double compensationUsd;
+        double newSumUsd;
+        double minUsd;
+        double maxUsd;
+
+        count = 0;
+        sumUsd = 0;
+        compensationUsd = 0;
+        minUsd = Double.POSITIVE_INFINITY;
+        maxUsd = Double.NEGATIVE_INFINITY;
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(isLive(slot) && (matchingTypeCodes == null || matchingTypeCodes[typeCodeAt(slot)]))
+            {
+                priceUsd = priceAt(slot) + 0.0;
+                newSumUsd = sumUsd + priceUsd;
+
+                if(Math.abs(sumUsd) >= Math.abs(priceUsd))
+                {
+                    compensationUsd += (sumUsd - newSumUsd) + priceUsd;
+                }
+                else
+                {
+                    compensationUsd += (priceUsd - newSumUsd) + sumUsd;
+                }
+
+                sumUsd = newSumUsd;
+                minUsd = Math.min(minUsd, priceUsd);
+                maxUsd = Math.max(maxUsd, priceUsd);
+                count++;
+            }
+        }
+
+        if(count == 0)
+        {
+            return null;
+        }
+
+        return new PriceStatistics(count, sumUsd + compensationUsd, minUsd, maxUsd);
+    }
+
+
+    /**
+     * Scans the postal code column, comparing each postal code to the prefix without normalizing it first.
+     *
+     * @param postalCodePrefix The beginning of the postal code, such as "V7N"; whitespace and case are ignored.
+     * @return A list of the properties in the postal area, or null if none found.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesInPostalArea(final String postalCodePrefix)
+    {
+        final String normalizedPrefix;
+        final ArrayList<Property> propertiesInArea;
+
+        if(postalCodePrefix == null)
+        {
+            return null;
+        }
+
+        normalizedPrefix = Address.normalizePostalCode(postalCodePrefix);
+        propertiesInArea = new ArrayList<>();
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(isLive(slot) && isInPostalArea(slot, normalizedPrefix))
+            {
+                propertiesInArea.add(propertyAt(slot));
+            }
+        }
+
+        if(propertiesInArea.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesInArea;
+    }
+
+
+    /**
+     * Checks whether the postal code of a slot starts with a prefix, ignoring whitespace and case as
+     * Address.normalizePostalCode does. The postal code is read in place, one character at a time.
+     *
+     * @param slot             a live slot
+     * @param normalizedPrefix the prefix, already normalized
+     * @return true if the normalized postal code starts with the prefix, false otherwise
+     */
+    private boolean isInPostalArea(final int slot,
+                                   final String normalizedPrefix)
+    {
+        final int length;
+        int matched;
+        char c;
+
+        length = postalCodeLength(slot);
+        matched = 0;
+
+        for(int i = 0; i < length && matched < normalizedPrefix.length(); i++)
+        {
+            c = postalCodeCharAt(slot, i);
+
+            if(!Character.isWhitespace(c))
+            {
+                if(Character.toUpperCase(c) != normalizedPrefix.charAt(matched))
+                {
+                    return false;
+                }
+
+                matched++;
+            }
+        }
+
+        return matched == normalizedPrefix.length();
+    }
+
+
+    /**
+     * Looks up the codes of the city in the dictionary, then scans the city code column.
+     *
+     * @param city The name of the city, matched ignoring case.
+     * @return A list of the properties in the city, or null if none found.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesInCity(final String city)
+    {
+        final boolean[] matchingCodes;
+        final ArrayList<Property> propertiesInCity;
+
+        if(city == null)
+        {
+            return null;
+        }
+
+        matchingCodes = cities.codesEqualIgnoreCase(city);
+        propertiesInCity = new ArrayList<>();
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(isLive(slot) && matchingCodes[cityCodeAt(slot)])
+            {
+                propertiesInCity.add(propertyAt(slot));
+            }
+        }
+
+        if(propertiesInCity.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesInCity;
+    }
+
+
+    /**
+     * @param squareFootage The minimum square footage required.
+     * @return A list of Retail properties with at least that square footage, or null if none found.
+     */
+    @Override
+    public ArrayList<Retail> getPropertiesSquareFootage(final int squareFootage)
+    {
+        return getPropertiesSquareFootage(squareFootage, Integer.MAX_VALUE);
+    }
+
+
+    /**
+     * Scans the kind and square footage columns.
+     *
+     * @param minSquareFootage The minimum square footage required.
+     * @param maxSquareFootage The maximum square footage allowed.
+     * @return A list of Retail properties within the square footage range (inclusive), or null if none found.
+     */
+    @Override
+    public ArrayList<Retail> getPropertiesSquareFootage(final int minSquareFootage,
+                                                       final int maxSquareFootage)
+    {
+        final ArrayList<Retail> propertiesWithSquareFootage;
+        int squareFootage;
+
+        propertiesWithSquareFootage = new ArrayList<>();
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(isLive(slot) && kindAt(slot) == RETAIL_KIND)
+            {
+                squareFootage = squareFootageAt(slot);
+
+                if(squareFootage >= minSquareFootage && squareFootage <= maxSquareFootage)
+                {
+                    propertiesWithSquareFootage.add((Retail) propertyAt(slot));
+                }
+            }
+        }
+
+        if(propertiesWithSquareFootage.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesWithSquareFootage;
+    }
+
+
+    /**
+     * Evaluates the filter over the feature bitmaps of the slots without building any property.
+     *
+     * @param filter The combination of features to match.
+     * @return The number of matching properties.
+     */
+    @Override
+    public int countProperties(final FeatureFilter filter)
+    {
+        return filter.select(featureBitmaps).cardinality();
+    }
+
+
+    /**
+     * @param filter The combination of features to match.
+     * @return A list of the matching properties, in slot order, or null if none found.
+     */
+    @Override
+    public ArrayList<Property> getPropertiesMatching(final FeatureFilter filter)
+    {
+        final BitSet selected;
+        final ArrayList<Property> propertiesMatching;
+
+        selected = filter.select(featureBitmaps);
+        propertiesMatching = new ArrayList<>(selected.cardinality());
+
+        for(int slot = selected.nextSetBit(0); slot >= 0; slot = selected.nextSetBit(slot + 1))
+        {
+            propertiesMatching.add(propertyAt(slot));
+        }
+
+        if(propertiesMatching.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesMatching;
+    }
+
+
+    /**
+     * Reads only the property ID of each matching slot.
+     *
+     * @param filter The combination of features to match.
+     * @return A list of the matching property IDs, in slot order, or null if none found.
+     */
+    @Override
+    public ArrayList<String> getPropertyIdsMatching(final FeatureFilter filter)
+    {
+        final BitSet selected;
+        final ArrayList<String> propertyIdsMatching;
+
+        selected = filter.select(featureBitmaps);
+        propertyIdsMatching = new ArrayList<>(selected.cardinality());
+
+        for(int slot = selected.nextSetBit(0); slot >= 0; slot = selected.nextSetBit(slot + 1))
+        {
+            propertyIdsMatching.add(propertyIdAt(slot));
+        }
+
+        if(propertyIdsMatching.isEmpty())
+        {
+            return null;
+        }
+
+        return propertyIdsMatching;
+    }
+
+
+    /**
+     * Checks every live slot against the criteria of the query, column by column.
+     *
+     * @param query The criteria the properties must meet.
+     * @return A list of the properties meeting every criterion, in slot order, or null if none found.
+     */
+    @Override
+    public ArrayList<Property> findProperties(final PropertyQuery query)
+    {
+        final SlotFilter slotFilter;
+        final ArrayList<Property> propertiesFound;
+
+        slotFilter = new SlotFilter(query);
+        propertiesFound = new ArrayList<>();
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(slotFilter.matches(slot))
+            {
+                propertiesFound.add(propertyAt(slot));
+            }
+        }
+
+        if(propertiesFound.isEmpty())
+        {
+            return null;
+        }
+
+        return propertiesFound;
+    }
+
+
+    /**
+     * Passes the matching slots after the cursor through a heap bounded by the page size, so no more than one page
+     * of slots is held and only the properties on the page are built.
+     *
+     * @param query    The criteria the properties must meet.
+     * @param after    The cursor returned with the previous page, or null for the first page.
+     * @param pageSize The maximum number of properties on the page.
+     * @return One page of the properties meeting every criterion, ordered by price and then by property ID;
+     *         empty if no properties are left.
+     * @throws IllegalArgumentException if the page size is less than 1.
+     */
+    @Override
+    public PropertyPage findProperties(final PropertyQuery query,
+                                       final PageCursor after,
+                                       final int pageSize)
+    {
+        if(pageSize < 1)
+        {
+            throw new IllegalArgumentException("Invalid page size: " + pageSize);
+        }
+
+        return new PropertyPage(selectFirst(new SlotFilter(query), after, ASCENDING, pageSize + 1), pageSize);
+    }
+
+
+    /**
+     * Passes the matching slots through a heap bounded by count.
+     *
+     * @param query The criteria the properties must meet.
+     * @param count The maximum number of properties to return.
+     * @return A list of at most count properties meeting every criterion, most expensive first, or null if none found.
+     * @throws IllegalArgumentException if count is less than 1.
+     */
+    @Override
+    public ArrayList<Property> findMostExpensive(final PropertyQuery query,
+                                                 final int count)
+    {
+        final ArrayList<Property> mostExpensive;
+
+        if(count < 1)
+        {
+            throw new IllegalArgumentException("Invalid count: " + count);
+        }
+
+        mostExpensive = selectFirst(new SlotFilter(query), null, DESCENDING, count);
+
+        if(mostExpensive.isEmpty())
+        {
+            return null;
+        }
+
+        return mostExpensive;
+    }
+
+
+    /**
+     * Selects the first matching slots in price order. A binary heap of slots in an int[] holds the best count
+     * slots seen so far, with the worst of them on top, so each matching slot costs O(log count), comparisons
+     * neither box the slot nor build its property ID, and the memory used is bounded by count.
+     *
+     * @param slotFilter The criteria the properties must meet.
+     * @param after      Only slots after this cursor in price order are selected, unless it is null.
+     * @param direction  ASCENDING to select the cheapest slots, DESCENDING to select the most expensive.
+     * @param count      The maximum number of slots to select.
+     * @return A list of the properties of at most count slots, sorted in the given direction.
+     */
+    private ArrayList<Property> selectFirst(final SlotFilter slotFilter,
+                                            final PageCursor after,
+                                            final int direction,
+                                            final int count)
+    {
+        final ArrayList<Property> selected;
+        final int[] sortedSlots;
+        int[] heap;
+        int heapSize;
+
+        heap = new int[Math.min(count, INITIAL_HEAP_CAPACITY)];
+        heapSize = 0;
+
+        for(int slot = 0; slot < slotLimit(); slot++)
+        {
+            if(slotFilter.matches(slot) && (after == null || isAfter(slot, after)))
+            {
+                if(heapSize < count)
+                {
+                    if(heapSize == heap.length)
+                    {
+                        heap = Arrays.copyOf(heap, (int) Math.min((long) heapSize * 2, count));
+                    }
+
+                    heap[heapSize] = slot;
+                    siftUp(heap, heapSize, direction);
+                    heapSize++;
+                }
+                else if(direction * compareByPrice(slot, heap[0]) < 0)
+                {
+                    heap[0] = slot;
+                    siftDown(heap, heapSize, direction);
+                }
+            }
+        }
+
+        sortedSlots = new int[heapSize];
+
+        for(int i = heapSize - 1; i >= 0; i--)
+        {
+            sortedSlots[i] = heap[0];
+            heap[0] = heap[i];
+            siftDown(heap, i, direction);
+        }
+
+        selected = new ArrayList<>(heapSize);
+
+        for(final int slot : sortedSlots)
+        {
+            selected.add(propertyAt(slot));
+        }
+
+        return selected;
+    }
+
+
+    /**
+     * Moves the slot at an index of a heap up until its parent does not come after it.
+     *
+     * @param heap      the heap, with the worst slot in the direction at index 0
+     * @param index     the index of the slot to move
+     * @param direction ASCENDING or DESCENDING
+     */
+    private void siftUp(final int[] heap,
+                        final int index,
+                        final int direction)
+    {
+        final int slot;
+        int child;
+        int parent;
+
+        slot = heap[index];
+        child = index;
+
+        while(child > 0)
+        {
+            parent = (child - 1) >>> 1;
+
+            if(direction * compareByPrice(heap[parent], slot) >= 0)
+            {
+                break;
+            }
+
+            heap[child] = heap[parent];
+            child = parent;
+        }
+
+        heap[child] = slot;
+    }
+
+
+    /**
+     * Moves the slot at the top of a heap down until neither of its children comes after it.
+     *
+     * @param heap      the heap, with the worst slot in the direction at index 0
+     * @param heapSize  the number of slots in the heap
+     * @param direction ASCENDING or DESCENDING
+     */
+    private void siftDown(final int[] heap,
+                          final int heapSize,
+                          final int direction)
+    {
+        final int slot;
+        int parent;
+        int child;
+
+        slot = heap[0];
+        parent = 0;
+        child = 1;
+
+        while(child < heapSize)
+        {
+            if(child + 1 < heapSize && direction * compareByPrice(heap[child + 1], heap[child]) > 0)
+            {
+                child++;
+            }
+            if(direction * compareByPrice(heap[child], slot) <= 0)
+            {
+                break;
+            }
+
+            heap[parent] = heap[child];
+            parent = child;
+            child = 2 * parent + 1;
+        }
+
+        heap[parent] = slot;
+    }
+
+
+    /**
+     * Orders two slots by price and then by property ID, the order of Agency's price index, comparing the
+     * property IDs in place.
+     *
+     * @param slot      a live slot
+     * @param otherSlot another live slot
+     * @return a negative number, zero or a positive number as the first slot comes before, with or after the other
+     */
+    private int compareByPrice(final int slot,
+                               final int otherSlot)
+    {
+        final int priceComparison;
+        final int length;
+        final int otherLength;
+        int charComparison;
+
+        priceComparison = Double.compare(priceAt(slot) + 0.0, priceAt(otherSlot) + 0.0);
+
+        if(priceComparison != 0)
+        {
+            return priceComparison;
+        }
+
+        length = propertyIdLength(slot);
+        otherLength = propertyIdLength(otherSlot);
+
+        for(int i = 0; i < length && i < otherLength; i++)
+        {
+            charComparison = propertyIdCharAt(slot, i) - propertyIdCharAt(otherSlot, i);
+
+            if(charComparison != 0)
+            {
+                return charComparison;
+            }
+        }
+
+        return length - otherLength;
+    }
+
+
+    /**
+     * Checks whether a slot comes after a page cursor in price order, comparing the property ID in place.
+     *
+     * @param slot   a live slot
+     * @param cursor the cursor returned with the previous page
+     * @return true if the slot comes after the cursor, false otherwise
+     */
+    private boolean isAfter(final int slot,
+                            final PageCursor cursor)
+    {
+        final RangeKey lastKey;
+        final String lastPropertyId;
+        final int priceComparison;
+        final int length;
+        int charComparison;
+
+        lastKey = cursor.getLastKey();
+        priceComparison = Double.compare(priceAt(slot) + 0.0, lastKey.getValue());
+
+        if(priceComparison != 0)
+        {
+            return priceComparison > 0;
+        }
+
+        lastPropertyId = lastKey.getPropertyId();
+        length = propertyIdLength(slot);
+
+        for(int i = 0; i < length && i < lastPropertyId.length(); i++)
+        {
+            charComparison = propertyIdCharAt(slot, i) - lastPropertyId.charAt(i);
+
+            if(charComparison != 0)
+            {
+                return charComparison > 0;
+            }
+        }
+
+        return length > lastPropertyId.length();
+    }
+
+
+    /**
+     * The criteria of a query translated to the columns of this store: name criteria become sets of dictionary
+     * codes and feature criteria a bitmap of slots, so checking a slot compares ints and bits only.
+     */
+    private final class SlotFilter
+    {
+        private final PropertyQuery query;
+        private final boolean[] streetNameCodes;
+        private final boolean[] cityCodes;
+        private final boolean[] typeCodes;
+        private final BitSet featureSlots;
+
+        /**
+         * @param query the criteria the properties must meet
+         */
+        private SlotFilter(final PropertyQuery query)
+        {
+            final FeatureFilter featureFilter;
+
+            featureFilter = query.getFeatureFilter();
+
+            this.query = query;
+            this.streetNameCodes = query.getStreetName() == null ? null :
+                    streetNames.codesEqualIgnoreCase(query.getStreetName());
+            this.cityCodes = query.getCity() == null ? null : cities.codesEqualIgnoreCase(query.getCity());
+            this.typeCodes = query.getType() == null ? null : types.codesEqualIgnoreCase(query.getType());
+            this.featureSlots = featureFilter == null ? null : featureFilter.select(featureBitmaps);
+        }
+
+
+        /**
+         * @param slot a slot below slotLimit()
+         * @return true if the slot is live and its property meets every criterion, false otherwise
+         */
+        private boolean matches(final int slot)
+        {
+            final double priceUsd;
+            final int bedrooms;
+            final int squareFootage;
+
+            if(!isLive(slot))
+            {
+                return false;
+            }
+            if(featureSlots != null && !featureSlots.get(slot))
+            {
+                return false;
+            }
+            if(query.hasPriceRange())
+            {
+                priceUsd = priceAt(slot);
+
+                if(!(priceUsd >= query.getMinPriceUsd() && priceUsd <= query.getMaxPriceUsd()))
+                {
+                    return false;
+                }
+            }
+            if(streetNameCodes != null && !streetNameCodes[streetNameCodeAt(slot)])
+            {
+                return false;
+            }
+            if(cityCodes != null && !cityCodes[cityCodeAt(slot)])
+            {
+                return false;
+            }
+            if(typeCodes != null && !typeCodes[typeCodeAt(slot)])
+            {
+                return false;
+            }
+            if(query.hasBedroomRange())
+            {
+                if(kindAt(slot) != RESIDENCE_KIND)
+                {
+                    return false;
+                }
+
+                bedrooms = bedroomsAt(slot);
+
+                if(bedrooms < query.getMinBedrooms() || bedrooms > query.getMaxBedrooms())
+                {
+                    return false;
+                }
+            }
+            if(query.hasSquareFootageRange())
+            {
+                if(kindAt(slot) != RETAIL_KIND)
+                {
+                    return false;
+                }
+
+                squareFootage = squareFootageAt(slot);
+
+                if(squareFootage < query.getMinSquareFootage() || squareFootage > query.getMaxSquareFootage())
+                {
+                    return false;
+                }
+            }
+            if(query.getPostalCodePrefix() != null && !isInPostalArea(slot, query.getPostalCodePrefix()))
+            {
+                return false;
+            }
+
+            return true;
+        }
+    }
+
+
+    /**
+     * The feature bitmaps of the store, with one bit per slot.
+     */
+    private final class SlotBitmaps implements FeatureBitmaps
+    {
+        @Override
+        public BitSet copyOf(final PropertyFeature feature)
+        {
+            return slotsWith(feature);
+        }
+
+
+        @Override
+        public BitSet copyOfAll()
+        {
+            return liveSlots();
+        }
+    }
+}
@@ -0,0 +1,92 @@
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * StringDictionary of BCIT
+ * <p>
+ * Encodes strings that repeat across many rows, such as street and city names, as small int codes.
+ * A column then stores one int per row instead of one reference, and a lookup compares ints instead
+ * of strings. Codes are never reused, so a code stays valid for as long as the dictionary lives.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class StringDictionary
+{
+    private final Map<String, Integer> codes;
+    private final List<String> values;
+
+    /**
+     * Creates an empty dictionary.
+     */
+    public StringDictionary()
+    {
+        this.codes = new HashMap<>();
+        this.values = new ArrayList<>();
+    }
+
+
+    /**
+     * Returns the code of a string, giving it the next code if it has none yet.
+     *
+     * @param value the string to encode
+     * @return the code of the string
+     */
+    public int encode(final String value)
+    {
+        Integer code;
+
+        code = codes.get(value);
+
+        if(code == null)
+        {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+
+        return code;
+    }
+
+
+    /**
+     * @param code a code returned by encode
+     * @return the string with that code
+     */
+    public String decode(final int code)
+    {
+        return values.get(code);
+    }
+
+
+    /**
+     * Marks the codes of every string in the dictionary that is equal to a value, ignoring case.
+     *
+     * @param value the value to compare with
+     * @return an array indexed by code, true for the codes of matching strings
+     */
+    public boolean[] codesEqualIgnoreCase(final String value)
+    {
+        final boolean[] matching;
+
+        matching = new boolean[values.size()];
+
+        for(int code = 0; code < values.size(); code++)
+        {
+            matching[code] = values.get(code).equalsIgnoreCase(value);
+        }
+
+        return matching;
+    }
+
+
+    /**
+     * @return the number of distinct strings in the dictionary
+     */
+    public int size()
+    {
+        return values.size();
+    }
+}
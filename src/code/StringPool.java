@@ -0,0 +1,175 @@
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+
+/**
+ * StringPool of BCIT
+ * <p>
+ * Keeps one canonical instance of each distinct string it is given, so that values repeated across
+ * many records, such as city and street names, share a single String instead of one copy per record.
+ * Unlike String.intern(), the pool lives on the regular heap and is dropped with its owner, which is
+ * normally a single load. A region of a record can be looked up without cutting it out first, so a
+ * string that is already pooled is never allocated again. It is safe to use from several threads at once.
+ *
+ * @author Andres Arevalo
+ * @version 1.0
+ */
+public class StringPool
+{
+    private final ConcurrentMap<Region, String> strings;
+
+    /**
+     * Creates an empty pool.
+     */
+    public StringPool()
+    {
+        this.strings = new ConcurrentHashMap<>();
+    }
+
+
+    /**
+     * Returns the canonical instance of a string, adding the string to the pool if it is new.
+     *
+     * @param string the string to canonicalize (nullable)
+     * @return the pooled string equal to the given one, or null if the given string is null
+     */
+    public String canonicalize(final String string)
+    {
+        final String pooled;
+
+        if(string == null)
+        {
+            return null;
+        }
+
+        pooled = strings.putIfAbsent(new Region(string), string);
+
+        if(pooled == null)
+        {
+            return string;
+        }
+
+        return pooled;
+    }
+
+
+    /**
+     * Returns the canonical instance of the characters between start and end of a string. The region is only
+     * copied into a new string the first time the pool sees it.
+     *
+     * @param source the string holding the region
+     * @param start  the index of the first character of the region
+     * @param end    the index just after the last character of the region
+     * @return the pooled string equal to the region
+     * @throws IndexOutOfBoundsException if the region is not within the source
+     */
+    public String canonicalize(final String source,
+                               final int start,
+                               final int end)
+    {
+        final String pooled;
+
+        if(start < 0 || end > source.length() || start > end)
+        {
+            throw new IndexOutOfBoundsException("Invalid region: " + start + ", " + end);
+        }
+
+        pooled = strings.get(new Region(source, start, end));
+
+        if(pooled == null)
+        {
+            return canonicalize(source.substring(start, end));
+        }
+
+        return pooled;
+    }
+
+
+    /**
+     * @return the number of distinct strings in the pool
+     */
+    public int size()
+    {
+        return strings.size();
+    }
+
+
+    /**
+     * Removes every string from the pool. Strings already handed out stay valid.
+     */
+    public void clear()
+    {
+        strings.clear();
+    }
+
+
+    /**
+     * A run of characters of a string, hashed and compared by its characters like a String is.
+     */
+    private static final class Region
+    {
+        private final String source;
+        private final int start;
+        private final int end;
+        private final int hash;
+
+        /**
+         * @param string the whole string
+         */
+        private Region(final String string)
+        {
+            this.source = string;
+            this.start = 0;
+            this.end = string.length();
+            this.hash = string.hashCode();
+        }
+
+
+        /**
+         * @param source the string holding the region
+         * @param start  the index of the first character of the region
+         * @param end    the index just after the last character of the region
+         */
+        private Region(final String source,
+                       final int start,
+                       final int end)
+        {
+            int regionHash;
+
+            regionHash = 0;
+
+            for(int i = start; i < end; i++)
+            {
+                regionHash = 31 * regionHash + source.charAt(i);
+            }
+
+            this.source = source;
+            this.start = start;
+            this.end = end;
+            this.hash = regionHash;
+        }
+
+
+        @Override
+        public boolean equals(final Object other)
+        {
+            final Region region;
+
+            if(!(other instanceof Region))
+            {
+                return false;
+            }
+
+            region = (Region) other;
+
+            return hash == region.hash && end - start == region.end - region.start &&
+                    source.regionMatches(start, region.source, region.start, end - start);
+        }
+
+
+        @Override
+        public int hashCode()
+        {
+            return hash;
+        }
+    }
+}
@@ -1,22 +1,38 @@
 import static org.junit.jupiter.api.Assertions.*;
 
 import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Set;
 import java.util.SortedSet;
 import java.util.TreeSet;
+import java.util.zip.GZIPOutputStream;
+
+import com.sun.management.UnixOperatingSystemMXBean;
 
 import org.junit.jupiter.api.AfterAll;
 import org.junit.jupiter.api.BeforeAll;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
 
 class AgencyTest {
 	
 	private static Agency agency;
+	
+	@TempDir
+	File tempDir;
 
 	@BeforeAll
 	static void setUpBeforeClass() throws Exception {
@@ -88,6 +104,15 @@ class AgencyTest {
 		assertEquals(null, addresses);
 	}
 	
+	@Test
+	void testGetPropertiesOnIgnoresCase() {
+		
+		ArrayList<Address> addresses = agency.getPropertiesOn("56TH Avenue");
+		assertEquals(1, addresses.size());
+		assertEquals("56th avenue", addresses.get(0).getStreetName());
+		assertNull(agency.getPropertiesOn(null));
+	}
+	
 	@Test
 	void testGetPropertiesOfType() {
 		ArrayList<Property> props = agency.getPropertiesOfType("residence");
@@ -156,5 +181,774 @@ class AgencyTest {
 		assertEquals(1, props.size());
 		assertEquals("876tru", props.get(0).getPropertyId());
 	}
+	
+	@Test
+	void testLazyProperties() throws Exception {
+		Agency lazyAgency = new Agency("Lazy Properties");
+		lazyAgency.addLazyProperties(LazyPropertyIndex.build(new File("address_data.txt"), new File("property_data.txt")));
+		
+		assertEquals("678T", lazyAgency.getProperty("678T").getPropertyId());
+		assertNull(lazyAgency.getProperty("333"));
+		lazyAgency.removeProperty("abc123");
+		assertNull(lazyAgency.getProperty("abc123"));
+		assertEquals(6, lazyAgency.getPropertiesOfType("residence").size());
+	}
+	
+	@Test
+	void testPriceChangeUpdatesPropertiesBetween() {
+		Agency priceAgency = new Agency("Price Changes");
+		Property prop = new Property(500000.0, agency.getProperty("abc123").getAddress(), "residence", "p1");
+		priceAgency.addProperty(prop);
+		
+		assertEquals(1, priceAgency.getPropertiesBetween(400000.0, 600000.0).length);
+		prop.setPriceUsd(900000.0);
+		assertNull(priceAgency.getPropertiesBetween(400000.0, 600000.0));
+		assertEquals(prop, priceAgency.getPropertiesBetween(800000.0, 1000000.0)[0]);
+		priceAgency.removeProperty("p1");
+		prop.setPriceUsd(500000.0);
+		assertNull(priceAgency.getPropertiesBetween(0.0, 1000000.0));
+		assertNull(agency.getPropertiesBetween(2000000.0, 1000000.0));
+	}
+	
+	@Test
+	void testFeatureFilters() {
+		FeatureFilter pool = FeatureFilter.has(PropertyFeature.SWIMMING_POOL);
+		FeatureFilter strata = FeatureFilter.has(PropertyFeature.STRATA);
+		FeatureFilter loadingDock = FeatureFilter.has(PropertyFeature.LOADING_DOCK);
+		FeatureFilter highwayAccess = FeatureFilter.has(PropertyFeature.HIGHWAY_ACCESS);
+		
+		assertEquals(0, agency.countProperties(pool.and(strata)));
+		assertNull(agency.getPropertiesMatching(pool.and(strata)));
+		assertEquals(4, agency.countProperties(pool.or(strata)));
+		assertEquals(9, agency.countProperties(pool.not()));
+		assertEquals(2, agency.countProperties(loadingDock.or(highwayAccess)));
+		
+		ArrayList<String> ids = agency.getPropertyIdsMatching(loadingDock.not().and(highwayAccess));
+		assertEquals(1, ids.size());
+		assertEquals("A1212", ids.get(0));
+	}
+	
+	@Test
+	void testGetResidencesWithBedrooms() {
+		Collection<Residence> props = agency.getResidencesWithBedrooms(3, 4);
+		assertEquals(2, props.size());
+		Set<String> ids = new HashSet<>();
+		for (Residence residence : props) {
+			ids.add(residence.getPropertyId());
+		}
+		assertEquals(new HashSet<>(Arrays.asList("mr6789", "9000a")), ids);
+		assertEquals(7, agency.getResidencesWithBedrooms(-5, 100).size());
+		assertNull(agency.getResidencesWithBedrooms(11, 19));
+		assertNull(agency.getResidencesWithBedrooms(4, 3));
+	}
+	
+	@Test
+	void testSquareFootageRangeAndLargest() {
+		ArrayList<Retail> props = agency.getPropertiesSquareFootage(700, 1000);
+		assertEquals(1, props.size());
+		assertEquals("y6yyy", props.get(0).getPropertyId());
+		assertNull(agency.getPropertiesSquareFootage(1300, 5000));
+		
+		props = agency.getLargestRetails(1);
+		assertEquals(1, props.size());
+		assertEquals("876tru", props.get(0).getPropertyId());
+		props = agency.getLargestRetails(10);
+		assertEquals(2, props.size());
+		assertEquals("y6yyy", props.get(1).getPropertyId());
+		assertThrows(IllegalArgumentException.class, () -> agency.getLargestRetails(0));
+	}
+	
+	@Test
+	void testPriceStatistics() {
+		PriceStatistics retailStatistics = agency.getPriceStatistics("RETAIL");
+		assertEquals(2, retailStatistics.getCount());
+		assertEquals(1700000.0, retailStatistics.getTotalUsd());
+		assertEquals(850000.0, retailStatistics.getMeanUsd());
+		assertEquals(700000.0, retailStatistics.getMinUsd());
+		assertEquals(1000000.0, retailStatistics.getMaxUsd());
+		assertNull(agency.getPriceStatistics("warehouse"));
+		assertEquals(agency.getPriceStatistics().getTotalUsd(), agency.getTotalPropertyValues());
+		
+		Agency statisticsAgency = new Agency("Statistics");
+		Property first = new Property(0.1, agency.getProperty("abc123").getAddress(), "residence", "s1");
+		Property second = new Property(0.2, agency.getProperty("abc123").getAddress(), "residence", "s2");
+		statisticsAgency.addProperty(first);
+		statisticsAgency.addProperty(second);
+		first.setPriceUsd(1000000.0);
+		assertEquals(1000000.2, statisticsAgency.getTotalPropertyValues());
+		assertEquals(1000000.0, statisticsAgency.getPriceStatistics().getMaxUsd());
+		statisticsAgency.removeProperty("s1");
+		assertEquals(0.2, statisticsAgency.getTotalPropertyValues());
+		assertEquals(1, statisticsAgency.getPriceStatistics("residence").getCount());
+	}
+	
+	@Test
+	void testFindProperties() {
+		ArrayList<Property> props = agency.findProperties(new PropertyQuery().ofType("residence")
+				.bedroomsBetween(3, 10).priceBetween(0, 5000000.0).withFeature(PropertyFeature.SWIMMING_POOL, false));
+		Collections.sort(props, (p1, p2) -> p1.getPropertyId().compareTo(p2.getPropertyId()));
+		assertEquals(2, props.size());
+		assertEquals("9000a", props.get(0).getPropertyId());
+		assertEquals("mr6789", props.get(1).getPropertyId());
+		
+		props = agency.findProperties(new PropertyQuery().squareFootageBetween(1000, 2000)
+				.withFeature(PropertyFeature.CUSTOMER_PARKING, true));
+		assertEquals(1, props.size());
+		assertEquals("876tru", props.get(0).getPropertyId());
+		
+		assertEquals(12, agency.findProperties(new PropertyQuery()).size());
+		assertNull(agency.findProperties(new PropertyQuery().onStreet("Bullwinkle Drive")));
+		assertNull(agency.findProperties(new PropertyQuery().ofType("commercial").withFeature(PropertyFeature.SWIMMING_POOL, true)));
+	}
+	
+	@Test
+	void testPagesAndMostExpensive() {
+		PropertyPage page = agency.findProperties(new PropertyQuery(), null, 5);
+		assertEquals(5, page.getProperties().size());
+		assertEquals("9999", page.getProperties().get(0).getPropertyId());
+		assertTrue(page.hasNextPage());
+		page = agency.findProperties(new PropertyQuery(), page.getNextCursor(), 5);
+		assertEquals("876tru", page.getProperties().get(0).getPropertyId());
+		page = agency.findProperties(new PropertyQuery(), page.getNextCursor(), 5);
+		assertEquals(2, page.getProperties().size());
+		assertFalse(page.hasNextPage());
+		
+		PropertyQuery noPool = new PropertyQuery().withFeature(PropertyFeature.SWIMMING_POOL, false);
+		page = agency.findProperties(noPool, null, 2);
+		assertEquals("9999", page.getProperties().get(0).getPropertyId());
+		assertEquals("abc123", page.getProperties().get(1).getPropertyId());
+		page = agency.findProperties(noPool, page.getNextCursor(), 2);
+		assertEquals("y6yyy", page.getProperties().get(0).getPropertyId());
+		
+		ArrayList<Property> props = agency.findMostExpensive(new PropertyQuery().ofType("residence"), 2);
+		assertEquals("78444a", props.get(0).getPropertyId());
+		assertEquals("mmm33", props.get(1).getPropertyId());
+		props = agency.findMostExpensive(new PropertyQuery().bedroomsBetween(2, 3), 2);
+		assertEquals("9000a", props.get(0).getPropertyId());
+		assertEquals("mr6789", props.get(1).getPropertyId());
+		assertThrows(IllegalArgumentException.class, () -> agency.findProperties(noPool, null, 0));
+	}
+	
+	@Test
+	void testPostalAreaAndCity() {
+		ArrayList<Property> props = agency.getPropertiesInPostalArea("v7n 2");
+		assertEquals(1, props.size());
+		assertEquals("abc123", props.get(0).getPropertyId());
+		assertEquals(12, agency.getPropertiesInPostalArea("").size());
+		assertNull(agency.getPropertiesInPostalArea("Z9Z"));
+		
+		props = agency.getPropertiesInCity("Los Angeles");
+		assertEquals(3, props.size());
+		assertNull(agency.getPropertiesInCity("Atlantis"));
+		assertEquals(3, agency.findProperties(new PropertyQuery().inCity("LOS ANGELES")).size());
+		assertEquals(2, agency.findProperties(new PropertyQuery().inPostalArea("v8y")).size());
+		assertEquals(1, agency.findProperties(new PropertyQuery().inPostalArea("V7N").inCity("Surrey")).size());
+	}
+	
+	@Test
+	void testColumnarPropertyStore() throws Exception {
+		ColumnarPropertyStore store = new ColumnarPropertyStore();
+		ParallelPropertyLoader.load(new File("address_data.txt"), new File("property_data.txt"), store);
+		
+		assertEquals(12, store.size());
+		assertEquals(agency.getTotalPropertyValues(), store.getTotalPropertyValues(), 0.001);
+		assertEquals(agency.getProperty("876tru").toString(), store.getProperty("876tru").toString());
+		assertEquals(2, store.getPropertiesBetween(1000000.0, 2000000.0).length);
+		assertEquals(1, store.getPropertiesOn("56TH AVENUE").size());
+		assertEquals(agency.getPropertiesWithBedrooms(3, 4).keySet(), store.getPropertiesWithBedrooms(3, 4).keySet());
+		assertEquals(agency.getPropertiesOfType("residence").size(), store.getPropertiesOfType("Residence").size());
+		assertEquals(3, store.getPropertiesWithPools().size());
+		assertEquals(1, store.getPropertiesWithStrata().size());
+		assertEquals(1, store.getPropertiesWithLoadingDocks().size());
+		assertEquals(2, store.getPropertiesWithHighwayAccess().size());
+		assertEquals(1, store.getPropertiesSquareFootage(1000).size());
+		assertEquals(1, store.getPropertiesWithCustomerParking().size());
+		
+		store.removeProperty("876tru");
+		assertNull(store.getProperty("876tru"));
+		assertNull(store.getPropertiesWithCustomerParking());
+		store.addProperty(agency.getProperty("876tru"));
+		assertEquals(12, store.size());
+		assertEquals("876tru", store.getPropertiesWithCustomerParking().get(0).getPropertyId());
+	}
+	
+	@Test
+	void testOffHeapPropertyStore() throws Exception {
+		OffHeapPropertyStore store = new OffHeapPropertyStore();
+		ParallelPropertyLoader.load(new File("address_data.txt"), new File("property_data.txt"), store);
+		
+		assertEquals(12, store.size());
+		assertEquals(agency.getTotalPropertyValues(), store.getTotalPropertyValues(), 0.001);
+		for (Property property : agency.getPropertiesOfType("residence")) {
+			assertEquals(property.toString(), store.getProperty(property.getPropertyId()).toString());
+		}
+		assertEquals(agency.getProperty("876tru").toString(), store.getProperty("876tru").toString());
+		assertEquals(2, store.getPropertiesBetween(1000000.0, 2000000.0).length);
+		assertEquals(1, store.getPropertiesOn("56TH AVENUE").size());
+		assertEquals(agency.getPropertiesWithBedrooms(3, 4).keySet(), store.getPropertiesWithBedrooms(3, 4).keySet());
+		assertEquals(3, store.getPropertiesWithPools().size());
+		assertEquals(1, store.getPropertiesWithStrata().size());
+		assertEquals(1, store.getPropertiesWithLoadingDocks().size());
+		assertEquals(2, store.getPropertiesWithHighwayAccess().size());
+		assertEquals(1, store.getPropertiesSquareFootage(1000).size());
+		
+		store.removeProperty("876tru");
+		assertNull(store.getProperty("876tru"));
+		assertNull(store.getPropertiesWithCustomerParking());
+		store.addProperty(agency.getProperty("876tru"));
+		assertEquals(12, store.size());
+		assertEquals("876tru", store.getPropertiesWithCustomerParking().get(0).getPropertyId());
+	}
+	
+	@Test
+	void testPropertyIdLookups() {
+		Agency idAgency = new Agency("Property Ids");
+		Address address = agency.getProperty("abc123").getAddress();
+		
+		for (int i = 0; i < 1000; i++) {
+			idAgency.addProperty(new Property(i, address, "residence", "id" + i));
+		}
+		idAgency.addProperty(new Property(1.0, address, "residence", "\u20ac1"));
+		idAgency.addProperty(new Property(2.0, address, "residence", "id7"));
+		
+		assertEquals(1001, idAgency.getPropertiesOfType("residence").size());
+		assertEquals(2.0, idAgency.getProperty("id7").getPriceUsd(), 0.001);
+		assertEquals(1.0, idAgency.getProperty("\u20ac1").getPriceUsd(), 0.001);
+		for (int i = 0; i < 1000; i += 2) {
+			idAgency.removeProperty("id" + i);
+		}
+		idAgency.removeProperty("\u20ac1");
+		for (int i = 1; i < 1000; i += 2) {
+			assertEquals("id" + i, idAgency.getProperty("id" + i).getPropertyId());
+			assertNull(idAgency.getProperty("id" + (i - 1)));
+		}
+		assertNull(idAgency.getProperty("\u20ac1"));
+		assertNull(idAgency.getProperty("ID1"));
+		assertNull(idAgency.getProperty(null));
+		assertEquals(500, idAgency.getPropertiesOfType("residence").size());
+	}
+	
+	@Test
+	void testFullAddressFormatting() {
+		Address unit = new Address("1a", 777, "56TH avenue", "v7n2m8", "SURREY");
+		Address house = new Address(null, 12, "main street", "v5k0a1", "north vancouver");
+		
+		assertEquals("unit #1a at 777 56th Avenue V7N2M8 in Surrey", unit.getFullAddress());
+		assertEquals("12 Main Street V5K0A1 in North Vancouver", house.toString());
+		assertSame(unit.getFullAddress(), unit.toString());
+	}
+	
+	@Test
+	void testForEachQueries() {
+		ArrayList<Property> visited = new ArrayList<>();
+		
+		assertEquals(2, agency.forEachPropertyBetween(1000000.0, 2000000.0, visited::add));
+		assertEquals(Arrays.asList(agency.getPropertiesBetween(1000000.0, 2000000.0)), visited);
+		assertEquals(0, agency.forEachPropertyBetween(2000000.0, 1000000.0, visited::add));
+		
+		visited.clear();
+		assertEquals(agency.getPropertiesOfType("residence").size(), agency.forEachPropertyOfType("RESIDENCE", visited::add));
+		assertEquals(agency.getPropertiesOfType("residence"), visited);
+		assertEquals(0, agency.forEachPropertyOfType("castle", visited::add));
+		
+		assertEquals(1, agency.forEachPropertyOn("56TH AVENUE", address -> assertEquals(777, address.getStreetNumber())));
+		assertEquals(3, agency.forEachPropertyInCity("los angeles", property -> { }));
+		assertEquals(agency.getPropertiesWithBedrooms(3, 4).size(), agency.forEachResidenceWithBedrooms(3, 4, residence -> { }));
+		assertEquals(1, agency.forEachRetailWithSquareFootage(1000, 2000, retail -> assertEquals("876tru", retail.getPropertyId())));
+		assertEquals(3, agency.forEachPropertyWith(PropertyFeature.SWIMMING_POOL, property -> { }));
+		assertEquals(agency.findProperties(new PropertyQuery().ofType("residence")).size(),
+				agency.forEachPropertyMatching(new PropertyQuery().ofType("residence"), property -> { }));
+	}
+	
+	@Test
+	void testMappedLineReaderWindows() throws Exception {
+		File file = new File(tempDir, "lines.txt");
+		Files.write(file.toPath(), ("abcd\u20ac\r\n" + "xxxxxxxxxxxx\n" + "\u00e9\n" + "\n" + "tail\n\n  \n").getBytes(StandardCharsets.UTF_8));
+		
+		try (MappedLineReader reader = new MappedLineReader(file, 0, 5)) {
+			assertEquals("abcd\u20ac", reader.nextLine());
+			assertEquals("xxxxxxxxxxxx", reader.nextLine());
+			assertEquals("\u00e9", reader.nextLine());
+			assertEquals("", reader.nextLine());
+			assertEquals("tail", reader.nextLine());
+			assertNull(reader.nextLine());
+			assertEquals(file.length(), reader.getPosition());
+		}
+		
+		Files.write(file.toPath(), "one\ntwo".getBytes(StandardCharsets.UTF_8));
+		try (MappedLineReader reader = new MappedLineReader(file, 0, 2)) {
+			assertEquals("one", reader.nextLine());
+			assertEquals("two", reader.nextLine());
+			assertNull(reader.nextLine());
+		}
+		
+		File addresses = new File(tempDir, "addresses.txt");
+		Files.write(addresses.toPath(), (new String(Files.readAllBytes(new File("address_data.txt").toPath()),
+				StandardCharsets.UTF_8) + "\n\n").getBytes(StandardCharsets.UTF_8));
+		assertEquals(AddressReader.readAddressData(new File("address_data.txt")).size(),
+				AddressReader.readAddressData(addresses).size());
+	}
+	
+	@Test
+	void testRecordTokenizerNumbers() {
+		RecordTokenizer tokenizer = new RecordTokenizer();
+		String[] doubles = { "123456789012345", "1234567890123456", "12345678901234567", "0.123456789012345",
+				"0.1234567890123456", "1.2345678901234567", "9007199254740993", "1e22", "1e23", "1E-22",
+				"0.0000000000000000000001", "0.00000000000000000000001", "-499000.5", "+12.5", ".5", "5.", "-0",
+				"0.1", "00000000000000000012.5", "1.7976931348623157e308" };
+		String[] badDoubles = { "", ".", "-", "1.2.3", "abc", "1,5", "--1" };
+		String[] ints = { "0", "-0", "+42", "123456789", "1234567890", "-2147483648", "2147483647" };
+		String[] badInts = { "", "-", "+", "2147483648", "-2147483649", "99999999999", "12a", "1.0" };
+		
+		for (String field : doubles) {
+			assertEquals(Double.doubleToLongBits(Double.parseDouble(field)),
+					Double.doubleToLongBits(tokenizer.reset(field).nextDouble()), field);
+		}
+		for (String field : badDoubles) {
+			assertThrows(NumberFormatException.class, () -> Double.parseDouble(field), field);
+			assertThrows(NumberFormatException.class, () -> tokenizer.reset(field).nextDouble(), field);
+		}
+		for (String field : ints) {
+			assertEquals(Integer.parseInt(field), tokenizer.reset(field).nextInt(), field);
+		}
+		for (String field : badInts) {
+			assertThrows(NumberFormatException.class, () -> Integer.parseInt(field), field);
+			assertThrows(NumberFormatException.class, () -> tokenizer.reset(field).nextInt(), field);
+		}
+		
+		tokenizer.reset("499000.0|2||x");
+		assertEquals(499000.0, tokenizer.nextDouble());
+		assertEquals(2, tokenizer.nextInt());
+		assertThrows(NumberFormatException.class, tokenizer::nextInt);
+		assertEquals("x", tokenizer.nextString());
+		assertThrows(IllegalArgumentException.class, tokenizer::nextString);
+	}
+	
+	@Test
+	void testParallelLoadMatchesSequentialLoad() throws Exception {
+		String addressLines = new String(Files.readAllBytes(new File("address_data.txt").toPath()), StandardCharsets.UTF_8).trim();
+		String propertyLines = new String(Files.readAllBytes(new File("property_data.txt").toPath()), StandardCharsets.UTF_8).trim();
+		File addresses = new File(tempDir, "addresses.txt");
+		File properties = new File(tempDir, "properties.txt");
+		Files.write(addresses.toPath(), (addressLines + "\n" + addressLines + "\n").getBytes(StandardCharsets.UTF_8));
+		Files.write(properties.toPath(), (propertyLines + "\n" + propertyLines.replace("499000.0|2|false", "599000.0|3|true")
+				+ "\r\n\n\n").getBytes(StandardCharsets.UTF_8));
+		
+		Agency sequential = new Agency("Sequential");
+		ArrayList<Address> addressList = AddressReader.readAddressData(addresses);
+		ArrayList<String> propertyList = PropertyReader.readPropertyData(properties);
+		for (int i = 0; i < propertyList.size(); i++) {
+			sequential.addProperty(PropertyReader.getPropertyFromString(propertyList.get(i), addressList.get(i)));
+		}
+		assertEquals(599000.0, sequential.getProperty("abc123").getPriceUsd(), 0.001);
+		
+		for (int chunkSize : new int[] { 1, 2, 5, 1000 }) {
+			Agency parallel = new Agency("Parallel");
+			ParallelPropertyLoader.load(addresses, properties, parallel, 3, chunkSize);
+			
+			Property[] expected = sequential.getPropertiesBetween(0.0, Double.MAX_VALUE);
+			assertEquals(expected.length, parallel.getPropertiesBetween(0.0, Double.MAX_VALUE).length);
+			for (Property property : expected) {
+				assertEquals(property.toString(), parallel.getProperty(property.getPropertyId()).toString());
+			}
+		}
+		
+		Files.write(addresses.toPath(), addressLines.substring(0, addressLines.lastIndexOf('\n')).getBytes(StandardCharsets.UTF_8));
+		assertThrows(IllegalStateException.class,
+				() -> ParallelPropertyLoader.load(addresses, properties, new Agency("Missing"), 2, 4));
+	}
+	
+	@Test
+	void testSnapshotRoundTrip() throws Exception {
+		Agency original = new Agency("Snapshot");
+		Address montreal = new Address(null, 1234, "C\u00f4te-des-Neiges", "h3t1a1", "Montr\u00e9al");
+		Address unit = new Address("12b", 77, "main street", "v5k0a1", "\u6771\u4eac");
+		original.addProperty(new Property(100000.5, montreal, "Residence", "p\u00e91"));
+		original.addProperty(new Residence(499000.0, unit, 3, true, "residence", "r1", false));
+		original.addProperty(new Commercial(1500000.0, montreal, "commercial", "c1", true, false));
+		original.addProperty(new Retail(750000.0, unit, "retail", "t1", 1200, true));
+		
+		File file = new File(tempDir, "agency.bin");
+		File source = new File(tempDir, "source.txt");
+		Files.write(source.toPath(), "12345".getBytes(StandardCharsets.UTF_8));
+		List<AgencySnapshot.SourceStamp> sources = Arrays.asList(AgencySnapshot.SourceStamp.of(source));
+		original.saveSnapshot(file, sources);
+		Agency restored = new Agency("Restored");
+		restored.loadSnapshot(file);
+		
+		for (String id : new String[] { "p\u00e91", "r1", "c1", "t1" }) {
+			Property expected = original.getProperty(id);
+			Property actual = restored.getProperty(id);
+			assertEquals(expected.getClass(), actual.getClass());
+			assertEquals(expected.getPriceUsd(), actual.getPriceUsd());
+			assertEquals(expected.getType(), actual.getType());
+			assertEquals(expected.getAddress().getUnitNumber(), actual.getAddress().getUnitNumber());
+			assertEquals(expected.getAddress().getStreetNumber(), actual.getAddress().getStreetNumber());
+			assertEquals(expected.getAddress().getStreetName(), actual.getAddress().getStreetName());
+			assertEquals(expected.getAddress().getPostalCode(), actual.getAddress().getPostalCode());
+			assertEquals(expected.getAddress().getCity(), actual.getAddress().getCity());
+		}
+		assertNull(restored.getProperty("p\u00e91").getAddress().getUnitNumber());
+		Residence residence = (Residence) restored.getProperty("r1");
+		assertEquals(3, residence.getNumberOfBedrooms());
+		assertTrue(residence.hasSwimmingPool());
+		assertFalse(residence.hasStrata());
+		Commercial commercial = (Commercial) restored.getProperty("c1");
+		assertTrue(commercial.hasLoadingDock());
+		assertFalse(commercial.hasHighwayAccess());
+		Retail retail = (Retail) restored.getProperty("t1");
+		assertEquals(1200, retail.getSquareFootage());
+		assertTrue(retail.hasCustomerParking());
+		
+		assertTrue(AgencySnapshot.isCurrent(file, sources));
+		long lastModified = source.lastModified();
+		Files.write(source.toPath(), "54321".getBytes(StandardCharsets.UTF_8));
+		assertTrue(source.setLastModified(lastModified - 60000));
+		assertFalse(AgencySnapshot.isCurrent(file, Arrays.asList(AgencySnapshot.SourceStamp.of(source))));
+		Files.write(source.toPath(), "123456".getBytes(StandardCharsets.UTF_8));
+		assertTrue(source.setLastModified(lastModified));
+		assertFalse(AgencySnapshot.isCurrent(file, Arrays.asList(AgencySnapshot.SourceStamp.of(source))));
+		
+		byte[] bytes = Files.readAllBytes(file.toPath());
+		bytes[7] = 99;
+		Files.write(file.toPath(), bytes);
+		IOException badVersion = assertThrows(IOException.class, () -> new Agency("Version").loadSnapshot(file));
+		assertTrue(badVersion.getMessage().contains("version"));
+		assertFalse(AgencySnapshot.isCurrent(file, sources));
+		bytes[0] = 0;
+		Files.write(file.toPath(), bytes);
+		IOException badMagic = assertThrows(IOException.class, () -> new Agency("Magic").loadSnapshot(file));
+		assertTrue(badMagic.getMessage().contains("Not an agency snapshot"));
+	}
+	
+	@Test
+	void testListingFollowerSkipsMalformedPairs() throws Exception {
+		File addresses = new File(tempDir, "addresses.txt");
+		File properties = new File(tempDir, "properties.txt");
+		Files.write(addresses.toPath(), new byte[0]);
+		Files.write(properties.toPath(), new byte[0]);
+		Agency followed = new Agency("Followed");
+		ListingFollower follower = ListingFollower.fromEndOf(addresses, properties, followed);
+		
+		Files.write(addresses.toPath(), ("1a|777|56th avenue|v7n2m8|surrey\n"
+				+ " |not a number|main street|v7r2g2|west vancouver\n"
+				+ " |123|main street|v7r2g2|west vancouver\n").getBytes(StandardCharsets.UTF_8));
+		Files.write(properties.toPath(), ("499000.0|2|false|residence|f1|true\n"
+				+ "free|5|true|residence|f2|false\n"
+				+ "5999999.0|5|true|residence|f3|false\n").getBytes(StandardCharsets.UTF_8));
+		assertEquals(2, follower.poll());
+		assertEquals(1, follower.getRejectedCount());
+		assertEquals("surrey", followed.getProperty("f1").getAddress().getCity());
+		assertNull(followed.getProperty("f2"));
+		assertEquals("west vancouver", followed.getProperty("f3").getAddress().getCity());
+		
+		Files.write(addresses.toPath(), "2b|8|oak street|v6k1a1|vancouver\n".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		Files.write(properties.toPath(), "750000.0|3|false|residence|f4|true\n".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		assertEquals(1, follower.poll());
+		assertEquals(1, follower.getRejectedCount());
+		assertEquals("vancouver", followed.getProperty("f4").getAddress().getCity());
+	}
+	
+	@Test
+	void testCloseReleasesLazyIndex() throws Exception {
+		Agency lazyAgency = new Agency("Closed Properties");
+		LazyPropertyIndex index = LazyPropertyIndex.build(new File("address_data.txt"), new File("property_data.txt"));
+		lazyAgency.addLazyProperties(index);
+		
+		assertEquals("678T", lazyAgency.getProperty("678T").getPropertyId());
+		lazyAgency.close();
+		assertTrue(index.contains("abc123"));
+		assertThrows(IOException.class, () -> index.materialize("abc123"));
+		assertNull(lazyAgency.getProperty("abc123"));
+		assertEquals("678T", lazyAgency.getProperty("678T").getPropertyId());
+		lazyAgency.close();
+	}
+	
+	@Test
+	void testBulkLoaderResumesFromCheckpoint() throws Exception {
+		interruptBulkLoad();
+		File rejects = new File(tempDir, "rejects.txt");
+		File checkpoint = new File(tempDir, "checkpoint.bin");
+		assertTrue(checkpoint.isFile());
+		assertEquals(2, Files.readAllLines(rejects.toPath(), StandardCharsets.UTF_8).size());
+		
+		Agency resumed = new Agency("Resumed");
+		BulkLoader loader = new BulkLoader(new File(tempDir, "addresses.txt"), new File(tempDir, "properties.txt"),
+				rejects, checkpoint, 2);
+		loader.load(resumed);
+		
+		assertEquals(6, loader.getLoadedCount());
+		assertEquals(2, loader.getRejectedCount());
+		List<String> rejected = Files.readAllLines(rejects.toPath(), StandardCharsets.UTF_8);
+		assertEquals(2, rejected.size());
+		assertTrue(rejected.get(0).startsWith("4\t"));
+		assertTrue(rejected.get(1).startsWith("6\t"));
+		for (String id : new String[] { "b1", "b2", "b3", "b5", "b7", "b8" }) {
+			assertEquals(id, resumed.getProperty(id).getPropertyId());
+		}
+		assertEquals("city3", resumed.getProperty("b3").getAddress().getCity());
+		assertEquals("city8", resumed.getProperty("b8").getAddress().getCity());
+		assertEquals(6, resumed.getPropertiesOfType("residence").size());
+		assertFalse(checkpoint.exists());
+		assertFalse(new File(tempDir, "checkpoint.bin.journal").exists());
+	}
+	
+	@Test
+	void testBulkLoaderRefusesStaleCheckpoint() throws Exception {
+		File addresses = new File(tempDir, "addresses.txt");
+		File properties = new File(tempDir, "properties.txt");
+		File rejects = new File(tempDir, "rejects.txt");
+		File checkpoint = new File(tempDir, "checkpoint.bin");
+		interruptBulkLoad();
+		byte[] committed = Files.readAllBytes(checkpoint.toPath());
+		
+		byte[] otherVersion = committed.clone();
+		otherVersion[3] = 1;
+		Files.write(checkpoint.toPath(), otherVersion);
+		IOException version = assertThrows(IOException.class,
+				() -> new BulkLoader(addresses, properties, rejects, checkpoint, 2).load(new Agency("Version")));
+		assertEquals("Unsupported checkpoint version: 1", version.getMessage());
+		
+		Files.write(checkpoint.toPath(), committed);
+		Files.write(addresses.toPath(), "9a|9|street9|v7n2m8|city9\n".getBytes(StandardCharsets.UTF_8),
+				StandardOpenOption.APPEND);
+		IOException changed = assertThrows(IOException.class,
+				() -> new BulkLoader(addresses, properties, rejects, checkpoint, 2).load(new Agency("Changed")));
+		assertTrue(changed.getMessage().startsWith("Data file changed since the checkpoint was written"));
+		assertTrue(checkpoint.isFile());
+	}
+	
+	@Test
+	void testConvertedListingMatchesTwoFileLoad() throws Exception {
+		File addresses = new File("address_data.txt");
+		File properties = new File("property_data.txt");
+		File listing = new File(tempDir, "listing.txt");
+		ListingReader.convert(addresses, properties, listing);
+		
+		List<String> listingLines = Files.readAllLines(listing.toPath(), StandardCharsets.UTF_8);
+		assertEquals(PropertyReader.readPropertyData(properties).size(), listingLines.size());
+		assertEquals("1a|777|56th avenue|v7n2m8|surrey|499000.0|2|false|residence|abc123|true", listingLines.get(0));
+		
+		Agency twoFiles = new Agency("Two Files");
+		ParallelPropertyLoader.load(addresses, properties, twoFiles);
+		Agency converted = new Agency("Converted");
+		ListingReader.load(listing, converted);
+		
+		Property[] expected = twoFiles.getPropertiesBetween(0.0, Double.MAX_VALUE);
+		assertEquals(expected.length, converted.getPropertiesBetween(0.0, Double.MAX_VALUE).length);
+		for (Property property : expected) {
+			Property actual = converted.getProperty(property.getPropertyId());
+			assertEquals(property.getClass(), actual.getClass());
+			assertEquals(property.toString(), actual.toString());
+		}
+	}
+	
+	@Test
+	void testAddressStringsArePooledPerLoad() throws Exception {
+		File addresses = new File(tempDir, "addresses.txt");
+		Files.write(addresses.toPath(), ("1a|777|56th avenue|v7n2m8|surrey\n"
+				+ " |123|main street|v7r2g2|west vancouver\n"
+				+ "2b|778|56th avenue|v7n2m8|surrey\n").getBytes(StandardCharsets.UTF_8));
+		
+		ArrayList<Address> loaded = AddressReader.readAddressData(addresses);
+		assertSame(loaded.get(0).getStreetName(), loaded.get(2).getStreetName());
+		assertSame(loaded.get(0).getPostalCode(), loaded.get(2).getPostalCode());
+		assertSame(loaded.get(0).getCity(), loaded.get(2).getCity());
+		assertEquals("west vancouver", loaded.get(1).getCity());
+		
+		ArrayList<Address> reloaded = AddressReader.readAddressData(addresses);
+		assertEquals(loaded.get(0).getCity(), reloaded.get(0).getCity());
+		assertNotSame(loaded.get(0).getCity(), reloaded.get(0).getCity());
+		
+		StringPool pool = new StringPool();
+		String surrey = pool.canonicalize("1a|777|56th avenue|v7n2m8|surrey", 26, 32);
+		assertEquals("surrey", surrey);
+		assertSame(surrey, pool.canonicalize("2b|778|56th avenue|v7n2m8|surrey", 26, 32));
+		assertSame(surrey, pool.canonicalize(new String("surrey")));
+		assertEquals("", pool.canonicalize("a||b", 2, 2));
+		assertEquals(2, pool.size());
+		assertThrows(IndexOutOfBoundsException.class, () -> pool.canonicalize("surrey", 3, 7));
+	}
+	
+	@Test
+	void testCompressedLineReaderRoundTrip() throws Exception {
+		StringBuilder longLine = new StringBuilder();
+		while (longLine.length() < 100000) {
+			longLine.append("C\u00f4te-des-Neiges|");
+		}
+		List<String> lines = Arrays.asList("1a|777|56th avenue|v7n2m8|surrey", "", longLine.toString(),
+				" |123|main street|v7r2g2|west vancouver");
+		File compressed = new File(tempDir, "addresses.txt.gz");
+		try (GZIPOutputStream output = new GZIPOutputStream(new FileOutputStream(compressed))) {
+			output.write((String.join("\r\n", lines)).getBytes(StandardCharsets.UTF_8));
+		}
+		
+		try (LineReader reader = LineReader.open(compressed)) {
+			assertTrue(reader instanceof CompressedLineReader);
+			for (String line : lines) {
+				assertEquals(line, reader.nextLine());
+			}
+			assertNull(reader.nextLine());
+			assertNull(reader.nextLine());
+		}
+		
+		try (GZIPOutputStream output = new GZIPOutputStream(new FileOutputStream(compressed))) {
+			for (int i = 0; i < 20000; i++) {
+				output.write((longLine.substring(0, 1000) + "|" + i + "\r\n").getBytes(StandardCharsets.UTF_8));
+			}
+		}
+		for (int i = 0; i < 5; i++) {
+			LineReader reader = LineReader.open(compressed);
+			assertTrue(reader.nextLine().endsWith("|0"));
+			reader.close();
+		}
+	}
+	
+	@Test
+	void testSlottedStoresMatchAgency() throws Exception {
+		FeatureFilter poolOrDock = FeatureFilter.has(PropertyFeature.SWIMMING_POOL).or(FeatureFilter.has(PropertyFeature.LOADING_DOCK));
+		List<PropertyQuery> queries = Arrays.asList(new PropertyQuery(), new PropertyQuery().ofType("RESIDENCE"),
+				new PropertyQuery().priceBetween(500000.0, 3000000.0).inCity("surrey"),
+				new PropertyQuery().inPostalArea("v7 n"), new PropertyQuery().bedroomsBetween(2, 4),
+				new PropertyQuery().squareFootageBetween(1000, 2000), new PropertyQuery().onStreet("Bullwinkle Drive"),
+				new PropertyQuery().withFeature(PropertyFeature.SWIMMING_POOL, false).withFeature(PropertyFeature.HIGHWAY_ACCESS, false));
+		
+		for (PropertyStore store : Arrays.asList(new ColumnarPropertyStore(), new OffHeapPropertyStore())) {
+			ParallelPropertyLoader.load(new File("address_data.txt"), new File("property_data.txt"), store);
+			store.removeProperty("876tru");
+			store.addProperty(agency.getProperty("876tru"));
+			
+			assertEquals(agency.getPriceStatistics().toString(), store.getPriceStatistics().toString());
+			assertEquals(agency.getPriceStatistics("retail").toString(), store.getPriceStatistics("Retail").toString());
+			assertNull(store.getPriceStatistics("castle"));
+			assertEquals(propertyIds(agency.getPropertiesInPostalArea("V7N")), propertyIds(store.getPropertiesInPostalArea(" v7n")));
+			assertEquals(propertyIds(agency.getPropertiesInCity("SURREY")), propertyIds(store.getPropertiesInCity("surrey")));
+			assertNull(store.getPropertiesInCity("Atlantis"));
+			assertEquals(propertyIds(agency.getPropertiesSquareFootage(100, 1500)), propertyIds(store.getPropertiesSquareFootage(100, 1500)));
+			assertEquals(agency.countProperties(poolOrDock), store.countProperties(poolOrDock));
+			assertEquals(agency.countProperties(poolOrDock.not()), store.countProperties(poolOrDock.not()));
+			assertEquals(propertyIds(agency.getPropertiesMatching(poolOrDock)), propertyIds(store.getPropertiesMatching(poolOrDock)));
+			assertEquals(new TreeSet<>(agency.getPropertyIdsMatching(poolOrDock)), new TreeSet<>(store.getPropertyIdsMatching(poolOrDock)));
+			
+			for (PropertyQuery query : queries) {
+				assertEquals(propertyIds(agency.findProperties(query)), propertyIds(store.findProperties(query)));
+				assertEquals(propertyIdsInOrder(agency.findMostExpensive(query, 3)), propertyIdsInOrder(store.findMostExpensive(query, 3)));
+				
+				PropertyPage agencyPage = agency.findProperties(query, null, 5);
+				PropertyPage storePage = store.findProperties(query, null, 5);
+				while (true) {
+					assertEquals(propertyIdsInOrder(agencyPage.getProperties()), propertyIdsInOrder(storePage.getProperties()));
+					assertEquals(agencyPage.hasNextPage(), storePage.hasNextPage());
+					if (!agencyPage.hasNextPage()) {
+						break;
+					}
+					agencyPage = agency.findProperties(query, agencyPage.getNextCursor(), 5);
+					storePage = store.findProperties(query, storePage.getNextCursor(), 5);
+				}
+			}
+		}
+	}
+	
+	private static Set<String> propertyIds(Collection<? extends Property> properties) {
+		Set<String> propertyIds = new TreeSet<>();
+		if (properties != null) {
+			for (Property property : properties) {
+				propertyIds.add(property.getPropertyId());
+			}
+		}
+		return propertyIds;
+	}
+	
+	private static List<String> propertyIdsInOrder(Collection<? extends Property> properties) {
+		List<String> propertyIds = new ArrayList<>();
+		if (properties != null) {
+			for (Property property : properties) {
+				propertyIds.add(property.getPropertyId());
+			}
+		}
+		return propertyIds;
+	}
+	
+	@Test
+	void testPackedIdTable() {
+		PackedIdMap<String> values = new PackedIdMap<>();
+		PackedSlotMap slots = new PackedSlotMap();
+		for (int i = 0; i < 1000; i++) {
+			assertNull(values.put("id" + i, "value" + i));
+			assertEquals(PackedSlotMap.NO_SLOT, slots.put("id" + i, i));
+		}
+		assertNull(values.put("\u0394\u03b1", "unpacked"));
+		assertEquals(PackedSlotMap.NO_SLOT, slots.put("\u0394\u03b1", 1000));
+		assertEquals(1001, values.size());
+		assertEquals(1001, slots.size());
+		
+		for (int i = 0; i < 1000; i += 3) {
+			assertEquals("value" + i, values.remove("id" + i));
+			assertEquals(i, slots.remove("id" + i));
+		}
+		assertNull(values.remove("id0"));
+		assertEquals(PackedSlotMap.NO_SLOT, slots.remove("id0"));
+		for (int i = 0; i < 1000; i++) {
+			assertEquals(i % 3 == 0 ? null : "value" + i, values.get("id" + i));
+			assertEquals(i % 3 == 0 ? PackedSlotMap.NO_SLOT : i, slots.get("id" + i));
+		}
+		
+		assertEquals("value1", values.put("id1", "replaced"));
+		assertEquals(1, slots.put("id1", 2000));
+		assertEquals("replaced", values.get("id1"));
+		assertEquals(2000, slots.get("id1"));
+		assertEquals("unpacked", values.remove("\u0394\u03b1"));
+		assertEquals(1000, slots.remove("\u0394\u03b1"));
+		assertNull(values.get(null));
+		assertEquals(PackedSlotMap.NO_SLOT, slots.get(null));
+		assertEquals(666, values.size());
+		assertEquals(666, slots.size());
+	}
+	
+	@Test
+	void testCompressedLineReaderRejectsCorruptHeader() throws Exception {
+		File corrupt = new File(tempDir, "corrupt.txt.gz");
+		Files.write(corrupt.toPath(), new byte[] { 0x1f, (byte) 0x8b, 8, 0 });
+		
+		OperatingSystemMXBean system = ManagementFactory.getOperatingSystemMXBean();
+		long openFiles = system instanceof UnixOperatingSystemMXBean ? ((UnixOperatingSystemMXBean) system).getOpenFileDescriptorCount() : 0;
+		for (int i = 0; i < 10; i++) {
+			assertThrows(IOException.class, () -> new CompressedLineReader(corrupt));
+		}
+		if (system instanceof UnixOperatingSystemMXBean) {
+			assertTrue(((UnixOperatingSystemMXBean) system).getOpenFileDescriptorCount() < openFiles + 10);
+		}
+		assertTrue(corrupt.delete());
+	}
+	
+	private void interruptBulkLoad() throws IOException {
+		StringBuilder addresses = new StringBuilder();
+		StringBuilder properties = new StringBuilder();
+		for (int i = 1; i <= 8; i++) {
+			addresses.append(i).append("a|").append(i).append("|street").append(i).append("|v7n2m8|city").append(i).append('\n');
+			properties.append(i == 4 || i == 6 ? "free" : "499000.0").append("|2|false|residence|b").append(i).append("|true\n");
+		}
+		File addressFile = new File(tempDir, "addresses.txt");
+		File propertyFile = new File(tempDir, "properties.txt");
+		Files.write(addressFile.toPath(), addresses.toString().getBytes(StandardCharsets.UTF_8));
+		Files.write(propertyFile.toPath(), properties.toString().getBytes(StandardCharsets.UTF_8));
+		
+		Agency failing = new Agency("Interrupted") {
+			private int added;
+			
+			@Override
+			public void addProperty(Property property) {
+				if (++added == 5) {
+					throw new IllegalStateException("Interrupted");
+				}
+				super.addProperty(property);
+			}
+		};
+		BulkLoader loader = new BulkLoader(addressFile, propertyFile, new File(tempDir, "rejects.txt"),
+				new File(tempDir, "checkpoint.bin"), 2);
+		assertThrows(IllegalStateException.class, () -> loader.load(failing));
+	}
 
 }